@@ -0,0 +1,79 @@
+package dev.shoangenes.tasktracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures mutations of one loaded store from several threads at once, the way a daemon serves concurrent clients.
+ * The throughput is the sum over every thread, so comparing runs with a different number of threads shows how the
+ * manager scales: gradle jmh -PjmhArgs='ConcurrentMutationBenchmark -t 1'
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Threads(4)
+public class ConcurrentMutationBenchmark {
+    @Param({"100000"})
+    int size;
+
+    private Path directory;
+    private TaskManager manager;
+
+    /**
+     * The generator of a thread, so threads do not contend on it.
+     */
+    @State(Scope.Thread)
+    public static class ThreadRandom {
+        SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            random = new SplittableRandom(TaskDataset.DEFAULT_SEED + Thread.currentThread().threadId());
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        directory = TaskDataset.createTempDirectory();
+        manager = new TaskManager(new JsonTaskStorage(TaskDataset.writeJson(directory, size, 32)));
+        // The indexes are kept up to date by mutations once built, which is the steady state of a daemon
+        manager.countTasks(Status.TODO);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        manager.close();
+        TaskDataset.delete(directory);
+    }
+
+    @Benchmark
+    public void addTask() {
+        manager.addTask("Concurrent task");
+    }
+
+    @Benchmark
+    public void markInProgressThenDone(ThreadRandom thread) {
+        int id = thread.random.nextInt(1, size + 1);
+        manager.markInProgress(id);
+        manager.markDone(id);
+    }
+}
@@ -0,0 +1,117 @@
+package dev.shoangenes.tasktracker;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.ref.Reference;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the heap retained by the in-memory layouts of a store: IntTaskMap against a HashMap holding the same
+ * tasks, and the compact layout of a lazily loaded JSON store against decoded tasks.
+ * Every invocation builds the structure once, and the heap it retains after a collection is reported next to the
+ * time as the 'retainedBytes' secondary result. The time includes the collections and is not the point.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class FootprintBenchmark {
+    @Param({"100000", "1000000"})
+    int size;
+
+    private Path directory;
+    private Path file;
+    private List<Task> tasks;
+
+    /**
+     * Heap retained by the structure built in the measured invocation.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Retained {
+        public long retainedBytes;
+        long before;
+
+        @Setup(Level.Invocation)
+        public void measureBefore() {
+            before = usedHeap();
+        }
+
+        void measureAfter(Object structure) {
+            retainedBytes = usedHeap() - before;
+            Reference.reachabilityFence(structure);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        directory = TaskDataset.createTempDirectory();
+        file = TaskDataset.writeJson(directory, size, 32);
+        tasks = TaskDataset.generate(size, 32, TaskDataset.DEFAULT_SEED);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        TaskDataset.delete(directory);
+    }
+
+    @Benchmark
+    public void hashMap(Retained retained) {
+        Map<Integer, Task> map = new HashMap<>();
+        for (Task task : tasks) {
+            map.put(task.getId(), task);
+        }
+        retained.measureAfter(map);
+    }
+
+    @Benchmark
+    public void intTaskMap(Retained retained) {
+        IntTaskMap map = new IntTaskMap();
+        for (Task task : tasks) {
+            map.put(task.getId(), task);
+        }
+        retained.measureAfter(map);
+    }
+
+    @Benchmark
+    public void decodedTasks(Retained retained) {
+        Map<Integer, Task> loaded = new HashMap<>();
+        JsonTaskStorage.readTasks(file, loaded);
+        retained.measureAfter(loaded);
+    }
+
+    @Benchmark
+    public void compactSource(Retained retained) {
+        retained.measureAfter(CompactTaskSource.read(file));
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // A single collection may leave garbage behind, keep the lowest reading
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+}
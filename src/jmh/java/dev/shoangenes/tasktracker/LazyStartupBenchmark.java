@@ -0,0 +1,57 @@
+package dev.shoangenes.tasktracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time from opening a JSON store to reading one task, with and without lazy loading.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class LazyStartupBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    @Param({"false", "true"})
+    boolean lazy;
+
+    private Path directory;
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        directory = TaskDataset.createTempDirectory();
+        file = directory.resolve("tasks.json");
+        new JsonTaskStorage(file, true).save(TaskDataset.generate(size, 32, TaskDataset.DEFAULT_SEED));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        TaskDataset.delete(directory);
+    }
+
+    @Benchmark
+    public Task openAndGetTask() {
+        try (TaskManager manager = new TaskManager(new JsonTaskStorage(file, lazy))) {
+            return manager.getTaskById(size / 2);
+        }
+    }
+}
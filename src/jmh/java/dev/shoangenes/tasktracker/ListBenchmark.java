@@ -0,0 +1,77 @@
+package dev.shoangenes.tasktracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures listing a loaded store in every print mode, with the output discarded, in full and as the first page
+ * of the most recently updated tasks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ListBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    @Param({"32", "256"})
+    int descriptionLength;
+
+    @Param({"ALL", "TODO", "IN_PROGRESS", "DONE"})
+    PrintMode printMode;
+
+    private Path directory;
+    private TaskManager manager;
+    private PrintStream out;
+    private TaskQuery newestPage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        directory = TaskDataset.createTempDirectory();
+        manager = new TaskManager(new JsonTaskStorage(TaskDataset.writeJson(directory, size, descriptionLength)));
+        out = new PrintStream(OutputStream.nullOutputStream());
+        // Builds the status index outside of the measurement
+        manager.countTasks(Status.TODO);
+        newestPage = new TaskQuery().withStatus(switch (printMode) {
+            case ALL -> null;
+            case TODO -> Status.TODO;
+            case DONE -> Status.DONE;
+            case IN_PROGRESS -> Status.IN_PROGRESS;
+        }).orderBy(TaskOrder.UPDATED, true).limit(50);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        manager.close();
+        TaskDataset.delete(directory);
+    }
+
+    @Benchmark
+    public void printTask() {
+        manager.printTask(printMode, out);
+    }
+
+    @Benchmark
+    public void printNewestPage() {
+        manager.printTasks(newestPage, OutputFormat.TEXT, out);
+    }
+}
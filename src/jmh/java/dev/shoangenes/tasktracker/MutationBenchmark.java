@@ -0,0 +1,79 @@
+package dev.shoangenes.tasktracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures single mutations on a loaded store, the way a daemon serves them, without saving.
+ * Every mutation targets a random existing task so the lookups do not stay in one page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MutationBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    @Param({"32", "256"})
+    int descriptionLength;
+
+    private Path directory;
+    private TaskManager manager;
+    private SplittableRandom random;
+    private String[] descriptions;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        directory = TaskDataset.createTempDirectory();
+        manager = new TaskManager(new JsonTaskStorage(TaskDataset.writeJson(directory, size, descriptionLength)));
+        random = new SplittableRandom(TaskDataset.DEFAULT_SEED);
+        descriptions = new String[64];
+        for (int i = 0; i < descriptions.length; i++) {
+            descriptions[i] = TaskDataset.description(random, descriptionLength);
+        }
+        // The indexes are kept up to date by mutations once built, which is the steady state of a daemon
+        manager.countTasks(Status.TODO);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        manager.close();
+        TaskDataset.delete(directory);
+    }
+
+    @Benchmark
+    public void updateTask() {
+        manager.updateTask(random.nextInt(1, size + 1), descriptions[random.nextInt(descriptions.length)]);
+    }
+
+    @Benchmark
+    public void markInProgressThenDone() {
+        int id = random.nextInt(1, size + 1);
+        manager.markInProgress(id);
+        manager.markDone(id);
+    }
+
+    @Benchmark
+    public void addThenDelete() {
+        manager.addTask(descriptions[random.nextInt(descriptions.length)]);
+        manager.deleteTask(Task.getLastIdSaved());
+    }
+}
@@ -0,0 +1,70 @@
+package dev.shoangenes.tasktracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading a sharded store and saving a single change, depending on the shard count.
+ * One shard behaves like the single tasks.json file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ShardedStorageBenchmark {
+    @Param({"100000", "1000000"})
+    int size;
+
+    @Param({"1", "4", "16"})
+    int shards;
+
+    private Path directory;
+    private ShardedTaskStorage storage;
+    private List<Task> tasks;
+    private Map<Integer, ChangeType> change;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        directory = TaskDataset.createTempDirectory();
+        tasks = TaskDataset.generate(size, 32, TaskDataset.DEFAULT_SEED);
+        storage = new ShardedTaskStorage(directory.resolve("tasks.json"), shards);
+        storage.save(tasks);
+        change = Map.of(tasks.get(size / 2).getId(), ChangeType.UPDATE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        TaskDataset.delete(directory);
+    }
+
+    @Benchmark
+    public Map<Integer, Task> load() {
+        Map<Integer, Task> loaded = new HashMap<>(size * 2);
+        storage.load(loaded);
+        return loaded;
+    }
+
+    @Benchmark
+    public void saveOneChange() {
+        storage.save(tasks, change);
+    }
+}
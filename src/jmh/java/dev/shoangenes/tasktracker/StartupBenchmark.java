@@ -0,0 +1,92 @@
+package dev.shoangenes.tasktracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the wall-clock time of a whole CLI run, from launching the JVM to its exit, with and without the
+ * AppCDS archive shipped by installDist. Every invocation starts a fresh JVM of the installed application,
+ * run 'gradle installDist' first; another install directory can be given with -Dtasktracker.install=<dir>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 20)
+@Fork(1)
+public class StartupBenchmark {
+    @Param({"list todo", "mark-done 1"})
+    String command;
+
+    @Param({"false", "true"})
+    boolean archive;
+
+    @Param({"100"})
+    int size;
+
+    private Path directory;
+    private List<String> commandLine;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Path install = Path.of(System.getProperty("tasktracker.install", "build/install/task-tracker")).toAbsolutePath();
+        Path jar = install.resolve("lib/task-tracker-1.0-SNAPSHOT.jar");
+        Path sharedArchive = install.resolve("lib/task-tracker.jsa");
+        if (!Files.exists(jar) || archive && !Files.exists(sharedArchive)) {
+            throw new IllegalStateException("No installed application with its archive in " + install
+                    + ", run 'gradle installDist' first");
+        }
+        directory = TaskDataset.createTempDirectory();
+        try {
+            Files.createDirectories(directory.resolve("task-tracker"));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        TaskDataset.writeJson(directory.resolve("task-tracker"), size, 32);
+
+        // The launcher script's options, the archive left out when measuring without it
+        commandLine = new ArrayList<>(List.of(Path.of(System.getProperty("java.home"), "bin", "java").toString()));
+        commandLine.add(archive ? "-XX:SharedArchiveFile=" + sharedArchive : "-Xshare:auto");
+        commandLine.addAll(List.of("-Xlog:cds=off", "-Xlog:cds+dynamic=off", "-cp", jar.toString(),
+                "dev.shoangenes.tasktracker.TaskManagerCLI"));
+        commandLine.addAll(Arrays.asList(command.split(" ")));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        TaskDataset.delete(directory);
+    }
+
+    @Benchmark
+    public int runCommand() throws IOException, InterruptedException {
+        ProcessBuilder builder = new ProcessBuilder(commandLine)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT);
+        builder.environment().put("XDG_CONFIG_HOME", directory.toString());
+        builder.environment().put("APPDATA", directory.toString());
+        int exitCode = builder.start().waitFor();
+        if (exitCode != 0) {
+            throw new IllegalStateException("'" + command + "' exited with " + exitCode);
+        }
+        return exitCode;
+    }
+}
@@ -0,0 +1,61 @@
+package dev.shoangenes.tasktracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading and saving a whole JSON store.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class StorageBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    @Param({"32", "256"})
+    int descriptionLength;
+
+    private Path directory;
+    private TaskManager manager;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        directory = TaskDataset.createTempDirectory();
+        manager = new TaskManager(new JsonTaskStorage(TaskDataset.writeJson(directory, size, descriptionLength)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        manager.close();
+        TaskDataset.delete(directory);
+    }
+
+    @Benchmark
+    public HashMap<Integer, Task> readTasksFromJson() {
+        return manager.readTasksFromJson();
+    }
+
+    @Benchmark
+    public void writeTasksToJson() {
+        manager.writeTasksToJson();
+    }
+}
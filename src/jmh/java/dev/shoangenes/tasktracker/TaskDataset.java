@@ -0,0 +1,112 @@
+package dev.shoangenes.tasktracker;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generates reproducible synthetic task stores for the benchmarks.
+ * The same size, description length and seed always produce the same tasks, so runs before and after a change
+ * measure the same data.
+ */
+final class TaskDataset {
+    static final long DEFAULT_SEED = 42;
+
+    private static final String[] WORDS = {
+            "fix", "review", "deploy", "write", "call", "buy", "plan", "test", "release", "update",
+            "report", "meeting", "groceries", "invoice", "backup", "server", "docs", "design", "bug", "team"
+    };
+    private static final Status[] STATUSES = Status.values();
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private TaskDataset() {
+    }
+
+    /**
+     * Generates tasks with IDs from 1 to the given size.
+     * Statuses are spread evenly, creation times grow with the ID and some tasks were updated after creation.
+     *
+     * @param size the number of tasks
+     * @param descriptionLength the length of every description
+     * @param seed the seed of the generator
+     * @return the generated tasks, in ID order
+     */
+    static List<Task> generate(int size, int descriptionLength, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Task> tasks = new ArrayList<>(size);
+        for (int id = 1; id <= size; id++) {
+            LocalDateTime createdAt = START.plusMinutes(id);
+            LocalDateTime updatedAt = random.nextInt(4) == 0 ? createdAt.plusHours(random.nextInt(1, 500)) : createdAt;
+            tasks.add(Task.restore(id, description(random, descriptionLength), STATUSES[random.nextInt(STATUSES.length)],
+                    createdAt, updatedAt));
+        }
+        return tasks;
+    }
+
+    /**
+     * Generates a description of words, with a quote now and then so the JSON escaping path is exercised.
+     *
+     * @param random the generator to draw words from
+     * @param length the exact length of the description
+     * @return the description
+     */
+    static String description(SplittableRandom random, int length) {
+        StringBuilder description = new StringBuilder(length + 16);
+        while (description.length() < length) {
+            if (!description.isEmpty()) {
+                description.append(random.nextInt(32) == 0 ? " \"" : " ");
+            }
+            description.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        description.setLength(length);
+        return description.toString();
+    }
+
+    /**
+     * Writes a generated store as tasks.json into the given directory.
+     *
+     * @param directory the directory receiving the file
+     * @param size the number of tasks
+     * @param descriptionLength the length of every description
+     * @return the path of the written file
+     */
+    static Path writeJson(Path directory, int size, int descriptionLength) {
+        Path file = directory.resolve("tasks.json");
+        JsonTaskStorage.writeTasks(file, generate(size, descriptionLength, DEFAULT_SEED));
+        return file;
+    }
+
+    /**
+     * Creates a temporary directory for a benchmark store.
+     *
+     * @return the created directory
+     */
+    static Path createTempDirectory() {
+        try {
+            return Files.createTempDirectory("task-tracker-jmh");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Deletes a directory created by {@link #createTempDirectory()} and its files.
+     *
+     * @param directory the directory to delete
+     */
+    static void delete(Path directory) {
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package dev.shoangenes.tasktracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the JSON encoding and decoding of a single task.
+ * The cost does not depend on the size of the store, so only the description length is a parameter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskJsonBenchmark {
+    @Param({"32", "256", "4096"})
+    int descriptionLength;
+
+    private Task task;
+    private String json;
+
+    @Setup
+    public void setUp() {
+        task = TaskDataset.generate(1, descriptionLength, TaskDataset.DEFAULT_SEED).get(0);
+        json = task.toJson();
+    }
+
+    @Benchmark
+    public String toJson() {
+        return task.toJson();
+    }
+
+    @Benchmark
+    public Task fromJson() {
+        return Task.fromJson(json);
+    }
+}
@@ -0,0 +1,166 @@
+package dev.shoangenes.tasktracker;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies a stream of commands, one per line, in a single process.
+ * Every line uses the syntax of the command line, with double or single quotes grouping words and a backslash
+ * escaping the next character. Blank lines and lines starting with '#' are skipped.
+ *
+ * A failing line is reported with its number and the run goes on with the next one. The changes are persisted
+ * by the checkpoint every given number of commands and once at the end.
+ */
+class BatchRunner {
+    /**
+     * Executes one parsed command, writing its output to the given stream.
+     */
+    @FunctionalInterface
+    interface CommandExecutor {
+        void execute(String[] args, PrintStream out);
+    }
+
+    private final CommandExecutor executor;
+    private final Runnable checkpoint;
+    private final int saveEvery;
+
+    /**
+     * Creates a runner.
+     *
+     * @param executor the executor applying each command
+     * @param checkpoint the action persisting the changes applied so far
+     * @param saveEvery the number of commands between checkpoints, or 0 to persist only at the end
+     */
+    BatchRunner(CommandExecutor executor, Runnable checkpoint, int saveEvery) {
+        this.executor = executor;
+        this.checkpoint = checkpoint;
+        this.saveEvery = saveEvery;
+    }
+
+    /**
+     * Runs every command read from the input.
+     * A command counts as failed when it throws or when its output reports an error or its usage.
+     *
+     * @param in the commands, one per line
+     * @param out the stream receiving the output of the commands and the errors
+     * @return the result of the run
+     * @throws IOException if the input cannot be read
+     */
+    Result run(BufferedReader in, PrintStream out) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        PrintStream commandOut = new PrintStream(buffer, false, StandardCharsets.UTF_8);
+        int applied = 0;
+        int failed = 0;
+        int lineNumber = 0;
+        String line;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            String trimmed = line.strip();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+
+            buffer.reset();
+            boolean failure;
+            try {
+                executor.execute(splitArguments(trimmed), commandOut);
+                commandOut.flush();
+                String output = buffer.toString(StandardCharsets.UTF_8);
+                failure = isFailure(output);
+                if (failure) {
+                    out.print("Line " + lineNumber + ": " + output);
+                } else {
+                    out.print(output);
+                }
+            } catch (IllegalArgumentException | TaskStorageException e) {
+                failure = true;
+                out.println("Line " + lineNumber + ": Error: " + e.getMessage());
+            }
+
+            if (failure) {
+                failed++;
+            } else {
+                applied++;
+                if (saveEvery > 0 && applied % saveEvery == 0) {
+                    checkpoint.run();
+                }
+            }
+        }
+        checkpoint.run();
+        return new Result(applied, failed);
+    }
+
+    /**
+     * Checks whether the output of a command reports a failure, following the messages of TaskManagerCLI.
+     *
+     * @param output the output of the command
+     * @return true if the command failed
+     */
+    private static boolean isFailure(String output) {
+        return output.startsWith("Error:") || output.startsWith("Usage:") || output.startsWith("Unknown command")
+                || output.startsWith("Fatal error:");
+    }
+
+    /**
+     * Splits a line into arguments like a shell would, without any expansion.
+     *
+     * @param line the line to split
+     * @return the arguments
+     * @throws IllegalArgumentException if a quote is not closed or the line ends with a backslash
+     */
+    static String[] splitArguments(String line) {
+        List<String> arguments = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean inArgument = false;
+        char quote = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\\' && quote != '\'') {
+                if (++i == line.length()) {
+                    throw new IllegalArgumentException("Trailing backslash");
+                }
+                current.append(line.charAt(i));
+                inArgument = true;
+            } else if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+                inArgument = true;
+            } else if (Character.isWhitespace(c)) {
+                if (inArgument) {
+                    arguments.add(current.toString());
+                    current.setLength(0);
+                    inArgument = false;
+                }
+            } else {
+                current.append(c);
+                inArgument = true;
+            }
+        }
+        if (quote != 0) {
+            throw new IllegalArgumentException("Unclosed " + quote + " quote");
+        }
+        if (inArgument) {
+            arguments.add(current.toString());
+        }
+        return arguments.toArray(String[]::new);
+    }
+
+    /**
+     * The outcome of a run.
+     *
+     * @param applied the number of commands applied
+     * @param failed the number of commands that failed
+     */
+    record Result(int applied, int failed) {
+    }
+}
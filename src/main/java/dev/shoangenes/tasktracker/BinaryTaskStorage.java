@@ -0,0 +1,218 @@
+package dev.shoangenes.tasktracker;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Storage keeping tasks in a compact binary file, tasks.bin, next to tasks.json.
+ * The file is memory-mapped on load and tasks are decoded lazily through MappedTaskSource.
+ * Saves go through CheckedFile like the JSON storage, keeping tasks.bin.crc and the previous generation in
+ * tasks.bin.bak. Opening the store for lazy decoding only checks the recorded length, so a truncated file or an
+ * interrupted save falls back to the backup without reading the whole file, while a full load checks the CRC.
+ *
+ * Layout, big-endian:
+ * <pre>
+ * header:  int magic, int version, int count, int maxId, int indexOffset
+ * records: int id, byte status, long createdAt, long updatedAt (epoch millis, UTC), int length, UTF-8 description
+ * index:   count x (int id, int record offset), sorted by id
+ * </pre>
+ */
+public class BinaryTaskStorage implements TaskStorage {
+    static final int MAGIC = 0x54544B42; // "TTKB"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 20;
+    static final int RECORD_HEADER_SIZE = 25;
+    static final int INDEX_ENTRY_SIZE = 8;
+
+    private final Path filePath;
+    // Source handed to the manager, its untouched records are copied as-is on save
+    private MappedTaskSource source;
+
+    public BinaryTaskStorage(Path filePath) {
+        this.filePath = filePath;
+    }
+
+    /**
+     * Returns the path of the binary file that sits next to the given tasks.json file.
+     *
+     * @param jsonPath the path of tasks.json
+     * @return the path of tasks.bin
+     */
+    public static Path binaryPathFor(Path jsonPath) {
+        return jsonPath.resolveSibling("tasks.bin");
+    }
+
+    @Override
+    public Path getFilePath() {
+        return filePath;
+    }
+
+    /**
+     * Loads and materialises every stored task.
+     *
+     * @param tasks the map receiving the tasks with their IDs as keys
+     */
+    @Override
+    public void load(Map<Integer, Task> tasks) {
+        readTasks(filePath, task -> tasks.put(task.getId(), task), tasks::clear);
+    }
+
+    /**
+     * Maps the binary file so that tasks are decoded only when the manager touches them.
+     *
+     * @return a TaskSource over the mapped file
+     */
+    @Override
+    public synchronized TaskSource openSource() {
+        source = null;
+        if (CheckedFile.isCurrent(filePath)) {
+            try {
+                source = MappedTaskSource.open(filePath);
+            } catch (TaskStorageException e) {
+                // Damaged despite its length, the checked read below picks the valid generation
+            }
+        }
+        if (source == null) {
+            MappedTaskSource[] opened = {null};
+            CheckedFile.readFile(filePath, file -> opened[0] = MappedTaskSource.open(file), () -> {});
+            // Without any generation the missing file opens as an empty store
+            source = opened[0] != null ? opened[0] : MappedTaskSource.open(filePath);
+        }
+        Task.advanceLastId(source.getMaxId());
+        return source;
+    }
+
+    /**
+     * Writes the given tasks, together with the records the manager never took from the mapped source,
+     * to a temporary file that then replaces tasks.bin.
+     * The source is detached from the mapped file first, since the file becomes the backup generation.
+     *
+     * @param tasks every task materialised by the manager
+     */
+    @Override
+    public synchronized void save(Collection<Task> tasks) {
+        if (source != null) {
+            source.detach();
+        }
+        CheckedFile.writeFile(filePath, file -> write(file, tasks, source));
+    }
+
+    /**
+     * Converts a tasks.json file into the binary format.
+     *
+     * @param jsonPath the JSON file to read
+     * @param binaryPath the binary file to write
+     * @return the number of converted tasks
+     */
+    public static int convertJsonToBinary(Path jsonPath, Path binaryPath) {
+        HashMap<Integer, Task> storedTask = new HashMap<>();
+        JsonTaskStorage.readTasks(jsonPath, storedTask);
+        CheckedFile.writeFile(binaryPath, file -> write(file, storedTask.values(), null));
+        return storedTask.size();
+    }
+
+    /**
+     * Converts a binary tasks file back into JSON, which stays the interchange format.
+     *
+     * @param binaryPath the binary file to read
+     * @param jsonPath the JSON file to write
+     * @return the number of converted tasks
+     */
+    public static int convertBinaryToJson(Path binaryPath, Path jsonPath) {
+        List<Task> storedTask = new ArrayList<>();
+        readTasks(binaryPath, storedTask::add, storedTask::clear);
+        JsonTaskStorage.writeTasks(jsonPath, storedTask);
+        return storedTask.size();
+    }
+
+    /**
+     * Decodes every task of the latest valid generation of a binary tasks file and unmaps it.
+     */
+    private static void readTasks(Path path, Consumer<Task> action, Runnable reset) {
+        CheckedFile.readFile(path, file -> {
+            MappedTaskSource read = MappedTaskSource.open(file);
+            try {
+                read.forEach(action);
+            } finally {
+                read.close();
+            }
+        }, reset);
+    }
+
+    /**
+     * Writes a binary tasks file merging the given tasks with the remaining records of a source, in ID order.
+     */
+    private static void write(Path path, Collection<Task> tasks, MappedTaskSource source) throws IOException {
+        Task[] sorted = tasks.toArray(new Task[0]);
+        Arrays.sort(sorted, Comparator.comparingInt(Task::getId));
+        List<int[]> index = new ArrayList<>();
+
+        int indexOffset;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.write(new byte[HEADER_SIZE]);
+            int[] next = {0};
+            if (source != null) {
+                source.forEachRecord((id, record) -> {
+                    while (next[0] < sorted.length && sorted[next[0]].getId() < id) {
+                        index.add(new int[]{sorted[next[0]].getId(), out.size()});
+                        writeRecord(out, sorted[next[0]++]);
+                    }
+                    index.add(new int[]{id, out.size()});
+                    out.write(record);
+                });
+            }
+            while (next[0] < sorted.length) {
+                index.add(new int[]{sorted[next[0]].getId(), out.size()});
+                writeRecord(out, sorted[next[0]++]);
+            }
+            indexOffset = out.size();
+            if (indexOffset < 0 || (long) indexOffset + (long) index.size() * INDEX_ENTRY_SIZE > Integer.MAX_VALUE) {
+                throw new TaskStorageException("Too many tasks for the binary format");
+            }
+            for (int[] entry : index) {
+                out.writeInt(entry[0]);
+                out.writeInt(entry[1]);
+            }
+        }
+
+        int maxId = Task.getLastIdSaved();
+        if (source != null) {
+            maxId = Math.max(maxId, source.getMaxId());
+        }
+        if (sorted.length > 0) {
+            maxId = Math.max(maxId, sorted[sorted.length - 1].getId());
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC).putInt(VERSION).putInt(index.size()).putInt(maxId).putInt(indexOffset)
+                .flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(header, 0);
+            channel.force(true);
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, Task task) throws IOException {
+        byte[] description = task.getDescription().getBytes(StandardCharsets.UTF_8);
+        out.writeInt(task.getId());
+        out.writeByte(task.getStatus().ordinal());
+        out.writeLong(Task.toEpochMillis(task.getCreatedAt()));
+        out.writeLong(Task.toEpochMillis(task.getUpdatedAt()));
+        out.writeInt(description.length);
+        out.write(description);
+    }
+}
@@ -0,0 +1,92 @@
+package dev.shoangenes.tasktracker;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The IDs of the tasks changed since the last save, with how each one changed.
+ * Successive changes of a task are coalesced: an added task stays ADD until it is deleted, otherwise the
+ * latest change wins. A deletion is kept even for a task added since the last save, since that save may
+ * still be writing the task.
+ *
+ * Changes recorded while a save is running stay pending: a save takes a snapshot and afterwards clears only
+ * the entries that were not changed again in the meantime.
+ */
+class ChangeSet {
+    private record Pending(ChangeType type, long sequence) {
+    }
+
+    private final ConcurrentHashMap<Integer, Pending> pending = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Records a change applied to a task.
+     *
+     * @param change the change that was applied
+     */
+    void record(TaskChange change) {
+        Pending next = new Pending(change.type(), sequence.incrementAndGet());
+        pending.merge(change.id(), next, (previous, current) ->
+                previous.type() == ChangeType.ADD && current.type() != ChangeType.DELETE
+                        ? new Pending(ChangeType.ADD, current.sequence())
+                        : current);
+    }
+
+    /**
+     * Checks if any change is pending.
+     *
+     * @return true if nothing changed since the last save
+     */
+    boolean isEmpty() {
+        return pending.isEmpty();
+    }
+
+    /**
+     * Takes a snapshot of the pending changes, to be passed to clear() once they are persisted.
+     *
+     * @return the pending changes
+     */
+    Snapshot snapshot() {
+        return new Snapshot(new HashMap<>(pending));
+    }
+
+    /**
+     * Clears the changes of a snapshot that were not changed again after it was taken.
+     *
+     * @param snapshot the persisted snapshot
+     */
+    void clear(Snapshot snapshot) {
+        snapshot.entries.forEach(pending::remove);
+    }
+
+    /**
+     * The changes pending at a point in time.
+     */
+    static final class Snapshot {
+        private final Map<Integer, Pending> entries;
+        private final Map<Integer, ChangeType> changes;
+
+        private Snapshot(Map<Integer, Pending> entries) {
+            this.entries = entries;
+            Map<Integer, ChangeType> changes = new HashMap<>(entries.size() * 2);
+            entries.forEach((id, entry) -> changes.put(id, entry.type()));
+            this.changes = Collections.unmodifiableMap(changes);
+        }
+
+        boolean isEmpty() {
+            return entries.isEmpty();
+        }
+
+        /**
+         * Returns the changed IDs with their coalesced change.
+         *
+         * @return an unmodifiable map from task ID to change
+         */
+        Map<Integer, ChangeType> changes() {
+            return changes;
+        }
+    }
+}
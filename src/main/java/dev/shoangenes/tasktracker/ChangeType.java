@@ -0,0 +1,5 @@
+package dev.shoangenes.tasktracker;
+
+public enum ChangeType {
+    ADD, UPDATE, DELETE, MARK_DONE, MARK_IN_PROGRESS
+}
@@ -0,0 +1,373 @@
+package dev.shoangenes.tasktracker;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Crash-safe replacement of a file, keeping the previous generation as a fallback.
+ *
+ * A write goes to a temporary file and its CRC32 and length to a temporary checksum file, both forced to disk.
+ * The current file and its checksum then become the backup generation (name.bak, name.bak.crc) and the
+ * temporary files are renamed into place. A file is valid when its checksum and length match one of the
+ * checksum files present, so every intermediate state left by a crash still has a valid generation.
+ * Files written before checksums existed have no checksum file at all and are trusted as long as they parse.
+ *
+ * A read tries the current file and then the backup, and moves a damaged current file aside to name.corrupt
+ * so the next write does not rotate it over the good backup. A missing current file only falls back to the
+ * backup when the temporary checksum file shows a write was interrupted.
+ */
+final class CheckedFile {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Writes the content of a file.
+     */
+    @FunctionalInterface
+    interface ContentWriter {
+        void write(Writer writer) throws IOException;
+    }
+
+    /**
+     * Writes the content of a file given by its path and forces it to disk.
+     */
+    @FunctionalInterface
+    interface FileContentWriter {
+        void write(Path file) throws IOException;
+    }
+
+    /**
+     * Parses the content of a file, throwing TaskStorageException if it is malformed.
+     */
+    @FunctionalInterface
+    interface ContentReader {
+        void read(Reader reader) throws IOException;
+    }
+
+    /**
+     * Parses a file given by its path, throwing TaskStorageException if it is malformed.
+     */
+    @FunctionalInterface
+    interface FileParser {
+        void parse(Path file) throws IOException;
+    }
+
+    /**
+     * Called after each step of a write, used by tests to simulate a crash between two steps.
+     */
+    @FunctionalInterface
+    interface StepListener {
+        void afterStep(int step) throws IOException;
+    }
+
+    private CheckedFile() {
+    }
+
+    static Path backupPath(Path path) {
+        return path.resolveSibling(path.getFileName() + ".bak");
+    }
+
+    static Path checksumPath(Path path) {
+        return path.resolveSibling(path.getFileName() + ".crc");
+    }
+
+    static Path corruptPath(Path path) {
+        return path.resolveSibling(path.getFileName() + ".corrupt");
+    }
+
+    private static Path tempPath(Path path) {
+        return path.resolveSibling(path.getFileName() + ".tmp");
+    }
+
+    /**
+     * Replaces the file with the written content, keeping the current content as the backup generation.
+     *
+     * @param path the file to replace
+     * @param content the writer of the new content
+     * @throws TaskStorageException if the file cannot be written
+     */
+    static void write(Path path, ContentWriter content) {
+        write(path, content, step -> {});
+    }
+
+    /**
+     * Replaces the file with the written content, notifying the listener after each step.
+     *
+     * @param path the file to replace
+     * @param content the writer of the new content
+     * @param listener the listener called with the number of the step just completed
+     * @throws TaskStorageException if the file cannot be written
+     */
+    static void write(Path path, ContentWriter content, StepListener listener) {
+        Path tempPath = tempPath(path);
+        try {
+            CRC32 crc = new CRC32();
+            long length;
+            try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                CheckedOutputStream out = new CheckedOutputStream(Channels.newOutputStream(channel), crc);
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+                content.write(writer);
+                writer.flush();
+                length = channel.size();
+                channel.force(true);
+            }
+            listener.afterStep(1);
+            replace(path, crc.getValue(), length, listener);
+        } catch (IOException e) {
+            throw new TaskStorageException("Error writing " + path.getFileName(), e);
+        }
+    }
+
+    /**
+     * Replaces the file with content written by path, for formats that are not written as one text stream.
+     * The checksum is computed by reading the written file back.
+     *
+     * @param path the file to replace
+     * @param content the writer of the new content, given the temporary file
+     * @throws TaskStorageException if the file cannot be written
+     * @see #write(Path, ContentWriter)
+     */
+    static void writeFile(Path path, FileContentWriter content) {
+        Path tempPath = tempPath(path);
+        try {
+            content.write(tempPath);
+            CRC32 crc = new CRC32();
+            long length = digest(tempPath, crc);
+            replace(path, crc.getValue(), length, step -> {});
+        } catch (IOException e) {
+            throw new TaskStorageException("Error writing " + path.getFileName(), e);
+        }
+    }
+
+    /**
+     * Records the checksum of the written temporary file and renames it into place, steps 2 to 6 of a write.
+     */
+    private static void replace(Path path, long crc, long length, StepListener listener) throws IOException {
+        Path tempPath = tempPath(path);
+        Path checksumPath = checksumPath(path);
+        Path tempChecksumPath = tempPath(checksumPath);
+        Path backupPath = backupPath(path);
+        writeChecksum(tempChecksumPath, crc, length);
+        listener.afterStep(2);
+        if (Files.exists(path)) {
+            Files.move(path, backupPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            listener.afterStep(3);
+            if (Files.exists(checksumPath)) {
+                Files.move(checksumPath, checksumPath(backupPath), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } else {
+                // The backup comes from a version without checksums, an older checksum would not match it
+                Files.deleteIfExists(checksumPath(backupPath));
+            }
+            listener.afterStep(4);
+        }
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        listener.afterStep(5);
+        Files.move(tempChecksumPath, checksumPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        listener.afterStep(6);
+        forceDirectory(path);
+    }
+
+    /**
+     * Reads the latest valid generation of the file.
+     * Nothing is read if no generation exists. If the current file is damaged it is moved aside and the backup
+     * is read instead, with a warning.
+     *
+     * @param path the file to read
+     * @param content the parser of the content
+     * @param reset the action discarding what a failed parse produced before the next generation is tried
+     * @throws TaskStorageException if generations exist but none of them is valid
+     */
+    static void read(Path path, ContentReader content, Runnable reset) {
+        readFile(path, file -> {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                content.read(reader);
+            }
+        }, reset);
+    }
+
+    /**
+     * Reads the latest valid generation of the file, letting the parser open the file itself.
+     *
+     * @param path the file to read
+     * @param parser the parser of the generation, given its path
+     * @param reset the action discarding what a failed parse produced before the next generation is tried
+     * @throws TaskStorageException if generations exist but none of them is valid
+     * @see #read(Path, ContentReader, Runnable)
+     */
+    static void readFile(Path path, FileParser parser, Runnable reset) {
+        Set<Long> checksums = knownChecksums(path);
+        Path backupPath = backupPath(path);
+        String failure = null;
+        // Without the current file the backup is only read when a write was interrupted between its renames,
+        // a file deleted on purpose stays deleted
+        boolean interrupted = Files.exists(tempPath(checksumPath(path)));
+        for (Path candidate : List.of(path, backupPath)) {
+            if (!Files.exists(candidate) || candidate == backupPath && failure == null && !interrupted) {
+                continue;
+            }
+            try {
+                if (!checksums.isEmpty() && !checksums.contains(checksumOf(candidate))) {
+                    throw new TaskStorageException("checksum mismatch in " + candidate.getFileName());
+                }
+                parser.parse(candidate);
+            } catch (TaskStorageException | IOException e) {
+                reset.run();
+                if (failure == null) {
+                    failure = e.getMessage();
+                }
+                continue;
+            }
+            if (failure != null) {
+                System.err.println("Warning: " + failure + ", loaded the previous generation " + candidate
+                        + " and moved the damaged file to " + corruptPath(path));
+                try {
+                    Files.move(path, corruptPath(path), StandardCopyOption.REPLACE_EXISTING);
+                } catch (IOException e) {
+                    throw new TaskStorageException("Error moving the damaged " + path.getFileName() + " aside", e);
+                }
+            }
+            return;
+        }
+        if (failure != null) {
+            throw new TaskStorageException("No valid generation of " + path + " could be read: " + failure);
+        }
+    }
+
+    /**
+     * Reads every checksum file that may describe a generation of the file, including the one of an
+     * interrupted write.
+     */
+    private static Set<Long> knownChecksums(Path path) {
+        Set<Long> checksums = new HashSet<>();
+        Path checksumPath = checksumPath(path);
+        for (Path file : List.of(checksumPath, tempPath(checksumPath), checksumPath(backupPath(path)))) {
+            Long checksum = readChecksum(file);
+            if (checksum != null) {
+                checksums.add(checksum);
+            }
+        }
+        return checksums;
+    }
+
+    /**
+     * Returns the checksum recorded for the current generation of the file, without reading the file.
+     * A file can be trusted to match it only while no write is in progress, as a write replaces the file first.
+     *
+     * @param path the file whose checksum is wanted
+     * @return the checksum combined with the length, or null if none is recorded or a write was interrupted
+     */
+    static Long currentChecksum(Path path) {
+        if (Files.exists(tempPath(checksumPath(path)))) {
+            return null;
+        }
+        return readChecksum(checksumPath(path));
+    }
+
+    /**
+     * Tells whether the file is the complete current generation, judging by its length alone.
+     * This catches truncated files and interrupted writes without reading the content, for formats that are
+     * mapped rather than parsed and would lose their fast startup to a full read.
+     *
+     * @param path the file to check
+     * @return true if a checksum is recorded, no write was interrupted and the file has the recorded length
+     */
+    static boolean isCurrent(Path path) {
+        if (Files.exists(tempPath(checksumPath(path)))) {
+            return false;
+        }
+        long[] fields = readChecksumFields(checksumPath(path));
+        try {
+            return fields != null && Files.size(path) == fields[1];
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static Long readChecksum(Path file) {
+        long[] fields = readChecksumFields(file);
+        return fields == null ? null : combine(fields[0], fields[1]);
+    }
+
+    /**
+     * Reads the CRC32 and the length recorded in a checksum file.
+     */
+    private static long[] readChecksumFields(Path file) {
+        try {
+            String[] fields = Files.readString(file, StandardCharsets.US_ASCII).trim().split(" ");
+            if (fields.length == 2) {
+                return new long[]{Long.parseLong(fields[0], 16), Long.parseLong(fields[1])};
+            }
+        } catch (NoSuchFileException e) {
+            // This generation has no checksum
+        } catch (IOException | NumberFormatException e) {
+            // A damaged checksum file matches no content
+        }
+        return null;
+    }
+
+    private static long checksumOf(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        long length = digest(file, crc);
+        return combine(crc.getValue(), length);
+    }
+
+    /**
+     * Feeds the whole file to the CRC.
+     *
+     * @return the length of the file
+     */
+    private static long digest(Path file, CRC32 crc) throws IOException {
+        long length = 0;
+        try (InputStream in = new CheckedInputStream(Files.newInputStream(file), crc)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                length += read;
+            }
+        }
+        return length;
+    }
+
+    private static long combine(long crc, long length) {
+        return crc ^ (length << 32);
+    }
+
+    private static void writeChecksum(Path path, long crc, long length) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(StandardCharsets.US_ASCII.encode(Long.toHexString(crc) + " " + length + "\n"));
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Forces the renames to disk, where the platform allows opening a directory.
+     */
+    private static void forceDirectory(Path path) {
+        Path directory = path.toAbsolutePath().getParent();
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Not supported on every platform, the renames are still atomic
+        }
+    }
+}
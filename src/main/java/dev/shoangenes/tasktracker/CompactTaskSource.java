@@ -0,0 +1,274 @@
+package dev.shoangenes.tasktracker;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * TaskSource keeping the tasks of tasks.json in memory as columns instead of Task objects.
+ * A task takes an int ID, two long timestamps in epoch millis, a status byte and an int reference to its
+ * description, about 25 bytes, where a Task costs a header, two LocalDateTime objects with their LocalDate and
+ * LocalTime, and a String, about 250 bytes. Descriptions are stored once as UTF-8 in a shared byte array,
+ * so the many tasks sharing a description share its bytes. A Task, with its LocalDateTime timestamps, is only
+ * built when the manager touches the task.
+ *
+ * Timestamps are kept to the millisecond, like tasks.bin, so a task never touched is saved back without its
+ * sub-millisecond digits.
+ */
+class CompactTaskSource implements TaskSource {
+    private static final Status[] STATUSES = Status.values();
+
+    // Columns sorted by ID, one slot per task
+    private final int[] ids;
+    private final long[] createdAt;
+    private final long[] updatedAt;
+    private final byte[] statuses;
+    private final int[] descriptionOf;
+    // Distinct descriptions, description i spans text[textOffsets[i]] to text[textOffsets[i + 1]]
+    private final byte[] text;
+    private final int[] textOffsets;
+    private final int count;
+    private final int maxId;
+    // Slots of the tasks that were taken or removed
+    private final BitSet released;
+    private int remaining;
+
+    private CompactTaskSource(Builder builder) {
+        this.count = builder.count;
+        this.ids = Arrays.copyOf(builder.ids, count);
+        this.createdAt = Arrays.copyOf(builder.createdAt, count);
+        this.updatedAt = Arrays.copyOf(builder.updatedAt, count);
+        this.statuses = Arrays.copyOf(builder.statuses, count);
+        this.descriptionOf = Arrays.copyOf(builder.descriptionOf, count);
+        this.text = Arrays.copyOf(builder.text, builder.textLength);
+        this.textOffsets = Arrays.copyOf(builder.textOffsets, builder.descriptions.size() + 1);
+        this.maxId = count == 0 ? 0 : ids[count - 1];
+        this.released = new BitSet(count);
+        this.remaining = count;
+    }
+
+    /**
+     * Reads the tasks of a JSON file into a new source, one task at a time, so the Task objects parsed from the
+     * file never pile up. A missing file gives an empty source.
+     *
+     * @param path the JSON file to read
+     * @return a new CompactTaskSource
+     * @throws TaskStorageException if the file and its previous generation are both damaged
+     */
+    static CompactTaskSource read(Path path) {
+        long start = Metrics.JSON_READ.start();
+        Builder builder = new Builder();
+        CheckedFile.read(path, reader -> {
+            try (TaskJsonReader json = new TaskJsonReader(reader)) {
+                json.readTasks(builder::add);
+            }
+        }, builder::clear);
+        CompactTaskSource source = builder.build();
+        Metrics.JSON_READ.stop(start);
+        return source;
+    }
+
+    /**
+     * Returns the highest ID held by the source.
+     *
+     * @return the highest ID
+     */
+    int getMaxId() {
+        return maxId;
+    }
+
+    /**
+     * Returns the number of bytes held by the columns and the description text.
+     *
+     * @return the approximate size of the source, without object headers
+     */
+    long footprint() {
+        return (long) count * (Integer.BYTES * 2 + Long.BYTES * 2 + 1) + text.length
+                + (long) textOffsets.length * Integer.BYTES + released.size() / 8;
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return remaining == 0;
+    }
+
+    @Override
+    public synchronized Task take(int id) {
+        int slot = slotOf(id);
+        if (slot < 0) {
+            return null;
+        }
+        release(slot);
+        return decode(slot);
+    }
+
+    @Override
+    public synchronized boolean remove(int id) {
+        int slot = slotOf(id);
+        if (slot < 0) {
+            return false;
+        }
+        release(slot);
+        return true;
+    }
+
+    @Override
+    public synchronized void forEach(Consumer<Task> action) {
+        for (int slot = released.nextClearBit(0); slot < count; slot = released.nextClearBit(slot + 1)) {
+            action.accept(decode(slot));
+        }
+    }
+
+    @Override
+    public synchronized void forEachHeader(HeaderConsumer action) {
+        for (int slot = released.nextClearBit(0); slot < count; slot = released.nextClearBit(slot + 1)) {
+            action.accept(ids[slot], STATUSES[statuses[slot]], createdAt[slot], updatedAt[slot]);
+        }
+    }
+
+    /**
+     * Passes every task still held by the source, in ID order, to an action writing it.
+     * Used by JsonTaskStorage to save the untouched tasks, every Task is dropped once written.
+     *
+     * @param action the action receiving each task
+     */
+    synchronized void forEachRecord(RecordConsumer action) throws IOException {
+        for (int slot = released.nextClearBit(0); slot < count; slot = released.nextClearBit(slot + 1)) {
+            action.accept(decode(slot));
+        }
+    }
+
+    interface RecordConsumer {
+        void accept(Task task) throws IOException;
+    }
+
+    private void release(int slot) {
+        released.set(slot);
+        remaining--;
+    }
+
+    /**
+     * Binary searches the IDs for the given ID.
+     *
+     * @return the slot of the task, or -1 if it is not held by the source
+     */
+    private int slotOf(int id) {
+        int slot = Arrays.binarySearch(ids, 0, count, id);
+        return slot < 0 || released.get(slot) ? -1 : slot;
+    }
+
+    private Task decode(int slot) {
+        int description = descriptionOf[slot];
+        int start = textOffsets[description];
+        return Task.restore(ids[slot], new String(text, start, textOffsets[description + 1] - start, StandardCharsets.UTF_8),
+                STATUSES[statuses[slot]], Task.fromEpochMillis(createdAt[slot]), Task.fromEpochMillis(updatedAt[slot]));
+    }
+
+    /**
+     * Collects the columns while the file is read. Tasks arrive in file order, which is ID order for files
+     * written by the storages, and are sorted by build() otherwise.
+     */
+    private static class Builder {
+        private int[] ids = new int[1024];
+        private long[] createdAt = new long[1024];
+        private long[] updatedAt = new long[1024];
+        private byte[] statuses = new byte[1024];
+        private int[] descriptionOf = new int[1024];
+        private byte[] text = new byte[16 * 1024];
+        private int[] textOffsets = new int[1024];
+        private int count;
+        private int textLength;
+        private boolean sorted = true;
+        // Slot of every distinct description, only kept while reading
+        private final Map<String, Integer> descriptions = new HashMap<>();
+
+        void add(Task task) {
+            if (count == ids.length) {
+                int capacity = count * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                createdAt = Arrays.copyOf(createdAt, capacity);
+                updatedAt = Arrays.copyOf(updatedAt, capacity);
+                statuses = Arrays.copyOf(statuses, capacity);
+                descriptionOf = Arrays.copyOf(descriptionOf, capacity);
+            }
+            sorted &= count == 0 || ids[count - 1] < task.getId();
+            ids[count] = task.getId();
+            createdAt[count] = Task.toEpochMillis(task.getCreatedAt());
+            updatedAt[count] = Task.toEpochMillis(task.getUpdatedAt());
+            statuses[count] = (byte) task.getStatus().ordinal();
+            descriptionOf[count] = descriptions.computeIfAbsent(task.getDescription(), this::appendText);
+            count++;
+        }
+
+        private int appendText(String description) {
+            byte[] bytes = description.getBytes(StandardCharsets.UTF_8);
+            if (textLength + bytes.length > text.length) {
+                text = Arrays.copyOf(text, Math.max(textLength + bytes.length, text.length * 2));
+            }
+            int slot = descriptions.size();
+            if (slot + 2 > textOffsets.length) {
+                textOffsets = Arrays.copyOf(textOffsets, textOffsets.length * 2);
+            }
+            System.arraycopy(bytes, 0, text, textLength, bytes.length);
+            textOffsets[slot] = textLength;
+            textLength += bytes.length;
+            textOffsets[slot + 1] = textLength;
+            return slot;
+        }
+
+        void clear() {
+            count = 0;
+            textLength = 0;
+            sorted = true;
+            descriptions.clear();
+        }
+
+        CompactTaskSource build() {
+            if (!sorted) {
+                sortById();
+            }
+            return new CompactTaskSource(this);
+        }
+
+        /**
+         * Sorts the slots by ID, a duplicated ID keeps its last record like the sequential reader.
+         */
+        private void sortById() {
+            Integer[] order = new Integer[count];
+            for (int slot = 0; slot < count; slot++) {
+                order[slot] = slot;
+            }
+            // Stable, so the last record of a duplicated ID comes last
+            Arrays.sort(order, (a, b) -> Integer.compare(ids[a], ids[b]));
+            int[] sortedIds = new int[count];
+            long[] sortedCreatedAt = new long[count];
+            long[] sortedUpdatedAt = new long[count];
+            byte[] sortedStatuses = new byte[count];
+            int[] sortedDescriptionOf = new int[count];
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                int slot = order[i];
+                if (kept > 0 && sortedIds[kept - 1] == ids[slot]) {
+                    kept--;
+                }
+                sortedIds[kept] = ids[slot];
+                sortedCreatedAt[kept] = createdAt[slot];
+                sortedUpdatedAt[kept] = updatedAt[slot];
+                sortedStatuses[kept] = statuses[slot];
+                sortedDescriptionOf[kept] = descriptionOf[slot];
+                kept++;
+            }
+            ids = sortedIds;
+            createdAt = sortedCreatedAt;
+            updatedAt = sortedUpdatedAt;
+            statuses = sortedStatuses;
+            descriptionOf = sortedDescriptionOf;
+            count = kept;
+        }
+    }
+}
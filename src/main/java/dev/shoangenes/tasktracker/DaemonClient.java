@@ -0,0 +1,121 @@
+package dev.shoangenes.tasktracker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Client side of the TaskTrackerDaemon protocol used by the CLI.
+ */
+final class DaemonClient {
+
+    private DaemonClient() {
+    }
+
+    /**
+     * Forwards a command to the daemon and copies its output to the given stream.
+     * If no daemon accepts the connection, nothing is sent and the command has to run in-process.
+     *
+     * @param socketPath the path of the daemon socket
+     * @param args the command line arguments
+     * @param out the stream receiving the command output
+     * @return the exit status of the command, or empty if no daemon is running
+     */
+    static Optional<Integer> forward(Path socketPath, String[] args, PrintStream out) {
+        SocketChannel channel = connect(socketPath);
+        if (channel == null) {
+            return Optional.empty();
+        }
+        // Once the request is sent the daemon may have applied it, so it must not be run again in-process
+        try (channel) {
+            DataOutputStream request = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            request.writeInt(TaskTrackerDaemon.COMMAND);
+            TaskTrackerDaemon.writeArgs(request, args);
+            request.flush();
+            return Optional.of(copyResponse(channel, out));
+        } catch (IOException e) {
+            out.println("Fatal error: lost connection to daemon: " + e.getMessage());
+            return Optional.of(1);
+        }
+    }
+
+    /**
+     * Asks the daemon to stop.
+     *
+     * @param socketPath the path of the daemon socket
+     * @return true if a daemon was running and acknowledged the request, false otherwise
+     */
+    static boolean stop(Path socketPath) {
+        SocketChannel channel = connect(socketPath);
+        if (channel == null) {
+            return false;
+        }
+        try (channel) {
+            DataOutputStream request = new DataOutputStream(Channels.newOutputStream(channel));
+            request.writeInt(TaskTrackerDaemon.STOP);
+            request.flush();
+            return copyResponse(channel, System.out) == 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Checks if a daemon accepts connections on the given socket.
+     *
+     * @param socketPath the path of the daemon socket
+     * @return true if a daemon is running, false otherwise
+     */
+    static boolean isRunning(Path socketPath) {
+        SocketChannel channel = connect(socketPath);
+        if (channel == null) {
+            return false;
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // The daemon only logs the aborted request
+        }
+        return true;
+    }
+
+    private static SocketChannel connect(Path socketPath) {
+        if (!Files.exists(socketPath)) {
+            return null;
+        }
+        try {
+            return SocketChannel.open(UnixDomainSocketAddress.of(socketPath));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static int copyResponse(SocketChannel channel, PrintStream out) throws IOException {
+        DataInputStream response = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        byte[] buffer = new byte[8192];
+        while (true) {
+            int length = response.readInt();
+            if (length == TaskTrackerDaemon.END_OF_OUTPUT) {
+                out.flush();
+                return response.readInt();
+            }
+            while (length > 0) {
+                int read = response.read(buffer, 0, Math.min(length, buffer.length));
+                if (read < 0) {
+                    throw new IOException("Unexpected end of daemon response");
+                }
+                out.write(buffer, 0, read);
+                length -= read;
+            }
+        }
+    }
+}
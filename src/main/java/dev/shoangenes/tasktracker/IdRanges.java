@@ -0,0 +1,125 @@
+package dev.shoangenes.tasktracker;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A set of task IDs given as a list of IDs and inclusive ranges, such as '100-250,300'.
+ * Ranges are sorted and merged when parsed, so a lookup is a binary search over the ranges and visiting the IDs
+ * never visits one twice.
+ */
+public final class IdRanges {
+    // Inclusive bounds of the sorted, disjoint and non-adjacent ranges
+    private final int[] starts;
+    private final int[] ends;
+
+    private IdRanges(int[] starts, int[] ends) {
+        this.starts = starts;
+        this.ends = ends;
+    }
+
+    /**
+     * Parses a comma-separated list of IDs and ranges of IDs.
+     *
+     * @param value the list to parse, such as '1,4-7,12'
+     * @return the parsed IdRanges
+     * @throws IllegalArgumentException if an element is not a positive ID or a range whose start is not after its end
+     */
+    public static IdRanges parse(String value) {
+        String[] elements = value.split(",", -1);
+        long[] ranges = new long[elements.length];
+        for (int i = 0; i < elements.length; i++) {
+            String element = elements[i].trim();
+            int dash = element.indexOf('-');
+            int start = parseId(dash < 0 ? element : element.substring(0, dash), value);
+            int end = dash < 0 ? start : parseId(element.substring(dash + 1), value);
+            if (end < start) {
+                throw new IllegalArgumentException("Invalid ID range '" + element + "'");
+            }
+            // Packed so sorting by start needs no boxing
+            ranges[i] = (long) start << 32 | end;
+        }
+        Arrays.sort(ranges);
+
+        int[] starts = new int[ranges.length];
+        int[] ends = new int[ranges.length];
+        int count = 0;
+        for (long range : ranges) {
+            int start = (int) (range >>> 32);
+            int end = (int) range;
+            if (count > 0 && start <= ends[count - 1] + 1L) {
+                ends[count - 1] = Math.max(ends[count - 1], end);
+            } else {
+                starts[count] = start;
+                ends[count] = end;
+                count++;
+            }
+        }
+        return new IdRanges(Arrays.copyOf(starts, count), Arrays.copyOf(ends, count));
+    }
+
+    private static int parseId(String text, String value) {
+        try {
+            int id = Integer.parseInt(text.trim());
+            if (id > 0) {
+                return id;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("IDs must be positive numbers or ranges such as 100-250. Got: '" + value + "'");
+    }
+
+    /**
+     * Checks if the ID is in one of the ranges.
+     *
+     * @param id the ID to check
+     * @return true if the ID is in the set
+     */
+    public boolean contains(int id) {
+        int low = 0;
+        int high = starts.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (ends[middle] < id) {
+                low = middle + 1;
+            } else if (starts[middle] > id) {
+                high = middle - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Performs the given action for every ID of the set up to the given one, in ascending order.
+     *
+     * @param max the largest ID to visit, IDs past the last one handed out do not need to be visited
+     * @param action the action to perform
+     */
+    public void forEach(int max, IntConsumer action) {
+        for (int i = 0; i < starts.length && starts[i] <= max; i++) {
+            int end = Math.min(ends[i], max);
+            // A long counter, so a range ending at Integer.MAX_VALUE does not overflow
+            for (long id = starts[i]; id <= end; id++) {
+                action.accept((int) id);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < starts.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(starts[i]);
+            if (ends[i] != starts[i]) {
+                sb.append('-').append(ends[i]);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,250 @@
+package dev.shoangenes.tasktracker;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * TaskSource serving the tasks of tasks.json through the index written next to it, tasks.json.idx.
+ * Opening the source maps the index and reads its header, a lookup binary searches the index and only the
+ * record of the task is read from tasks.json and parsed, so a command touching one task costs the same
+ * whatever the size of the store. Statuses and timestamps are kept in the index, the status and time indexes
+ * are built without parsing any record.
+ *
+ * The index is only used when it was written for the current generation of tasks.json, which is told by the
+ * checksum recorded by CheckedFile. Records are checked against their own CRC32 when they are read, since the
+ * file as a whole is not read to verify it.
+ *
+ * Layout of the index, big-endian:
+ * <pre>
+ * header:  int magic, int version, long checksum of tasks.json, long length of tasks.json, int count, int maxId
+ * entries: count x (int id, long offset, int length, int crc, byte status, long createdAt, long updatedAt),
+ *          sorted by id, timestamps in epoch millis
+ * </pre>
+ */
+class IndexedJsonTaskSource implements TaskSource, AutoCloseable {
+    static final int MAGIC = 0x54544A49; // "TTJI"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int ENTRY_SIZE = 37;
+
+    private final MappedByteBuffer index;
+    private final FileChannel json;
+    private final Path jsonPath;
+    private final int count;
+    private final int maxId;
+    // Slots of the tasks that were taken or removed
+    private final BitSet released;
+    private int remaining;
+
+    private IndexedJsonTaskSource(MappedByteBuffer index, FileChannel json, Path jsonPath, int count, int maxId) {
+        this.index = index;
+        this.json = json;
+        this.jsonPath = jsonPath;
+        this.count = count;
+        this.maxId = maxId;
+        this.released = new BitSet(count);
+        this.remaining = count;
+    }
+
+    /**
+     * Returns the path of the index that sits next to the given tasks.json file.
+     *
+     * @param jsonPath the path of tasks.json
+     * @return the path of tasks.json.idx
+     */
+    static Path indexPathFor(Path jsonPath) {
+        return jsonPath.resolveSibling(jsonPath.getFileName() + ".idx");
+    }
+
+    /**
+     * Opens the index of the given tasks.json file.
+     *
+     * @param jsonPath the tasks.json file
+     * @return a new IndexedJsonTaskSource, or null if there is no index matching the current file
+     * @throws TaskStorageException if the files cannot be read
+     */
+    static IndexedJsonTaskSource open(Path jsonPath) {
+        Path indexPath = indexPathFor(jsonPath);
+        Long checksum = CheckedFile.currentChecksum(jsonPath);
+        if (checksum == null || !Files.exists(indexPath) || !Files.exists(jsonPath)) {
+            return null;
+        }
+        MappedByteBuffer index;
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                return null;
+            }
+            index = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } catch (IOException e) {
+            throw new TaskStorageException("Error opening the index of " + jsonPath, e);
+        }
+        int count = index.getInt(24);
+        if (index.getInt(0) != MAGIC || index.getInt(4) != VERSION || index.getLong(8) != checksum
+                || count < 0 || HEADER_SIZE + (long) count * ENTRY_SIZE != index.capacity()) {
+            // Written for another generation of tasks.json, or by another version
+            return null;
+        }
+        try {
+            FileChannel json = FileChannel.open(jsonPath, StandardOpenOption.READ);
+            if (json.size() != index.getLong(16)) {
+                json.close();
+                return null;
+            }
+            return new IndexedJsonTaskSource(index, json, jsonPath, count, index.getInt(28));
+        } catch (IOException e) {
+            throw new TaskStorageException("Error opening " + jsonPath, e);
+        }
+    }
+
+    /**
+     * Returns the highest ID ever allocated in the store, including deleted tasks.
+     *
+     * @return the highest allocated ID
+     */
+    int getMaxId() {
+        return maxId;
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return remaining == 0;
+    }
+
+    @Override
+    public synchronized Task take(int id) {
+        int slot = slotOf(id);
+        if (slot < 0) {
+            return null;
+        }
+        Task task = parse(readRecord(slot));
+        release(slot);
+        return task;
+    }
+
+    @Override
+    public synchronized boolean remove(int id) {
+        int slot = slotOf(id);
+        if (slot < 0) {
+            return false;
+        }
+        release(slot);
+        return true;
+    }
+
+    @Override
+    public synchronized void forEach(Consumer<Task> action) {
+        for (int slot = released.nextClearBit(0); slot < count; slot = released.nextClearBit(slot + 1)) {
+            action.accept(parse(readRecord(slot)));
+        }
+    }
+
+    @Override
+    public synchronized void forEachHeader(HeaderConsumer action) {
+        for (int slot = released.nextClearBit(0); slot < count; slot = released.nextClearBit(slot + 1)) {
+            int entry = entryAt(slot);
+            action.accept(index.getInt(entry), Status.values()[index.get(entry + 20)],
+                    index.getLong(entry + 21), index.getLong(entry + 29));
+        }
+    }
+
+    /**
+     * Passes the JSON text of every record still held by the source, in ID order.
+     * Used by JsonTaskStorage to copy untouched records without parsing them.
+     *
+     * @param action the action receiving the UTF-8 JSON object of every task with its index entry
+     */
+    synchronized void forEachRecord(RecordConsumer action) throws IOException {
+        for (int slot = released.nextClearBit(0); slot < count; slot = released.nextClearBit(slot + 1)) {
+            int entry = entryAt(slot);
+            action.accept(index.getInt(entry), readRecord(slot), index.getInt(entry + 16), index.get(entry + 20),
+                    index.getLong(entry + 21), index.getLong(entry + 29));
+        }
+    }
+
+    interface RecordConsumer {
+        void accept(int id, byte[] json, int crc, byte status, long createdAt, long updatedAt) throws IOException;
+    }
+
+    /**
+     * Closes tasks.json, the mapped index is released by the garbage collector.
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            json.close();
+        } catch (IOException e) {
+            throw new TaskStorageException("Error closing " + jsonPath, e);
+        }
+    }
+
+    private void release(int slot) {
+        released.set(slot);
+        remaining--;
+    }
+
+    /**
+     * Binary searches the index for the given ID.
+     *
+     * @return the slot of the task, or -1 if it is not held by the source
+     */
+    private int slotOf(int id) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midId = index.getInt(entryAt(mid));
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return released.get(mid) ? -1 : mid;
+            }
+        }
+        return -1;
+    }
+
+    private int entryAt(int slot) {
+        return HEADER_SIZE + slot * ENTRY_SIZE;
+    }
+
+    /**
+     * Reads the JSON object of a task from tasks.json and checks it against its CRC32.
+     */
+    private byte[] readRecord(int slot) {
+        int entry = entryAt(slot);
+        long offset = index.getLong(entry + 4);
+        ByteBuffer record = ByteBuffer.allocate(index.getInt(entry + 12));
+        try {
+            while (record.hasRemaining()) {
+                if (json.read(record, offset + record.position()) < 0) {
+                    throw new TaskStorageException("Task " + index.getInt(entry) + " is truncated in " + jsonPath);
+                }
+            }
+        } catch (IOException e) {
+            throw new TaskStorageException("Error reading " + jsonPath, e);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record.array());
+        if ((int) crc.getValue() != index.getInt(entry + 16)) {
+            throw new TaskStorageException("Task " + index.getInt(entry) + " is damaged in " + jsonPath
+                    + ", disable lazy loading to recover the previous generation");
+        }
+        return record.array();
+    }
+
+    private Task parse(byte[] record) {
+        return new TaskJsonReader(new StringReader(new String(record, StandardCharsets.UTF_8))).readTask();
+    }
+}
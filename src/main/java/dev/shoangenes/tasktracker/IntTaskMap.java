@@ -0,0 +1,308 @@
+package dev.shoangenes.tasktracker;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Concurrent map from task IDs to tasks, stored in a directory of fixed-size pages indexed by the ID itself.
+ * Task IDs are allocated densely from 1, so a page holds a run of consecutive IDs and an entry costs one
+ * reference in its page instead of a hash node and a boxed key.
+ *
+ * Reads and writes of a slot are lock-free. Pages are allocated on the first write into their range, and
+ * growing the directory is serialized by the map's monitor. Iteration is weakly consistent, like the one of
+ * ConcurrentHashMap. The Map methods taking boxed keys are only meant for the storages filling the map on load.
+ */
+class IntTaskMap extends AbstractMap<Integer, Task> {
+    private static final int PAGE_SHIFT = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private volatile AtomicReferenceArray<AtomicReferenceArray<Task>> directory = new AtomicReferenceArray<>(16);
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Returns the task with the given ID.
+     *
+     * @param id the ID of the task
+     * @return the task, or null if the map holds none with this ID
+     */
+    Task get(int id) {
+        AtomicReferenceArray<Task> page = pageOf(id);
+        return page == null ? null : page.get(id & PAGE_MASK);
+    }
+
+    /**
+     * Associates a task with its ID, replacing any previous one.
+     *
+     * @param id the ID of the task
+     * @param task the task to store
+     * @return the previous task with this ID, or null if there was none
+     * @throws IllegalArgumentException if the ID is negative
+     */
+    Task put(int id, Task task) {
+        Task previous = pageFor(id).getAndSet(id & PAGE_MASK, task);
+        if (previous == null) {
+            size.incrementAndGet();
+        }
+        return previous;
+    }
+
+    /**
+     * Returns the task with the given ID, computing and storing it if absent.
+     * The function is called at most once per absent ID, concurrent callers for the same page wait for it.
+     *
+     * @param id the ID of the task
+     * @param function the function computing the task, may return null to leave the ID absent
+     * @return the current or computed task, or null if the function returned null
+     */
+    Task computeIfAbsent(int id, IntFunction<Task> function) {
+        Task task = get(id);
+        if (task != null) {
+            return task;
+        }
+        AtomicReferenceArray<Task> page = pageFor(id);
+        synchronized (page) {
+            task = page.get(id & PAGE_MASK);
+            if (task == null) {
+                task = function.apply(id);
+                if (task != null) {
+                    if (page.compareAndSet(id & PAGE_MASK, null, task)) {
+                        size.incrementAndGet();
+                    } else {
+                        // A concurrent put does not take the page lock and wins
+                        task = page.get(id & PAGE_MASK);
+                    }
+                }
+            }
+        }
+        return task;
+    }
+
+    /**
+     * Removes the entry of the given ID only if it is mapped to the given task.
+     *
+     * @param id the ID of the task
+     * @param task the task expected to be mapped
+     * @return true if the entry was removed
+     */
+    boolean remove(int id, Task task) {
+        AtomicReferenceArray<Task> page = pageOf(id);
+        if (page != null && task != null && page.compareAndSet(id & PAGE_MASK, task, null)) {
+            size.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Removes the entry of the given ID.
+     *
+     * @param id the ID of the task
+     * @return the removed task, or null if there was none
+     */
+    Task remove(int id) {
+        AtomicReferenceArray<Task> page = pageOf(id);
+        if (page == null) {
+            return null;
+        }
+        Task previous = page.getAndSet(id & PAGE_MASK, null);
+        if (previous != null) {
+            size.decrementAndGet();
+        }
+        return previous;
+    }
+
+    /**
+     * Performs the given action for every task in ID order.
+     *
+     * @param action the action to perform
+     */
+    void forEachTask(Consumer<Task> action) {
+        AtomicReferenceArray<AtomicReferenceArray<Task>> pages = directory;
+        for (int p = 0; p < pages.length(); p++) {
+            AtomicReferenceArray<Task> page = pages.get(p);
+            if (page == null) {
+                continue;
+            }
+            for (int slot = 0; slot < PAGE_SIZE; slot++) {
+                Task task = page.get(slot);
+                if (task != null) {
+                    action.accept(task);
+                }
+            }
+        }
+    }
+
+    private AtomicReferenceArray<Task> pageOf(int id) {
+        if (id < 0) {
+            return null;
+        }
+        AtomicReferenceArray<AtomicReferenceArray<Task>> pages = directory;
+        int index = id >>> PAGE_SHIFT;
+        return index < pages.length() ? pages.get(index) : null;
+    }
+
+    private AtomicReferenceArray<Task> pageFor(int id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Task IDs cannot be negative: " + id);
+        }
+        AtomicReferenceArray<Task> page = pageOf(id);
+        if (page != null) {
+            return page;
+        }
+        synchronized (this) {
+            int index = id >>> PAGE_SHIFT;
+            AtomicReferenceArray<AtomicReferenceArray<Task>> pages = directory;
+            if (index >= pages.length()) {
+                int length = pages.length();
+                while (length <= index) {
+                    length = Math.min(length * 2, (Integer.MAX_VALUE >>> PAGE_SHIFT) + 1);
+                }
+                AtomicReferenceArray<AtomicReferenceArray<Task>> grown = new AtomicReferenceArray<>(length);
+                for (int p = 0; p < pages.length(); p++) {
+                    grown.set(p, pages.get(p));
+                }
+                directory = pages = grown;
+            }
+            page = pages.get(index);
+            if (page == null) {
+                page = new AtomicReferenceArray<>(PAGE_SIZE);
+                pages.set(index, page);
+            }
+            return page;
+        }
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+    @Override
+    public Task get(Object key) {
+        return key instanceof Integer id ? get(id.intValue()) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public Task put(Integer key, Task task) {
+        if (task == null) {
+            throw new NullPointerException("Tasks cannot be null");
+        }
+        return put(key.intValue(), task);
+    }
+
+    @Override
+    public Task remove(Object key) {
+        return key instanceof Integer id ? remove(id.intValue()) : null;
+    }
+
+    @Override
+    public void clear() {
+        forEachTask(task -> remove(task.getId(), task));
+    }
+
+    @Override
+    public Collection<Task> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Task> iterator() {
+                return new TaskIterator();
+            }
+
+            @Override
+            public int size() {
+                return IntTaskMap.this.size();
+            }
+
+            @Override
+            public void forEach(Consumer<? super Task> action) {
+                forEachTask(action::accept);
+            }
+        };
+    }
+
+    @Override
+    public Set<Entry<Integer, Task>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<Integer, Task>> iterator() {
+                TaskIterator tasks = new TaskIterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return tasks.hasNext();
+                    }
+
+                    @Override
+                    public Entry<Integer, Task> next() {
+                        Task task = tasks.next();
+                        return new SimpleImmutableEntry<>(task.getId(), task);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return IntTaskMap.this.size();
+            }
+        };
+    }
+
+    /**
+     * Weakly consistent iterator over the tasks in ID order.
+     */
+    private class TaskIterator implements Iterator<Task> {
+        private final AtomicReferenceArray<AtomicReferenceArray<Task>> pages = directory;
+        private int position = -1;
+        private Task next = advance();
+
+        private Task advance() {
+            while (++position >= 0 && position < (long) pages.length() * PAGE_SIZE) {
+                AtomicReferenceArray<Task> page = pages.get(position >>> PAGE_SHIFT);
+                if (page == null) {
+                    position |= PAGE_MASK;
+                    continue;
+                }
+                Task task = page.get(position & PAGE_MASK);
+                if (task != null) {
+                    return task;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Task next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Task current = next;
+            next = advance();
+            return current;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package dev.shoangenes.tasktracker;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Reads and writes timestamps in the ISO_LOCAL_DATE_TIME form used by tasks.json without DateTimeFormatter.
+ * A short command parses every stored timestamp, and the formatter pulls in and initialises a few hundred classes
+ * of java.time.format and java.time.temporal, more than the whole command costs once it is warm. The canonical
+ * form, a four-digit year with seconds and an optional fraction, is handled here, anything else goes through
+ * DateTimeFormatter.ISO_LOCAL_DATE_TIME, so both accept and produce exactly the same text.
+ */
+final class IsoTimestamp {
+    private IsoTimestamp() {
+    }
+
+    /**
+     * Holds the formatter, so it is only initialised when a timestamp falls outside the canonical form.
+     */
+    private static final class Fallback {
+        static final DateTimeFormatter FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+    }
+
+    /**
+     * Appends the timestamp as DateTimeFormatter.ISO_LOCAL_DATE_TIME would format it.
+     *
+     * @param sb the StringBuilder to append to
+     * @param dateTime the timestamp
+     */
+    static void append(StringBuilder sb, LocalDateTime dateTime) {
+        int year = dateTime.getYear();
+        if (year < 0 || year > 9999) {
+            Fallback.FORMATTER.formatTo(dateTime, sb);
+            return;
+        }
+        appendDigits(sb, year, 4);
+        sb.append('-');
+        appendDigits(sb, dateTime.getMonthValue(), 2);
+        sb.append('-');
+        appendDigits(sb, dateTime.getDayOfMonth(), 2);
+        sb.append('T');
+        appendDigits(sb, dateTime.getHour(), 2);
+        sb.append(':');
+        appendDigits(sb, dateTime.getMinute(), 2);
+        sb.append(':');
+        appendDigits(sb, dateTime.getSecond(), 2);
+        int nano = dateTime.getNano();
+        if (nano != 0) {
+            // Nine digits with the trailing zeros dropped, like the formatter
+            int digits = 9;
+            while (nano % 10 == 0) {
+                nano /= 10;
+                digits--;
+            }
+            sb.append('.');
+            appendDigits(sb, nano, digits);
+        }
+    }
+
+    private static void appendDigits(StringBuilder sb, int value, int width) {
+        for (int divisor = pow10(width - 1); divisor > 0; divisor /= 10) {
+            sb.append((char) ('0' + value / divisor % 10));
+        }
+    }
+
+    private static int pow10(int exponent) {
+        int value = 1;
+        for (int i = 0; i < exponent; i++) {
+            value *= 10;
+        }
+        return value;
+    }
+
+    /**
+     * Parses a timestamp as DateTimeFormatter.ISO_LOCAL_DATE_TIME would parse it.
+     *
+     * @param text the timestamp
+     * @return the LocalDateTime
+     * @throws DateTimeParseException if the text is not a valid timestamp
+     */
+    static LocalDateTime parse(CharSequence text) {
+        int length = text.length();
+        // yyyy-MM-ddTHH:mm, then optionally :ss and a fraction of 1 to 9 digits
+        if (length < 16 || !matches(text, "dddd-dd-ddTdd:dd") || length > 16 && (length < 19
+                || !matches(text.subSequence(16, 19), ":dd") || length > 19 && !isFraction(text, 19))) {
+            return LocalDateTime.parse(text, Fallback.FORMATTER);
+        }
+        int second = length > 16 ? number(text, 17, 19) : 0;
+        int nano = 0;
+        if (length > 19) {
+            for (int i = 20; i < 29; i++) {
+                nano = nano * 10 + (i < length ? text.charAt(i) - '0' : 0);
+            }
+        }
+        try {
+            return LocalDateTime.of(number(text, 0, 4), number(text, 5, 7), number(text, 8, 10),
+                    number(text, 11, 13), number(text, 14, 16), second, nano);
+        } catch (DateTimeException e) {
+            throw new DateTimeParseException("Text '" + text + "' could not be parsed: " + e.getMessage(), text, 0, e);
+        }
+    }
+
+    /**
+     * Checks the text against a pattern where 'd' stands for a digit and any other character for itself.
+     */
+    private static boolean matches(CharSequence text, String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            char expected = pattern.charAt(i);
+            char c = text.charAt(i);
+            if (expected == 'd' ? c < '0' || c > '9' : c != expected) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isFraction(CharSequence text, int start) {
+        int length = text.length();
+        if (text.charAt(start) != '.' || length == start + 1 || length > start + 10) {
+            return false;
+        }
+        for (int i = start + 1; i < length; i++) {
+            if (text.charAt(i) < '0' || text.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int number(CharSequence text, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            value = value * 10 + text.charAt(i) - '0';
+        }
+        return value;
+    }
+}
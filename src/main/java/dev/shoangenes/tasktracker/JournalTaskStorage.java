@@ -0,0 +1,338 @@
+package dev.shoangenes.tasktracker;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Storage that appends every mutation to a journal next to the tasks.json snapshot.
+ * The state is rebuilt by replaying the snapshot followed by the journal, and the journal is folded
+ * back into the snapshot on a background thread once it grows past a threshold.
+ */
+public class JournalTaskStorage implements TaskStorage {
+    // Number of journal records that triggers a background compaction
+    static final int DEFAULT_COMPACTION_THRESHOLD = 10_000;
+
+    // Snapshot of the tasks in JSON format, the same file used by JsonTaskStorage
+    private final Path snapshotPath;
+    // Journal receiving the mutations applied after the snapshot
+    private final Path journalPath;
+    // Journal that was rotated out and is being folded into the snapshot
+    private final Path compactingPath;
+    private final int compactionThreshold;
+    private final ExecutorService compactor;
+    // Orders appends, rotations and compactions with the other processes using the same journal
+    private final StoreLock storeLock;
+    private FileChannel journal;
+    // Identity of the journal file the channel was opened on, to notice a rotation by another process
+    private Object journalKey;
+    private int recordsSinceCompaction;
+    private boolean compacting;
+
+    public JournalTaskStorage(Path snapshotPath) {
+        this(snapshotPath, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * Constructor for JournalTaskStorage.
+     *
+     * @param snapshotPath the path of the tasks.json snapshot
+     * @param compactionThreshold the number of journal records after which the journal is compacted
+     */
+    public JournalTaskStorage(Path snapshotPath, int compactionThreshold) {
+        if (compactionThreshold < 1) {
+            throw new IllegalArgumentException("Compaction threshold must be positive");
+        }
+        this.snapshotPath = snapshotPath;
+        this.journalPath = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".journal");
+        this.compactingPath = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".journal.compacting");
+        this.compactionThreshold = compactionThreshold;
+        this.storeLock = StoreLock.open(StoreLock.lockPathFor(snapshotPath));
+        this.compactor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "task-journal-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public Path getFilePath() {
+        return snapshotPath;
+    }
+
+    /**
+     * Returns the path of the active journal.
+     *
+     * @return the Path of the journal file
+     */
+    public Path getJournalPath() {
+        return journalPath;
+    }
+
+    @Override
+    public List<Path> getDataFiles() {
+        return List.of(snapshotPath, compactingPath, journalPath);
+    }
+
+    /**
+     * Loads the snapshot and replays any journal written after it.
+     * A journal left over by an interrupted compaction is replayed too and compacted again.
+     *
+     * @param storedTask the map receiving the tasks with their IDs as keys
+     */
+    @Override
+    public void load(Map<Integer, Task> storedTask) {
+        // Holding the store lock keeps another process from compacting while the files are read
+        storeLock.locked(() -> {
+            synchronized (this) {
+                JsonTaskStorage.readTasks(snapshotPath, storedTask);
+                boolean leftover = Files.exists(compactingPath);
+                if (leftover) {
+                    replay(compactingPath, storedTask);
+                }
+                recordsSinceCompaction = replay(journalPath, storedTask);
+                if (leftover && !compacting) {
+                    scheduleCompaction();
+                }
+            }
+        });
+    }
+
+    /**
+     * Appends the change to the journal.
+     * The journal is rotated and compacted in the background once it reaches the threshold.
+     * Appends hold the store lock, so a journal rotated by another process is noticed and reopened.
+     *
+     * @param change the mutation that was applied
+     */
+    @Override
+    public void record(TaskChange change) {
+        String line = change.type().name() + " "
+                + (change.task() == null ? String.valueOf(change.id()) : change.task().toJson()) + "\n";
+        storeLock.locked(() -> {
+            synchronized (this) {
+                append(line);
+            }
+        });
+    }
+
+    private void append(String line) {
+        try {
+            if (journal != null && !isActiveJournal()) {
+                closeJournal();
+            }
+            if (journal == null) {
+                journal = FileChannel.open(journalPath, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                journalKey = Files.readAttributes(journalPath, BasicFileAttributes.class).fileKey();
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                journal.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new TaskStorageException("Error appending to task journal", e);
+        }
+        // A journal rotated by another process is still being compacted by it
+        if (++recordsSinceCompaction >= compactionThreshold && !compacting && !Files.exists(compactingPath)) {
+            rotate();
+        }
+    }
+
+    /**
+     * Checks whether the open channel still writes to the active journal, another process may have rotated it.
+     */
+    private boolean isActiveJournal() throws IOException {
+        try {
+            Object key = Files.readAttributes(journalPath, BasicFileAttributes.class).fileKey();
+            return key == null || key.equals(journalKey);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Every mutation is already in the journal, so saving only forces it to disk.
+     *
+     * @param tasks every task currently held by the manager
+     */
+    @Override
+    public synchronized void save(Collection<Task> tasks) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.force(false);
+        } catch (IOException e) {
+            throw new TaskStorageException("Error syncing task journal", e);
+        }
+    }
+
+    /**
+     * Every mutation of every process is appended to the journal, so nothing has to be merged before a save.
+     *
+     * @return false
+     */
+    @Override
+    public boolean rewritesOnSave() {
+        return false;
+    }
+
+    /**
+     * Closes the journal and waits for a running compaction to finish.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closeJournal();
+        }
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        storeLock.close();
+    }
+
+    /**
+     * Moves the active journal aside so that new records go to a fresh file, and compacts it in the background.
+     */
+    private void rotate() {
+        closeJournal();
+        try {
+            Files.move(journalPath, compactingPath, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new TaskStorageException("Error rotating task journal", e);
+        }
+        recordsSinceCompaction = 0;
+        scheduleCompaction();
+    }
+
+    private void scheduleCompaction() {
+        compacting = true;
+        compactor.execute(this::compact);
+    }
+
+    /**
+     * Folds the rotated journal into a new snapshot.
+     * The snapshot is replaced atomically, keeping its previous generation, before the rotated journal is
+     * deleted, and replaying a journal over a snapshot that already contains it yields the same state, so an
+     * interrupted compaction loses nothing. It holds the store lock, as another process may be compacting the
+     * same rotated journal.
+     */
+    private void compact() {
+        try {
+            storeLock.locked(() -> {
+                if (!Files.exists(compactingPath)) {
+                    return;
+                }
+                HashMap<Integer, Task> state = new HashMap<>();
+                JsonTaskStorage.readTasks(snapshotPath, state);
+                replay(compactingPath, state);
+                JsonTaskStorage.writeTasks(snapshotPath, state.values());
+                try {
+                    Files.delete(compactingPath);
+                } catch (IOException e) {
+                    throw new TaskStorageException("Error deleting compacted journal", e);
+                }
+            });
+        } catch (TaskStorageException e) {
+            // The rotated journal is kept and compacted again on the next load
+            System.err.println("Warning: task journal compaction failed: " + e.getMessage());
+        } finally {
+            synchronized (this) {
+                compacting = false;
+            }
+        }
+    }
+
+    private void closeJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.force(false);
+            journal.close();
+        } catch (IOException e) {
+            throw new TaskStorageException("Error closing task journal", e);
+        } finally {
+            journal = null;
+        }
+    }
+
+    /**
+     * Applies the records of a journal file to the given tasks.
+     * A malformed last record is the trace of a write that was interrupted and is ignored.
+     *
+     * @param path the journal file to replay
+     * @param storedTask the map the records are applied to
+     * @return the number of records replayed
+     */
+    private static int replay(Path path, Map<Integer, Task> storedTask) {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        int replayed = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String pending = null;
+            int pendingLine = 0;
+            int lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (pending != null) {
+                    try {
+                        apply(pending, storedTask);
+                    } catch (RuntimeException e) {
+                        throw new TaskStorageException("Corrupted task journal record at line " + pendingLine, e);
+                    }
+                    replayed++;
+                }
+                pending = line;
+                pendingLine = lineNumber;
+            }
+            if (pending != null) {
+                try {
+                    apply(pending, storedTask);
+                    replayed++;
+                } catch (RuntimeException e) {
+                    // Torn write at the end of the journal, the mutation never completed
+                }
+            }
+        } catch (IOException e) {
+            throw new TaskStorageException("Error reading task journal", e);
+        }
+        return replayed;
+    }
+
+    private static void apply(String line, Map<Integer, Task> storedTask) {
+        int separator = line.indexOf(' ');
+        ChangeType type = ChangeType.valueOf(line.substring(0, separator));
+        String payload = line.substring(separator + 1);
+        if (type == ChangeType.DELETE) {
+            storedTask.remove(Integer.parseInt(payload.trim()));
+        } else {
+            Task task = Task.fromJson(payload);
+            storedTask.put(task.getId(), task);
+        }
+    }
+}
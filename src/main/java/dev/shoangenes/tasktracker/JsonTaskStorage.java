@@ -0,0 +1,337 @@
+package dev.shoangenes.tasktracker;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+
+/**
+ * Storage that keeps every task in a single JSON array and rewrites the whole file on save.
+ *
+ * In lazy mode, every save also writes tasks.json.idx, the ID, offset and header of every record, and startup
+ * only opens that index: a task is parsed when the manager first touches it, and the records never touched
+ * are copied as-is by the next save.
+ *
+ * In compact mode, startup reads tasks.json into a CompactTaskSource, which keeps the tasks as columns of
+ * primitives with deduplicated descriptions, and a Task is only built when the manager touches it. Lazy mode
+ * takes precedence when both are enabled.
+ */
+public class JsonTaskStorage implements TaskStorage {
+    // System property and environment variable enabling lazy loading
+    static final String LAZY_PROPERTY = "tasktracker.lazy";
+    static final String LAZY_ENV_VARIABLE = "TASK_TRACKER_LAZY_LOAD";
+    // System property and environment variable enabling the compact in-memory layout
+    static final String COMPACT_PROPERTY = "tasktracker.compact";
+    static final String COMPACT_ENV_VARIABLE = "TASK_TRACKER_COMPACT";
+
+    // File path where tasks are stored in JSON format
+    private final Path filePath;
+    // Whether tasks are served through the index instead of being loaded up front
+    private final boolean lazy;
+    // Whether tasks are kept in a CompactTaskSource until they are touched
+    private final boolean compact;
+    // Source handed to the manager in lazy mode, its untouched records are copied as-is on save
+    private IndexedJsonTaskSource source;
+    // Source handed to the manager in compact mode, its untouched tasks are written back on save
+    private CompactTaskSource compactSource;
+
+    public JsonTaskStorage(Path filePath) {
+        this(filePath, false);
+    }
+
+    public JsonTaskStorage(Path filePath, boolean lazy) {
+        this(filePath, lazy, false);
+    }
+
+    /**
+     * Constructor for JsonTaskStorage.
+     *
+     * @param filePath the path of tasks.json
+     * @param lazy whether to serve tasks through the index written next to tasks.json
+     * @param compact whether to keep the tasks in the compact columnar layout until they are touched
+     */
+    public JsonTaskStorage(Path filePath, boolean lazy, boolean compact) {
+        this.filePath = filePath;
+        this.lazy = lazy;
+        this.compact = compact;
+    }
+
+    /**
+     * Tells whether lazy loading is enabled by the tasktracker.lazy system property or the
+     * TASK_TRACKER_LAZY_LOAD environment variable.
+     *
+     * @return true if lazy loading is enabled
+     */
+    static boolean lazyFromEnvironment() {
+        return Boolean.parseBoolean(System.getProperty(LAZY_PROPERTY, System.getenv(LAZY_ENV_VARIABLE)));
+    }
+
+    /**
+     * Tells whether the compact layout is enabled by the tasktracker.compact system property or the
+     * TASK_TRACKER_COMPACT environment variable.
+     *
+     * @return true if the compact layout is enabled
+     */
+    static boolean compactFromEnvironment() {
+        return Boolean.parseBoolean(System.getProperty(COMPACT_PROPERTY, System.getenv(COMPACT_ENV_VARIABLE)));
+    }
+
+    @Override
+    public Path getFilePath() {
+        return filePath;
+    }
+
+    /**
+     * Reads tasks from the JSON file.
+     * If the file does not exist, no task is loaded.
+     *
+     * @param tasks the map receiving the tasks with their IDs as keys
+     */
+    @Override
+    public void load(Map<Integer, Task> tasks) {
+        readTasks(filePath, tasks);
+    }
+
+    /**
+     * Opens the index of tasks.json in lazy mode, or reads tasks.json into a compact source in compact mode.
+     * Without an index matching the current file the tasks are loaded up front, and the next save writes one.
+     *
+     * @return an IndexedJsonTaskSource or a CompactTaskSource, or null if both modes are off or no index matches
+     *         tasks.json in lazy mode
+     */
+    @Override
+    public synchronized TaskSource openSource() {
+        if (!lazy) {
+            if (compact) {
+                compactSource = CompactTaskSource.read(filePath);
+            }
+            return compactSource;
+        }
+        closeSource();
+        source = IndexedJsonTaskSource.open(filePath);
+        if (source != null) {
+            Task.advanceLastId(source.getMaxId());
+        }
+        return source;
+    }
+
+    @Override
+    public synchronized void save(Collection<Task> tasks) {
+        if (lazy) {
+            writeIndexed(tasks);
+        } else if (compactSource != null) {
+            writeMerged(tasks);
+        } else {
+            writeTasks(filePath, tasks);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        closeSource();
+    }
+
+    private void closeSource() {
+        if (source != null) {
+            source.close();
+            source = null;
+        }
+    }
+
+    /**
+     * Writes the given tasks, together with the tasks the manager never took from the compact source, in ID order.
+     *
+     * @param tasks every task materialised by the manager
+     */
+    private void writeMerged(Collection<Task> tasks) {
+        Task[] sorted = tasks.toArray(new Task[0]);
+        Arrays.sort(sorted, Comparator.comparingInt(Task::getId));
+        CheckedFile.write(filePath, writer -> {
+            int[] count = {0};
+            int[] next = {0};
+            writer.write("[\n");
+            compactSource.forEachRecord(task -> {
+                while (next[0] < sorted.length && sorted[next[0]].getId() < task.getId()) {
+                    separator(writer, count[0]++);
+                    writer.write(sorted[next[0]++].toJson());
+                }
+                separator(writer, count[0]++);
+                writer.write(task.toJson());
+            });
+            while (next[0] < sorted.length) {
+                separator(writer, count[0]++);
+                writer.write(sorted[next[0]++].toJson());
+            }
+            writer.write(count[0] > 0 ? "\n]" : "]");
+        });
+    }
+
+    /**
+     * Writes the given tasks, together with the records the manager never took from the source, in ID order,
+     * then writes the index describing the new file.
+     *
+     * @param tasks every task materialised by the manager
+     */
+    private void writeIndexed(Collection<Task> tasks) {
+        Task[] sorted = tasks.toArray(new Task[0]);
+        Arrays.sort(sorted, Comparator.comparingInt(Task::getId));
+        ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        int[] count = {0};
+        CheckedFile.write(filePath, writer -> {
+            DataOutputStream index = new DataOutputStream(entries);
+            long[] offset = {2};
+            int[] next = {0};
+            CRC32 crc = new CRC32();
+            writer.write("[\n");
+            if (source != null) {
+                source.forEachRecord((id, json, recordCrc, status, createdAt, updatedAt) -> {
+                    while (next[0] < sorted.length && sorted[next[0]].getId() < id) {
+                        offset[0] += writeRecord(writer, index, sorted[next[0]++], offset[0], count[0]++, crc);
+                    }
+                    offset[0] += separator(writer, count[0]++);
+                    writer.write(new String(json, StandardCharsets.UTF_8));
+                    writeEntry(index, id, offset[0], json.length, recordCrc, status, createdAt, updatedAt);
+                    offset[0] += json.length;
+                });
+            }
+            while (next[0] < sorted.length) {
+                offset[0] += writeRecord(writer, index, sorted[next[0]++], offset[0], count[0]++, crc);
+            }
+            writer.write(count[0] > 0 ? "\n]" : "]");
+        });
+
+        int maxId = Task.getLastIdSaved();
+        if (source != null) {
+            maxId = Math.max(maxId, source.getMaxId());
+        }
+        if (sorted.length > 0) {
+            maxId = Math.max(maxId, sorted[sorted.length - 1].getId());
+        }
+        Path indexPath = IndexedJsonTaskSource.indexPathFor(filePath);
+        Path tempPath = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+        try {
+            Long checksum = CheckedFile.currentChecksum(filePath);
+            ByteBuffer header = ByteBuffer.allocate(IndexedJsonTaskSource.HEADER_SIZE)
+                    .putInt(IndexedJsonTaskSource.MAGIC).putInt(IndexedJsonTaskSource.VERSION)
+                    .putLong(checksum == null ? 0 : checksum).putLong(Files.size(filePath))
+                    .putInt(count[0]).putInt(maxId);
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempPath))) {
+                out.write(header.array());
+                entries.writeTo(out);
+            }
+            Files.move(tempPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new TaskStorageException("Error writing the index of " + filePath.getFileName(), e);
+        }
+    }
+
+    /**
+     * Writes the separator coming before the given record, the first record has none.
+     *
+     * @return the number of bytes written
+     */
+    private static int separator(Writer writer, int record) throws IOException {
+        if (record == 0) {
+            return 0;
+        }
+        writer.write(",\n");
+        return 2;
+    }
+
+    /**
+     * Writes a task preceded by its separator, and its index entry.
+     *
+     * @return the number of bytes written
+     */
+    private static long writeRecord(Writer writer, DataOutputStream index, Task task, long offset, int record,
+                                    CRC32 crc) throws IOException {
+        int separator = separator(writer, record);
+        String json = task.toJson();
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        writer.write(json);
+        crc.reset();
+        crc.update(bytes);
+        writeEntry(index, task.getId(), offset + separator, bytes.length, (int) crc.getValue(),
+                (byte) task.getStatus().ordinal(), Task.toEpochMillis(task.getCreatedAt()),
+                Task.toEpochMillis(task.getUpdatedAt()));
+        return separator + bytes.length;
+    }
+
+    private static void writeEntry(DataOutputStream index, int id, long offset, int length, int crc, byte status,
+                                   long createdAt, long updatedAt) throws IOException {
+        index.writeInt(id);
+        index.writeLong(offset);
+        index.writeInt(length);
+        index.writeInt(crc);
+        index.writeByte(status);
+        index.writeLong(createdAt);
+        index.writeLong(updatedAt);
+    }
+
+    /**
+     * Reads the JSON array stored at the given path into the provided map.
+     * The file is parsed incrementally with TaskJsonReader, so no copy of the whole content is made.
+     * Files larger than ParallelTaskParser.PARALLEL_THRESHOLD are split and parsed on the common fork-join pool.
+     * Nothing is read if the file does not exist, and a damaged file is replaced by its previous generation.
+     *
+     * @param path the JSON file to read
+     * @param storedTask the map to store tasks
+     * @throws TaskStorageException if the file and its previous generation are both damaged
+     * @see CheckedFile#read(Path, CheckedFile.ContentReader, Runnable)
+     */
+    static void readTasks(Path path, Map<Integer, Task> storedTask) {
+        long start = Metrics.JSON_READ.start();
+        CheckedFile.readFile(path, file -> {
+            if (Files.size(file) >= ParallelTaskParser.PARALLEL_THRESHOLD && ForkJoinPool.getCommonPoolParallelism() > 1) {
+                List<List<Task>> chunks = ParallelTaskParser.parse(file, ForkJoinPool.commonPool());
+                if (chunks != null) {
+                    // Merged in file order, so a duplicated ID keeps its last record like the sequential reader
+                    chunks.forEach(chunk -> chunk.forEach(task -> storedTask.put(task.getId(), task)));
+                    return;
+                }
+            }
+            try (TaskJsonReader json = new TaskJsonReader(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+                json.readTasks(task -> storedTask.put(task.getId(), task));
+            }
+        }, storedTask::clear);
+        Metrics.JSON_READ.stop(start);
+    }
+
+    /**
+     * Writes the given tasks as a JSON array to the given path, replacing its content.
+     * Tasks are streamed through a buffered writer one at a time instead of building the whole document in memory.
+     * The file is replaced atomically with a checksum, and the previous content is kept as a backup generation.
+     *
+     * @param path the JSON file to write
+     * @param tasks the tasks to write
+     * @see CheckedFile#write(Path, CheckedFile.ContentWriter)
+     */
+    static void writeTasks(Path path, Collection<Task> tasks) {
+        CheckedFile.write(path, writer -> writeArray(writer, tasks));
+    }
+
+    static void writeArray(Writer writer, Collection<Task> tasks) throws IOException {
+        writer.write("[\n");
+        Iterator<Task> iterator = tasks.iterator();
+        while (iterator.hasNext()) {
+            writer.write(iterator.next().toJson());
+            writer.write(iterator.hasNext() ? ",\n" : "\n");
+        }
+        writer.write("]");
+    }
+}
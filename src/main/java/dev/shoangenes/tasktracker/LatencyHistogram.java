@@ -0,0 +1,118 @@
+package dev.shoangenes.tasktracker;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of durations in nanoseconds with log-linear buckets, in the manner of HdrHistogram.
+ * Values below 32 get a bucket each, and every power of two above is split into 16 buckets, so a reported
+ * percentile is within about 6% of the recorded value across the whole range of a long. Recording only
+ * increments atomic counters and never allocates, so it is safe on every command and index update.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKETS = 16;
+    private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+    // 32 linear buckets, then 16 buckets for each of the 58 remaining powers of two
+    private static final int BUCKET_COUNT = LINEAR_LIMIT + 58 * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a duration, negative durations count as zero.
+     *
+     * @param nanos the duration in nanoseconds
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+        total.addAndGet(value);
+        long previous;
+        while (value > (previous = max.get()) && !max.compareAndSet(previous, value)) {
+            // Retried until the maximum is at least this value
+        }
+    }
+
+    /**
+     * Returns the number of recorded durations.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Returns the sum of the recorded durations.
+     *
+     * @return the total in nanoseconds
+     */
+    public long getTotalNanos() {
+        return total.get();
+    }
+
+    /**
+     * Returns the longest recorded duration, exactly.
+     *
+     * @return the maximum in nanoseconds, 0 if nothing was recorded
+     */
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    /**
+     * Returns the duration below which the given share of the recorded durations fall.
+     * The value is the upper bound of its bucket, capped by the maximum.
+     *
+     * @param percentile the share, between 0 and 100
+     * @return the duration in nanoseconds, 0 if nothing was recorded
+     */
+    public long getPercentileNanos(double percentile) {
+        long recorded = count.get();
+        if (recorded == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(recorded * Math.min(100, Math.max(0, percentile)) / 100));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(bucket), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Clears every recorded duration.
+     */
+    public void reset() {
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            counts.set(bucket, 0);
+        }
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+
+    static int bucketOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - 4;
+        return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    static long upperBoundOf(int bucket) {
+        if (bucket < LINEAR_LIMIT) {
+            return bucket;
+        }
+        int shift = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+        long top = (bucket - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+        long lower = top << shift;
+        return lower + ((1L << shift) - 1);
+    }
+}
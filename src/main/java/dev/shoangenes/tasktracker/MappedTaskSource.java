@@ -0,0 +1,241 @@
+package dev.shoangenes.tasktracker;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.function.Consumer;
+
+/**
+ * TaskSource reading records straight from a memory-mapped tasks.bin file.
+ * Opening the file only maps it and reads the header, lookups binary search the index stored at the end of the file
+ * and a Task is decoded only when it is taken or listed.
+ * Before the file is replaced the source copies it into the heap and unmaps it, see {@link #detach()}.
+ *
+ * @see BinaryTaskStorage for the file layout
+ */
+class MappedTaskSource implements TaskSource {
+    // The mapped file, or its copy in the heap once detached
+    private ByteBuffer buffer;
+    private final int count;
+    private final int maxId;
+    private final int indexOffset;
+    // Slots of the tasks that were taken or removed
+    private final BitSet released;
+    private int remaining;
+
+    private MappedTaskSource(ByteBuffer buffer, int count, int maxId, int indexOffset) {
+        this.buffer = buffer;
+        this.count = count;
+        this.maxId = maxId;
+        this.indexOffset = indexOffset;
+        this.released = new BitSet(count);
+        this.remaining = count;
+    }
+
+    /**
+     * Maps the given binary tasks file.
+     * A missing file is treated as an empty store.
+     *
+     * @param path the tasks.bin file
+     * @return a new MappedTaskSource
+     * @throws TaskStorageException if the file cannot be mapped or is not a valid tasks file
+     */
+    static MappedTaskSource open(Path path) {
+        if (!Files.exists(path)) {
+            return new MappedTaskSource(null, 0, 0, 0);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new TaskStorageException("Binary tasks file is too large to map: " + path);
+            }
+            if (size < BinaryTaskStorage.HEADER_SIZE) {
+                throw new TaskStorageException("Binary tasks file is truncated: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != BinaryTaskStorage.MAGIC) {
+                throw new TaskStorageException("Not a binary tasks file: " + path);
+            }
+            if (buffer.getInt(4) != BinaryTaskStorage.VERSION) {
+                throw new TaskStorageException("Unsupported binary tasks file version: " + buffer.getInt(4));
+            }
+            int count = buffer.getInt(8);
+            int maxId = buffer.getInt(12);
+            int indexOffset = buffer.getInt(16);
+            if (count < 0 || indexOffset < BinaryTaskStorage.HEADER_SIZE
+                    || (long) indexOffset + (long) count * BinaryTaskStorage.INDEX_ENTRY_SIZE != size) {
+                throw new TaskStorageException("Binary tasks file is corrupted: " + path);
+            }
+            return new MappedTaskSource(buffer, count, maxId, indexOffset);
+        } catch (IOException e) {
+            throw new TaskStorageException("Error mapping binary tasks file", e);
+        }
+    }
+
+    /**
+     * Returns the highest ID ever allocated in the store, including deleted tasks.
+     *
+     * @return the highest allocated ID
+     */
+    int getMaxId() {
+        return maxId;
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return remaining == 0;
+    }
+
+    @Override
+    public synchronized Task take(int id) {
+        int slot = slotOf(id);
+        if (slot < 0) {
+            return null;
+        }
+        release(slot);
+        return decode(offsetAt(slot));
+    }
+
+    @Override
+    public synchronized boolean remove(int id) {
+        int slot = slotOf(id);
+        if (slot < 0) {
+            return false;
+        }
+        release(slot);
+        return true;
+    }
+
+    @Override
+    public synchronized void forEach(Consumer<Task> action) {
+        for (int slot = released.nextClearBit(0); slot < count; slot = released.nextClearBit(slot + 1)) {
+            action.accept(decode(offsetAt(slot)));
+        }
+    }
+
+    @Override
+    public synchronized void forEachHeader(HeaderConsumer action) {
+        for (int slot = released.nextClearBit(0); slot < count; slot = released.nextClearBit(slot + 1)) {
+            int offset = offsetAt(slot);
+            action.accept(idAt(slot), Status.values()[buffer.get(offset + 4)],
+                    buffer.getLong(offset + 5), buffer.getLong(offset + 13));
+        }
+    }
+
+    /**
+     * Passes the raw bytes of every record still held by the source, in ID order.
+     * Used by BinaryTaskStorage to copy untouched records without decoding them.
+     *
+     * @param action the action receiving the ID and the encoded record
+     */
+    synchronized void forEachRecord(RecordConsumer action) throws IOException {
+        for (int slot = released.nextClearBit(0); slot < count; slot = released.nextClearBit(slot + 1)) {
+            int offset = offsetAt(slot);
+            int length = BinaryTaskStorage.RECORD_HEADER_SIZE + buffer.getInt(offset + 21);
+            byte[] record = new byte[length];
+            buffer.get(offset, record);
+            action.accept(idAt(slot), record);
+        }
+    }
+
+    interface RecordConsumer {
+        void accept(int id, byte[] record) throws IOException;
+    }
+
+    /**
+     * Copies the file into the heap and unmaps it, so the file can be replaced while the source is in use.
+     * Windows refuses to rename over a mapped file, or to rename it to the backup generation.
+     * Nothing is copied once every task was taken or removed.
+     */
+    synchronized void detach() {
+        if (buffer instanceof MappedByteBuffer mapped) {
+            if (remaining > 0) {
+                buffer = ByteBuffer.allocate(mapped.capacity()).put(0, mapped, 0, mapped.capacity());
+            } else {
+                buffer = null;
+            }
+            unmap(mapped);
+        }
+    }
+
+    /**
+     * Unmaps the file once every task was read, without copying it. The source must not be used afterwards.
+     */
+    synchronized void close() {
+        if (buffer instanceof MappedByteBuffer mapped) {
+            buffer = null;
+            unmap(mapped);
+        }
+    }
+
+    /**
+     * Releases the mapping now rather than when the buffer is collected. Unsafe.invokeCleaner is the only way
+     * to do it before the foreign memory API, if it is not accessible the collector releases the mapping later.
+     */
+    private static void unmap(MappedByteBuffer mapped) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(field.get(null), mapped);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Left to the collector
+        }
+    }
+
+    private void release(int slot) {
+        released.set(slot);
+        remaining--;
+    }
+
+    /**
+     * Binary searches the index for the given ID.
+     *
+     * @return the slot of the task, or -1 if it is not held by the source
+     */
+    private int slotOf(int id) {
+        if (remaining == 0) {
+            return -1;
+        }
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midId = idAt(mid);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return released.get(mid) ? -1 : mid;
+            }
+        }
+        return -1;
+    }
+
+    private int idAt(int slot) {
+        return buffer.getInt(indexOffset + slot * BinaryTaskStorage.INDEX_ENTRY_SIZE);
+    }
+
+    private int offsetAt(int slot) {
+        return buffer.getInt(indexOffset + slot * BinaryTaskStorage.INDEX_ENTRY_SIZE + 4);
+    }
+
+    private Task decode(int offset) {
+        int id = buffer.getInt(offset);
+        Status status = Status.values()[buffer.get(offset + 4)];
+        LocalDateTime createdAt = Task.fromEpochMillis(buffer.getLong(offset + 5));
+        LocalDateTime updatedAt = Task.fromEpochMillis(buffer.getLong(offset + 13));
+        byte[] description = new byte[buffer.getInt(offset + 21)];
+        buffer.get(offset + BinaryTaskStorage.RECORD_HEADER_SIZE, description);
+        return Task.restore(id, new String(description, StandardCharsets.UTF_8), status, createdAt, updatedAt);
+    }
+}
@@ -0,0 +1,200 @@
+package dev.shoangenes.tasktracker;
+
+import jdk.jfr.FlightRecorder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide registry of the timers and counters of the task tracker.
+ * Timers record into a LatencyHistogram and commit an OperationEvent while JFR is recording, counters are plain
+ * atomic longs. The metrics are printed by the 'stats' command, as text or JSON, and can be appended as one JSON
+ * line per run to the file named by TASK_TRACKER_METRICS_LOG.
+ */
+public final class Metrics {
+    // System property and environment variable naming the file receiving the metrics of every run
+    static final String LOG_PROPERTY = "tasktracker.metrics.log";
+    static final String LOG_ENV_VARIABLE = "TASK_TRACKER_METRICS_LOG";
+
+    private static final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private static final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    // Timers of the operations instrumented by the tracker itself
+    static final Timer LOAD = timer("load");
+    static final Timer JSON_READ = timer("json.read");
+    static final Timer SAVE = timer("save");
+    static final Timer INDEX_UPDATE = timer("index.update");
+    static final Timer INDEX_BUILD = timer("index.build");
+    static final Timer ARCHIVE_READ = timer("archive.read");
+    static final Timer ARCHIVE_WRITE = timer("archive.write");
+
+    private Metrics() {
+    }
+
+    /**
+     * A named duration metric. Callers keep the instance, so recording never looks up the registry.
+     */
+    public static final class Timer {
+        private final String name;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        private Timer(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Starts timing an operation.
+         *
+         * @return the start time to pass to stop()
+         */
+        public long start() {
+            return System.nanoTime();
+        }
+
+        /**
+         * Records the duration of an operation started with start().
+         *
+         * @param start the value returned by start(), or any System.nanoTime() reading
+         */
+        public void stop(long start) {
+            long elapsed = System.nanoTime() - start;
+            histogram.record(elapsed);
+            // Creating the first event initialises the JFR metadata, which costs more than a whole command,
+            // so events are only created once a recording has started JFR
+            if (FlightRecorder.isInitialized()) {
+                OperationEvent.emit(name, elapsed);
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public LatencyHistogram getHistogram() {
+            return histogram;
+        }
+    }
+
+    /**
+     * Returns the timer with the given name, creating it on first use.
+     *
+     * @param name the name of the timer
+     * @return the Timer
+     */
+    public static Timer timer(String name) {
+        return timers.computeIfAbsent(name, Timer::new);
+    }
+
+    /**
+     * Returns the counter with the given name, creating it on first use.
+     *
+     * @param name the name of the counter
+     * @return the counter
+     */
+    public static AtomicLong counter(String name) {
+        return counters.computeIfAbsent(name, key -> new AtomicLong());
+    }
+
+    /**
+     * Clears every timer and counter, the registered names are kept.
+     */
+    static void reset() {
+        timers.values().forEach(timer -> timer.histogram.reset());
+        counters.values().forEach(counter -> counter.set(0));
+    }
+
+    /**
+     * Prints every timer that recorded something, with its count and latencies in milliseconds, then every
+     * counter.
+     *
+     * @param out the stream receiving the metrics
+     */
+    static void printText(PrintStream out) {
+        out.printf(Locale.ROOT, "%-24s %8s %10s %10s %10s %10s %10s%n", "operation", "count", "total ms",
+                "p50 ms", "p99 ms", "max ms", "mean ms");
+        for (Timer timer : new TreeMap<>(timers).values()) {
+            LatencyHistogram histogram = timer.histogram;
+            long count = histogram.getCount();
+            if (count == 0) {
+                continue;
+            }
+            out.printf(Locale.ROOT, "%-24s %8d %10.3f %10.3f %10.3f %10.3f %10.3f%n", timer.name, count,
+                    millis(histogram.getTotalNanos()), millis(histogram.getPercentileNanos(50)),
+                    millis(histogram.getPercentileNanos(99)), millis(histogram.getMaxNanos()),
+                    millis(histogram.getTotalNanos() / count));
+        }
+        for (Map.Entry<String, AtomicLong> counter : new TreeMap<>(counters).entrySet()) {
+            out.printf(Locale.ROOT, "%-24s %8d%n", counter.getKey(), counter.getValue().get());
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /**
+     * Returns every timer and counter as one JSON object on a single line, durations in nanoseconds.
+     *
+     * @return the JSON object
+     */
+    static String toJson() {
+        StringBuilder json = new StringBuilder("{\"timers\":{");
+        boolean first = true;
+        for (Timer timer : new TreeMap<>(timers).values()) {
+            LatencyHistogram histogram = timer.histogram;
+            if (histogram.getCount() == 0) {
+                continue;
+            }
+            json.append(first ? "" : ",").append('"').append(timer.name).append("\":{")
+                    .append("\"count\":").append(histogram.getCount())
+                    .append(",\"totalNanos\":").append(histogram.getTotalNanos())
+                    .append(",\"p50Nanos\":").append(histogram.getPercentileNanos(50))
+                    .append(",\"p90Nanos\":").append(histogram.getPercentileNanos(90))
+                    .append(",\"p99Nanos\":").append(histogram.getPercentileNanos(99))
+                    .append(",\"maxNanos\":").append(histogram.getMaxNanos())
+                    .append('}');
+            first = false;
+        }
+        json.append("},\"counters\":{");
+        first = true;
+        for (Map.Entry<String, AtomicLong> counter : new TreeMap<>(counters).entrySet()) {
+            json.append(first ? "" : ",").append('"').append(counter.getKey()).append("\":")
+                    .append(counter.getValue().get());
+            first = false;
+        }
+        return json.append("}}").toString();
+    }
+
+    /**
+     * Appends the metrics of this run as one JSON line to the file named by the tasktracker.metrics.log system
+     * property or the TASK_TRACKER_METRICS_LOG environment variable, if any. A failure is reported on stderr
+     * and never fails the command.
+     *
+     * @param command the command that was run
+     */
+    static void appendToLog(String command) {
+        String path = System.getProperty(LOG_PROPERTY, System.getenv(LOG_ENV_VARIABLE));
+        if (path == null || path.isBlank()) {
+            return;
+        }
+        StringBuilder line = new StringBuilder("{\"at\":\"").append(Instant.now()).append("\",\"command\":\"");
+        Task.appendEscaped(line, command);
+        line.append("\",\"metrics\":").append(toJson()).append("}\n");
+        try {
+            Files.writeString(Path.of(path), line, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("Warning: could not write metrics to " + path + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package dev.shoangenes.tasktracker;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event committed for every timed operation while a recording is running, so a recording taken in
+ * production shows the loads, saves, commands and index updates next to the GC and I/O events of the JVM.
+ * Enable it with -XX:StartFlightRecording or jcmd JFR.start, it is on in the default settings.
+ */
+@Name("dev.shoangenes.tasktracker.Operation")
+@Label("Task Tracker Operation")
+@Category("Task Tracker")
+@Description("A load, save, command or index update of the task tracker")
+@StackTrace(false)
+class OperationEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+
+    /**
+     * Commits an event for an operation if a recording enables it.
+     *
+     * @param operation the name of the timer
+     * @param elapsed the duration in nanoseconds
+     */
+    static void emit(String operation, long elapsed) {
+        OperationEvent event = new OperationEvent();
+        if (event.isEnabled()) {
+            event.operation = operation;
+            event.elapsed = elapsed;
+            event.commit();
+        }
+    }
+}
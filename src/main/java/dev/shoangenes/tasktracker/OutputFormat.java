@@ -0,0 +1,10 @@
+package dev.shoangenes.tasktracker;
+
+/**
+ * Formats in which listed tasks are written.
+ * TEXT is the human-readable line of Task.toString(), JSONL writes one JSON object per line and CSV writes a
+ * header row followed by one row per task.
+ */
+public enum OutputFormat {
+    TEXT, JSONL, CSV
+}
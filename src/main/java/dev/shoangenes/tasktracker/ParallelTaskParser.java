@@ -0,0 +1,196 @@
+package dev.shoangenes.tasktracker;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Parses a large tasks.json file on several threads.
+ *
+ * The file is cut into slices right before a task object: JSON strings cannot hold a raw line break, so a line
+ * break followed by whitespace and '{' is always outside a string, and since tasks are flat objects the '{'
+ * opens a task. Every slice is parsed by its own TaskJsonReader, Task IDs are advanced with a compare-and-set,
+ * so the last saved ID ends up past every parsed task whatever the order of the threads.
+ *
+ * A file holding nested values in unknown fields could be cut inside a task, the slices then fail to parse and
+ * the caller falls back to the sequential reader, which also reports the error with its real line.
+ */
+final class ParallelTaskParser {
+    // Smaller files are parsed faster by the sequential reader than split
+    static final long PARALLEL_THRESHOLD = 8L * 1024 * 1024;
+    // Lower bound of a slice, so a slice is worth handing to another thread
+    private static final long MIN_CHUNK_SIZE = 1024 * 1024;
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private ParallelTaskParser() {
+    }
+
+    /**
+     * Parses the tasks of the file on the given pool.
+     *
+     * @param file the JSON file holding a tasks array
+     * @param pool the pool running the slices, one slice per thread or more
+     * @return the parsed tasks, one list per slice in file order, or null if the file could not be split or
+     *         a slice could not be parsed, in which case the sequential reader must be used
+     * @throws TaskStorageException if the file cannot be read
+     */
+    static List<List<Task>> parse(Path file, ForkJoinPool pool) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int chunks = (int) Math.max(1, Math.min(pool.getParallelism() * 2L, size / MIN_CHUNK_SIZE));
+            List<Long> boundaries = boundaries(channel, size, chunks);
+            if (boundaries == null) {
+                return null;
+            }
+
+            List<Callable<List<Task>>> slices = new ArrayList<>();
+            for (int i = 0; i + 1 < boundaries.size(); i++) {
+                long start = boundaries.get(i);
+                long end = boundaries.get(i + 1);
+                boolean first = i == 0;
+                boolean last = i + 2 == boundaries.size();
+                slices.add(() -> parseSlice(channel, start, end, first, last));
+            }
+            List<List<Task>> tasks = new ArrayList<>(slices.size());
+            for (Future<List<Task>> slice : pool.invokeAll(slices)) {
+                tasks.add(slice.get());
+            }
+            return tasks;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TaskStorageException) {
+                return null;
+            }
+            throw new TaskStorageException("Error reading tasks from " + file, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TaskStorageException("Interrupted while reading tasks from " + file, e);
+        } catch (IOException e) {
+            throw new TaskStorageException("Error reading tasks from " + file, e);
+        }
+    }
+
+    /**
+     * Finds the offsets cutting the file into about the given number of slices.
+     *
+     * @return the start of every slice followed by the file size, or null if the file does not start an array
+     */
+    private static List<Long> boundaries(FileChannel channel, long size, int chunks) throws IOException {
+        List<Long> boundaries = new ArrayList<>(chunks + 1);
+        boundaries.add(0L);
+        long previous = 0;
+        for (int i = 1; i < chunks; i++) {
+            long boundary = nextTaskStart(channel, Math.max(previous + 1, size * i / chunks), size);
+            if (boundary < 0) {
+                break;
+            }
+            if (boundary > previous) {
+                boundaries.add(boundary);
+                previous = boundary;
+            }
+        }
+        boundaries.add(size);
+        return boundaries.size() > 2 ? boundaries : null;
+    }
+
+    /**
+     * Returns the offset of the first line break at or after the given offset that is followed by whitespace
+     * and '{', or -1 if there is none. The slice then starts right after the line break.
+     */
+    private static long nextTaskStart(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        boolean afterLineBreak = false;
+        long lineBreak = -1;
+        for (long position = from; position < size; ) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                return -1;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = buffer.get(i);
+                if (b == '\n') {
+                    afterLineBreak = true;
+                    lineBreak = position + i + 1;
+                } else if (afterLineBreak && b == '{') {
+                    return lineBreak;
+                } else if (afterLineBreak && b != ' ' && b != '\t' && b != '\r') {
+                    afterLineBreak = false;
+                }
+            }
+            position += read;
+        }
+        return -1;
+    }
+
+    private static List<Task> parseSlice(FileChannel channel, long start, long end, boolean first, boolean last) {
+        List<Task> tasks = new ArrayList<>();
+        // The reader is not closed, that would close the channel shared by the slices
+        TaskJsonReader reader = new TaskJsonReader(new InputStreamReader(
+                new RangeInputStream(channel, start, end), StandardCharsets.UTF_8));
+        reader.readChunk(tasks::add, first, last);
+        return tasks;
+    }
+
+    /**
+     * Reads a range of a file with positional reads, so several ranges of one channel are read concurrently.
+     */
+    private static class RangeInputStream extends InputStream {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE).limit(0);
+        private long position;
+        private final long end;
+
+        RangeInputStream(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!buffer.hasRemaining() && !fill()) {
+                return -1;
+            }
+            return buffer.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining() && !fill()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        private boolean fill() throws IOException {
+            if (position >= end) {
+                return false;
+            }
+            buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                return false;
+            }
+            position += read;
+            buffer.flip();
+            return true;
+        }
+    }
+}
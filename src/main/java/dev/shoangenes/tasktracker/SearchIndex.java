@@ -0,0 +1,372 @@
+package dev.shoangenes.tasktracker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * In-memory inverted index over task descriptions.
+ * Descriptions are split into lowercase tokens of letters and digits, and every token maps to the sorted IDs of
+ * the tasks containing it. Tokens are kept in a sorted map so that prefix queries read a contiguous range.
+ *
+ * Like StatusIndex, the index is built on first use and then updated incrementally with idempotent updates,
+ * searches share a read lock and updates and the build take the write lock. An update only checks whether the
+ * index is built once it holds the lock, so one racing with the build is applied after it rather than dropped.
+ */
+class SearchIndex {
+    private static final int MAGIC = 0x54545349; // "TTSI"
+    private static final int VERSION = 1;
+
+    private final NavigableMap<String, PostingList> postings = new TreeMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean built;
+    // Set when the index no longer matches the persisted copy
+    private boolean modified;
+
+    /**
+     * Builds the index if it has not been built yet.
+     *
+     * @param scan the scan feeding the ID and description of every task to the given sink
+     */
+    void ensureBuilt(Consumer<BiConsumer<Integer, String>> scan) {
+        if (built) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!built) {
+                scan.accept(this::insert);
+                built = true;
+                modified = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Checks if the index was built or loaded.
+     *
+     * @return true if the index is ready, false otherwise
+     */
+    boolean isBuilt() {
+        return built;
+    }
+
+    /**
+     * Indexes the description of a new task.
+     *
+     * @param id the unique identifier of the task
+     * @param description the description of the task
+     */
+    void add(int id, String description) {
+        update(id, null, description);
+    }
+
+    /**
+     * Removes the description of a deleted task from the index.
+     *
+     * @param id the unique identifier of the task
+     * @param description the description of the task when it was deleted
+     */
+    void remove(int id, String description) {
+        update(id, description, null);
+    }
+
+    /**
+     * Replaces the indexed description of a task.
+     *
+     * @param id the unique identifier of the task
+     * @param before the previous description, or null if the task is new
+     * @param after the new description, or null if the task was deleted
+     */
+    void update(int id, String before, String after) {
+        // Checked under the lock only: an update racing with the build must wait for it and apply after it
+        lock.writeLock().lock();
+        try {
+            if (!built) {
+                return;
+            }
+            if (before != null) {
+                for (String token : tokenize(before)) {
+                    PostingList list = postings.get(token);
+                    if (list != null && list.remove(id) && list.size == 0) {
+                        postings.remove(token);
+                    }
+                }
+            }
+            if (after != null) {
+                insert(id, after);
+            }
+            modified = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the tasks matching a query.
+     * Terms separated by spaces must all match, OR separates alternatives, and a term ending with * matches
+     * every token starting with it. For example "fix bug OR release*" matches tasks containing both "fix" and
+     * "bug", or a token starting with "release".
+     *
+     * @param query the query to evaluate
+     * @return the sorted IDs of the matching tasks
+     */
+    int[] search(String query) {
+        lock.readLock().lock();
+        try {
+            int[] result = new int[0];
+            for (String alternative : query.trim().split("\\s+OR\\s+")) {
+                int[] matches = null;
+                for (String term : alternative.trim().split("\\s+")) {
+                    if (term.isEmpty()) {
+                        continue;
+                    }
+                    int[] termMatches = matchTerm(term);
+                    matches = matches == null ? termMatches : intersect(matches, termMatches);
+                }
+                if (matches != null) {
+                    result = union(result, matches);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Matches a single query term, which may span several tokens (e.g. "e-mail") and end with a prefix wildcard.
+     */
+    private int[] matchTerm(String term) {
+        boolean prefix = term.endsWith("*");
+        List<String> tokens = tokenize(prefix ? term.substring(0, term.length() - 1) : term);
+        if (tokens.isEmpty()) {
+            return new int[0];
+        }
+        int[] matches = null;
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            int[] tokenMatches;
+            if (prefix && i == tokens.size() - 1) {
+                tokenMatches = new int[0];
+                for (PostingList list : postings.subMap(token, true, token + Character.MAX_VALUE, false).values()) {
+                    tokenMatches = union(tokenMatches, list.toArray());
+                }
+            } else {
+                PostingList list = postings.get(token);
+                tokenMatches = list == null ? new int[0] : list.toArray();
+            }
+            matches = matches == null ? tokenMatches : intersect(matches, tokenMatches);
+        }
+        return matches;
+    }
+
+    private void insert(int id, String description) {
+        for (String token : tokenize(description)) {
+            postings.computeIfAbsent(token, key -> new PostingList()).add(id);
+        }
+    }
+
+    /**
+     * Splits a text into distinct lowercase tokens made of letters and digits.
+     *
+     * @param text the text to split
+     * @return the tokens in order of first appearance
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean tokenChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (tokenChar && start < 0) {
+                start = i;
+            } else if (!tokenChar && start >= 0) {
+                String token = text.substring(start, i).toLowerCase();
+                if (!tokens.contains(token)) {
+                    tokens.add(token);
+                }
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Writes the index to a file, tagged with a fingerprint of the store it was built from.
+     * Nothing is written if the index was not built or did not change since it was loaded.
+     *
+     * @param path the file to write
+     * @param fingerprint the fingerprint of the stored tasks the index matches
+     * @throws TaskStorageException if the file cannot be written
+     */
+    void save(Path path, long fingerprint) {
+        lock.readLock().lock();
+        try {
+            if (!built || !modified) {
+                return;
+            }
+            Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(fingerprint);
+                out.writeInt(postings.size());
+                for (Map.Entry<String, PostingList> entry : postings.entrySet()) {
+                    byte[] token = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(token.length);
+                    out.write(token);
+                    PostingList list = entry.getValue();
+                    out.writeInt(list.size);
+                    for (int i = 0; i < list.size; i++) {
+                        out.writeInt(list.ids[i]);
+                    }
+                }
+            }
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            modified = false;
+        } catch (IOException e) {
+            throw new TaskStorageException("Error writing search index", e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Loads a persisted index if it was built from the store with the given fingerprint.
+     * A missing, stale or unreadable file is ignored and the index is built from the tasks instead.
+     *
+     * @param path the file to read
+     * @param fingerprint the fingerprint of the stored tasks
+     * @return true if the index was loaded, false otherwise
+     */
+    boolean load(Path path, long fingerprint) {
+        if (!Files.exists(path)) {
+            return false;
+        }
+        lock.writeLock().lock();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (built || in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != fingerprint) {
+                return false;
+            }
+            int terms = in.readInt();
+            for (int t = 0; t < terms; t++) {
+                String token = new String(in.readNBytes(in.readInt()), StandardCharsets.UTF_8);
+                int size = in.readInt();
+                PostingList list = new PostingList();
+                list.ids = new int[Math.max(4, size)];
+                for (int i = 0; i < size; i++) {
+                    list.ids[i] = in.readInt();
+                }
+                list.size = size;
+                postings.put(token, list);
+            }
+            built = true;
+            modified = false;
+            return true;
+        } catch (IOException | RuntimeException e) {
+            postings.clear();
+            return false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        if (a.length == 0) {
+            return b;
+        }
+        if (b.length == 0) {
+            return a;
+        }
+        int[] result = new int[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length || j < b.length) {
+            if (j == b.length || (i < a.length && a[i] < b[j])) {
+                result[n++] = a[i++];
+            } else if (i == a.length || b[j] < a[i]) {
+                result[n++] = b[j++];
+            } else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    /**
+     * Sorted array of task IDs, IDs are appended in the common case since new tasks get increasing IDs.
+     */
+    private static class PostingList {
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int id) {
+            int position;
+            if (size == 0 || ids[size - 1] < id) {
+                position = size;
+            } else {
+                position = Arrays.binarySearch(ids, 0, size, id);
+                if (position >= 0) {
+                    return;
+                }
+                position = -position - 1;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            ids[position] = id;
+            size++;
+        }
+
+        boolean remove(int id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+            return true;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package dev.shoangenes.tasktracker;
+
+import java.io.BufferedReader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Storage spreading the tasks over several JSON files, tasks-00.json to tasks-NN.json, next to tasks.json.
+ * A task lives in the shard given by its ID modulo the shard count, so a save only rewrites the shards holding
+ * a changed task, and a load reads every shard in parallel on the common fork-join pool.
+ *
+ * The shard count is fixed by the manifest, tasks.shards, written with the first save. Every shard is replaced
+ * atomically on its own, a save interrupted between two shards keeps the older version of the remaining ones.
+ * A store without a manifest is loaded from tasks.json and written to shards by its first save.
+ */
+public class ShardedTaskStorage implements TaskStorage {
+    // System property and environment variable setting the shard count of a new store
+    static final String SHARDS_PROPERTY = "tasktracker.shards";
+    static final String SHARDS_ENV_VARIABLE = "TASK_TRACKER_SHARDS";
+    static final int DEFAULT_SHARD_COUNT = 16;
+    static final int MAX_SHARD_COUNT = 1024;
+    private static final String LAYOUT = "id-modulo";
+
+    private final Path filePath;
+    private final Path manifestPath;
+    private int shardCount;
+    // Whether the next save must write every shard, because the store has no manifest yet
+    private boolean writeAll;
+
+    /**
+     * Constructor for ShardedTaskStorage.
+     *
+     * @param filePath the path of tasks.json, the shards and the manifest sit next to it
+     * @param shardCount the number of shards of a new store, an existing store keeps the count of its manifest
+     * @throws IllegalArgumentException if the shard count is out of range
+     * @throws TaskStorageException if the manifest cannot be read
+     */
+    public ShardedTaskStorage(Path filePath, int shardCount) {
+        if (shardCount < 1 || shardCount > MAX_SHARD_COUNT) {
+            throw new IllegalArgumentException("The shard count must be between 1 and " + MAX_SHARD_COUNT);
+        }
+        this.filePath = filePath;
+        this.manifestPath = filePath.resolveSibling(baseName() + ".shards");
+        this.shardCount = shardCount;
+        readManifest();
+    }
+
+    /**
+     * Resolves the shard count of a new store from the tasktracker.shards system property or the
+     * TASK_TRACKER_SHARDS environment variable, 16 by default.
+     *
+     * @return the configured shard count
+     * @throws TaskStorageException if the configured value is not a number
+     */
+    static int shardCountFromEnvironment() {
+        String value = System.getProperty(SHARDS_PROPERTY, System.getenv(SHARDS_ENV_VARIABLE));
+        if (value == null || value.isBlank()) {
+            return DEFAULT_SHARD_COUNT;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new TaskStorageException("Invalid shard count: " + value, e);
+        }
+    }
+
+    @Override
+    public Path getFilePath() {
+        return filePath;
+    }
+
+    /**
+     * Returns the number of shards of the store.
+     *
+     * @return the shard count
+     */
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * Returns the file holding the given shard.
+     *
+     * @param shard the shard number
+     * @return the path of the shard file
+     */
+    Path shardPath(int shard) {
+        return filePath.resolveSibling(String.format("%s-%02d.json", baseName(), shard));
+    }
+
+    private String baseName() {
+        String name = filePath.getFileName().toString();
+        return name.endsWith(".json") ? name.substring(0, name.length() - ".json".length()) : name;
+    }
+
+    private int shardOf(int id) {
+        return Math.floorMod(id, shardCount);
+    }
+
+    @Override
+    public List<Path> getDataFiles() {
+        List<Path> files = new ArrayList<>(shardCount + 2);
+        files.add(manifestPath);
+        for (int shard = 0; shard < shardCount; shard++) {
+            files.add(shardPath(shard));
+        }
+        files.add(filePath);
+        return files;
+    }
+
+    /**
+     * Loads every shard in parallel, then hands the tasks to the map from the calling thread, so the map does
+     * not need to be thread-safe. A store without a manifest is read from tasks.json.
+     *
+     * @param tasks the map receiving the tasks with their IDs as keys
+     * @throws TaskStorageException if a shard and its previous generation are both damaged
+     */
+    @Override
+    public synchronized void load(Map<Integer, Task> tasks) {
+        readManifest();
+        if (writeAll) {
+            JsonTaskStorage.readTasks(filePath, tasks);
+            return;
+        }
+        // Parallel streams run on the common fork-join pool, one shard per task
+        List<List<Task>> shards = IntStream.range(0, shardCount).parallel()
+                .mapToObj(shard -> readShard(shardPath(shard)))
+                .toList();
+        for (List<Task> shard : shards) {
+            for (Task task : shard) {
+                tasks.put(task.getId(), task);
+            }
+        }
+    }
+
+    private static List<Task> readShard(Path path) {
+        long start = Metrics.JSON_READ.start();
+        List<Task> tasks = new ArrayList<>();
+        CheckedFile.read(path, reader -> {
+            try (TaskJsonReader json = new TaskJsonReader(reader)) {
+                json.readTasks(tasks::add);
+            }
+        }, tasks::clear);
+        Metrics.JSON_READ.stop(start);
+        return tasks;
+    }
+
+    @Override
+    public synchronized void save(Collection<Task> tasks) {
+        writeShards(tasks, allShards());
+    }
+
+    /**
+     * Rewrites only the shards holding a changed task.
+     *
+     * @param tasks every task currently held by the manager
+     * @param changes the IDs of the tasks changed since the last save, with how they changed
+     */
+    @Override
+    public synchronized void save(Collection<Task> tasks, Map<Integer, ChangeType> changes) {
+        boolean[] dirty = new boolean[shardCount];
+        for (int id : changes.keySet()) {
+            dirty[shardOf(id)] = true;
+        }
+        writeShards(tasks, dirty);
+    }
+
+    private boolean[] allShards() {
+        boolean[] all = new boolean[shardCount];
+        Arrays.fill(all, true);
+        return all;
+    }
+
+    private synchronized void writeShards(Collection<Task> tasks, boolean[] dirty) {
+        if (writeAll) {
+            dirty = allShards();
+        }
+        List<List<Task>> buckets = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            buckets.add(dirty[shard] ? new ArrayList<>() : null);
+        }
+        for (Task task : tasks) {
+            List<Task> bucket = buckets.get(shardOf(task.getId()));
+            if (bucket != null) {
+                bucket.add(task);
+            }
+        }
+        IntStream.range(0, shardCount).parallel()
+                .filter(shard -> buckets.get(shard) != null)
+                .forEach(shard -> JsonTaskStorage.writeTasks(shardPath(shard), buckets.get(shard)));
+        if (writeAll) {
+            // Written last, so a crash while the shards are written leaves the store readable from tasks.json
+            CheckedFile.write(manifestPath, writer -> writer.write("shards=" + shardCount + "\nlayout=" + LAYOUT + "\n"));
+            writeAll = false;
+        }
+    }
+
+    /**
+     * Reads the shard count from the manifest, or marks the store as not sharded yet if it has none.
+     */
+    private synchronized void readManifest() {
+        int[] count = {-1};
+        CheckedFile.read(manifestPath, reader -> {
+            String line;
+            BufferedReader lines = new BufferedReader(reader);
+            while ((line = lines.readLine()) != null) {
+                String[] entry = line.split("=", 2);
+                if (entry.length != 2) {
+                    continue;
+                }
+                if (entry[0].equals("shards")) {
+                    count[0] = parseShardCount(entry[1]);
+                } else if (entry[0].equals("layout") && !entry[1].equals(LAYOUT)) {
+                    throw new TaskStorageException("Unknown shard layout in " + manifestPath + ": " + entry[1]);
+                }
+            }
+            if (count[0] < 0) {
+                throw new TaskStorageException("Missing shard count in " + manifestPath);
+            }
+        }, () -> count[0] = -1);
+        if (count[0] < 0) {
+            writeAll = true;
+            return;
+        }
+        shardCount = count[0];
+        writeAll = false;
+    }
+
+    private int parseShardCount(String value) {
+        try {
+            int count = Integer.parseInt(value.trim());
+            if (count >= 1 && count <= MAX_SHARD_COUNT) {
+                return count;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new TaskStorageException("Invalid shard count in " + manifestPath + ": " + value);
+    }
+}
@@ -0,0 +1,140 @@
+package dev.shoangenes.tasktracker;
+
+import java.util.EnumMap;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Secondary index of task IDs partitioned by status.
+ * Filtered listings and per-status counts read one partition instead of scanning every task.
+ *
+ * The index is built on first use and then kept up to date incrementally. Updates run concurrently under a
+ * shared lock and the build takes the exclusive one, so an update racing with the build is applied after it,
+ * and every update is idempotent, which keeps the result consistent with the tasks.
+ */
+class StatusIndex {
+    private final EnumMap<Status, NavigableSet<Integer>> ids = new EnumMap<>(Status.class);
+    private final EnumMap<Status, AtomicInteger> counts = new EnumMap<>(Status.class);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean built;
+
+    StatusIndex() {
+        for (Status status : Status.values()) {
+            ids.put(status, new ConcurrentSkipListSet<>());
+            counts.put(status, new AtomicInteger());
+        }
+    }
+
+    /**
+     * Builds the index if it has not been built yet.
+     *
+     * @param scan the scan feeding the ID and status of every task to the given sink
+     */
+    void ensureBuilt(Consumer<TaskSource.StatusConsumer> scan) {
+        if (built) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!built) {
+                scan.accept(this::insert);
+                built = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a new task to the partition of its status.
+     *
+     * @param id the unique identifier of the task
+     * @param status the status of the task
+     */
+    void add(int id, Status status) {
+        lock.readLock().lock();
+        try {
+            if (built) {
+                insert(id, status);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Moves a task from the partition of its previous status to the partition of its new one.
+     *
+     * @param id the unique identifier of the task
+     * @param from the previous status of the task
+     * @param to the new status of the task
+     */
+    void move(int id, Status from, Status to) {
+        if (from == to) {
+            return;
+        }
+        lock.readLock().lock();
+        try {
+            if (built) {
+                delete(id, from);
+                insert(id, to);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a deleted task from the partition of its status.
+     *
+     * @param id the unique identifier of the task
+     * @param status the status of the task when it was deleted
+     */
+    void remove(int id, Status status) {
+        lock.readLock().lock();
+        try {
+            if (built) {
+                delete(id, status);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the IDs of the tasks with the given status in ascending order.
+     * The set is a live, weakly consistent view.
+     *
+     * @param status the status to look up
+     * @return the IDs of the tasks with the status
+     */
+    NavigableSet<Integer> idsWith(Status status) {
+        return ids.get(status);
+    }
+
+    /**
+     * Returns the number of tasks with the given status.
+     *
+     * @param status the status to count
+     * @return the number of tasks with the status
+     */
+    int count(Status status) {
+        return counts.get(status).get();
+    }
+
+    private void insert(int id, Status status) {
+        if (ids.get(status).add(id)) {
+            counts.get(status).incrementAndGet();
+        }
+    }
+
+    private void delete(int id, Status status) {
+        if (ids.get(status).remove(id)) {
+            counts.get(status).decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package dev.shoangenes.tasktracker;
+
+import java.nio.file.Path;
+
+public enum StorageType {
+    JSON, JOURNAL, BINARY, SHARDED;
+
+    // System property and environment variable used to select the storage engine
+    static final String PROPERTY = "tasktracker.storage";
+    static final String ENV_VARIABLE = "TASK_TRACKER_STORAGE";
+
+    /**
+     * Creates the storage engine of this type for the given tasks file.
+     *
+     * @param filePath the path of the tasks.json file
+     * @return a new TaskStorage
+     */
+    public TaskStorage create(Path filePath) {
+        return switch (this) {
+            case JSON -> new JsonTaskStorage(filePath, JsonTaskStorage.lazyFromEnvironment(),
+                    JsonTaskStorage.compactFromEnvironment());
+            case JOURNAL -> new JournalTaskStorage(filePath);
+            case BINARY -> new BinaryTaskStorage(BinaryTaskStorage.binaryPathFor(filePath));
+            case SHARDED -> new ShardedTaskStorage(filePath, ShardedTaskStorage.shardCountFromEnvironment());
+        };
+    }
+
+    /**
+     * Resolves the storage type from the tasktracker.storage system property or the
+     * TASK_TRACKER_STORAGE environment variable, defaulting to JSON.
+     *
+     * @return the configured StorageType
+     * @throws TaskStorageException if the configured value is not a known storage type
+     */
+    public static StorageType fromEnvironment() {
+        String value = System.getProperty(PROPERTY, System.getenv(ENV_VARIABLE));
+        if (value == null || value.isBlank()) {
+            return JSON;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new TaskStorageException("Unknown storage type: " + value, e);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package dev.shoangenes.tasktracker;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Lock coordinating the processes sharing a task store, held on a lock file next to the data files.
+ * The lock file also holds the version of the store, incremented by every save, and the highest task ID handed
+ * out by any process, so processes never allocate the same ID.
+ *
+ * File locks belong to the whole JVM and are released when any channel on the file is closed, so every
+ * StoreLock on the same file within the JVM shares one channel, and a reentrant lock serializes the threads
+ * before the file lock is taken.
+ */
+final class StoreLock implements AutoCloseable {
+    private static final int VERSION_OFFSET = 0;
+    private static final int LAST_ID_OFFSET = 8;
+    private static final Map<Path, Shared> OPEN = new HashMap<>();
+
+    private static final class Shared {
+        private final Path path;
+        private final FileChannel channel;
+        private final ReentrantLock lock = new ReentrantLock();
+        private FileLock fileLock;
+        private int references;
+
+        private Shared(Path path, FileChannel channel) {
+            this.path = path;
+            this.channel = channel;
+        }
+    }
+
+    private final Shared shared;
+    private boolean closed;
+
+    private StoreLock(Shared shared) {
+        this.shared = shared;
+    }
+
+    /**
+     * Returns the lock file guarding the store whose main file is given.
+     *
+     * @param dataPath the main file of the store
+     * @return the path of the lock file
+     */
+    static Path lockPathFor(Path dataPath) {
+        return dataPath.resolveSibling(dataPath.getFileName() + ".lock");
+    }
+
+    /**
+     * Opens the lock file, creating it if needed.
+     *
+     * @param lockPath the path of the lock file
+     * @return a StoreLock that must be closed once the store is no longer used
+     * @throws TaskStorageException if the lock file cannot be opened
+     */
+    static StoreLock open(Path lockPath) {
+        Path key = lockPath.toAbsolutePath().normalize();
+        synchronized (OPEN) {
+            Shared shared = OPEN.get(key);
+            if (shared == null) {
+                try {
+                    shared = new Shared(key, FileChannel.open(key, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                            StandardOpenOption.WRITE));
+                } catch (IOException e) {
+                    throw new TaskStorageException("Error opening lock file " + key, e);
+                }
+                OPEN.put(key, shared);
+            }
+            shared.references++;
+            return new StoreLock(shared);
+        }
+    }
+
+    /**
+     * Runs the action while holding the lock, the lock is reentrant.
+     *
+     * @param action the action to run
+     * @return the result of the action
+     * @throws TaskStorageException if the file lock cannot be taken
+     */
+    <T> T locked(Supplier<T> action) {
+        lock();
+        try {
+            return action.get();
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * Runs the action while holding the lock, the lock is reentrant.
+     *
+     * @param action the action to run
+     * @throws TaskStorageException if the file lock cannot be taken
+     */
+    void locked(Runnable action) {
+        locked(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private void lock() {
+        shared.lock.lock();
+        if (shared.lock.getHoldCount() > 1) {
+            return;
+        }
+        try {
+            shared.fileLock = shared.channel.lock();
+        } catch (IOException e) {
+            shared.lock.unlock();
+            throw new TaskStorageException("Error locking " + shared.path, e);
+        }
+    }
+
+    private void unlock() {
+        try {
+            if (shared.lock.getHoldCount() == 1) {
+                shared.fileLock.release();
+                shared.fileLock = null;
+            }
+        } catch (IOException e) {
+            throw new TaskStorageException("Error unlocking " + shared.path, e);
+        } finally {
+            shared.lock.unlock();
+        }
+    }
+
+    /**
+     * Reads the version of the store, the lock must be held.
+     *
+     * @return the number of saves since the lock file was created
+     */
+    long readVersion() {
+        return read(VERSION_OFFSET, Long.BYTES).getLong();
+    }
+
+    /**
+     * Writes the version of the store, the lock must be held.
+     *
+     * @param version the new version
+     */
+    void writeVersion(long version) {
+        write(VERSION_OFFSET, ByteBuffer.allocate(Long.BYTES).putLong(0, version));
+    }
+
+    /**
+     * Reads the highest task ID handed out by any process, the lock must be held.
+     *
+     * @return the highest allocated ID, 0 if none was recorded
+     */
+    int readLastId() {
+        return read(LAST_ID_OFFSET, Integer.BYTES).getInt();
+    }
+
+    /**
+     * Writes the highest task ID handed out, the lock must be held.
+     *
+     * @param lastId the highest allocated ID
+     */
+    void writeLastId(int lastId) {
+        write(LAST_ID_OFFSET, ByteBuffer.allocate(Integer.BYTES).putInt(0, lastId));
+    }
+
+    private ByteBuffer read(int offset, int length) {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        try {
+            while (buffer.hasRemaining() && shared.channel.read(buffer, offset + buffer.position()) > 0) {
+                // A lock file shorter than the field reads as zero
+            }
+        } catch (IOException e) {
+            throw new TaskStorageException("Error reading " + shared.path, e);
+        }
+        return buffer.clear();
+    }
+
+    private void write(int offset, ByteBuffer buffer) {
+        try {
+            while (buffer.hasRemaining()) {
+                shared.channel.write(buffer, offset + buffer.position());
+            }
+        } catch (IOException e) {
+            throw new TaskStorageException("Error writing " + shared.path, e);
+        }
+    }
+
+    /**
+     * Releases this handle, the lock file is closed once every handle on it is released.
+     */
+    @Override
+    public void close() {
+        synchronized (OPEN) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (--shared.references > 0) {
+                return;
+            }
+            OPEN.remove(shared.path);
+            try {
+                shared.channel.close();
+            } catch (IOException e) {
+                throw new TaskStorageException("Error closing " + shared.path, e);
+            }
+        }
+    }
+}
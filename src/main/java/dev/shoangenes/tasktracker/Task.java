@@ -1,18 +1,31 @@
 package dev.shoangenes.tasktracker;
 
+import java.io.StringReader;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.ZoneOffset;
 
 class Task {
-    private static int lastIdSaved = 0;
+    // Allocated atomically through LAST_ID so that concurrent callers never share an ID
+    private static volatile int lastIdSaved = 0;
+    private static final VarHandle LAST_ID;
     private final int id;
-    private String description;
-    private Status status;
+    // Mutable state is volatile for readers and only written while holding the task's lock
+    private volatile String description;
+    private volatile Status status;
     private final LocalDateTime createdAt;
-    private LocalDateTime updatedAt;
+    private volatile LocalDateTime updatedAt;
 
+    static {
+        try {
+            LAST_ID = MethodHandles.lookup().findStaticVarHandle(Task.class, "lastIdSaved", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
 
-    private static final DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
 
     /**
      * Constructor for Task.
@@ -22,7 +35,7 @@ class Task {
      * @param description the description of the task
      */
     public Task(String description) {
-        this.id = ++lastIdSaved;
+        this.id = allocateId();
         this.description = description;
         this.status = Status.TODO; // Default status
         this.createdAt = LocalDateTime.now();
@@ -30,8 +43,8 @@ class Task {
     }
 
     /**
-     * Private constructor for Task used by the fromJson method.
-     * This constructor is used to create a Task object from JSON data, ensuring that the ID is unique and the status is correctly set.
+     * Private constructor for Task used when restoring stored tasks.
+     * This constructor is used to create a Task object from stored data, ensuring that the ID is unique and the status is correctly set.
      *
      * @param id the unique identifier for the task
      * @param description the description of the task
@@ -56,6 +69,24 @@ class Task {
         return id;
     }
 
+    /**
+     * Gets the timestamp when the task was created.
+     *
+     * @return the creation timestamp
+     */
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Gets the timestamp when the task was last updated.
+     *
+     * @return the last update timestamp
+     */
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
     /**
      * Gets the description of the task.
      * @return the description of the task
@@ -70,7 +101,7 @@ class Task {
      *
      * @param description the new description for the task
      */
-    public void updateDescription(String description) {
+    public synchronized void updateDescription(String description) {
         this.description = description;
         this.updatedAt = LocalDateTime.now();
     }
@@ -88,7 +119,7 @@ class Task {
      * Set the current status of the task as DONE.
      * This method updates the status of the task to DONE and sets the last modified timestamp to the current time.
      */
-    public void markAsDone() {
+    public synchronized void markAsDone() {
         this.status = Status.DONE;
         this.updatedAt = LocalDateTime.now();
     }
@@ -97,55 +128,180 @@ class Task {
      * Set the current status of the task as IN_PROGRESS.
      * This method updates the status of the task to IN_PROGRESS and sets the last modified timestamp to the current time.
      */
-    public void markAsInProgress() {
+    public synchronized void markAsInProgress() {
         this.status =Status.IN_PROGRESS;
         this.updatedAt = LocalDateTime.now();
     }
 
+    /**
+     * Restores a stored task with its original ID, status and timestamps.
+     * If the ID is greater than the last saved ID, the last saved ID is moved forward to keep new IDs unique.
+     *
+     * @param id the unique identifier of the task
+     * @param description the description of the task
+     * @param status the current status of the task
+     * @param createdAt the timestamp when the task was created
+     * @param updatedAt the timestamp when the task was last updated
+     * @return the restored Task
+     */
+    static Task restore(int id, String description, Status status, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        advanceLastId(id);
+        return new Task(id, description, status, createdAt, updatedAt);
+    }
+
+    /**
+     * Converts a timestamp to milliseconds since the epoch, reading it as UTC.
+     * Used wherever timestamps are stored or indexed as numbers.
+     *
+     * @param dateTime the timestamp to convert
+     * @return the milliseconds since the epoch
+     */
+    static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    /**
+     * Converts milliseconds since the epoch back to a timestamp, the inverse of toEpochMillis.
+     *
+     * @param epochMillis the milliseconds since the epoch
+     * @return the timestamp
+     */
+    static LocalDateTime fromEpochMillis(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC);
+    }
+
+    /**
+     * Gets the last ID handed out to a task.
+     *
+     * @return the last saved ID
+     */
+    static int getLastIdSaved() {
+        return lastIdSaved;
+    }
+
+    /**
+     * Hands out the next unused ID.
+     *
+     * @return the allocated ID
+     */
+    static int allocateId() {
+        return (int) LAST_ID.getAndAdd(1) + 1;
+    }
+
+    /**
+     * Moves the last saved ID forward so that new tasks never reuse an ID already allocated by the store.
+     *
+     * @param id an ID already in use
+     */
+    static void advanceLastId(int id) {
+        int last;
+        do {
+            last = lastIdSaved;
+            if (id <= last) {
+                return;
+            }
+        } while (!LAST_ID.compareAndSet(last, id));
+    }
+
     /**
      * Converts a JSON string representation of a task into a Task object.
-     * This method parses the JSON string, extracts the task details, and creates a new Task object.
-     * If the ID in the JSON is less than the last saved ID, it increments the ID to ensure uniqueness.
+     * This method parses the JSON object with TaskJsonReader, so fields may appear in any order and the description may contain escaped characters.
+     * If the ID in the JSON is greater than the last saved ID, the last saved ID is updated to ensure uniqueness.
      *
      * @param json the JSON string representation of a task
      * @return a Task object created from the JSON data
+     * @throws TaskStorageException if the JSON is not a valid task object
      */
     public static Task fromJson(String json) {
-        json = json.replace("{", "").replace("}", "").replaceAll("\"", "");
-        String[] line = json.split(",");
-
-        String idStr = line[0].split(":")[1].trim();
-        String description = line[1].split(":")[1].trim();
-        String statusStr = line[2].split(":")[1].trim();
-        String createdAtStr = line[3].split(":", 2)[1].trim();
-        String updatedAtStr = line[4].split(":", 2)[1].trim();
-
-        int id = Integer.parseInt(idStr);
-        if (id > lastIdSaved) {
-            lastIdSaved = id;
-        }
-        Status status = Status.valueOf(statusStr.toUpperCase().replace(" ", "_"));
-        LocalDateTime createdAt = LocalDateTime.parse(createdAtStr, formatter);
-        LocalDateTime updatedAt = LocalDateTime.parse(updatedAtStr, formatter);
-
-        return new Task(id,description,status,createdAt,updatedAt);
+        return new TaskJsonReader(new StringReader(json)).readTask();
     }
 
     /**
      * Converts the Task object into a JSON string representation.
      * This method formats the task details into a JSON string, including the ID, description, status, and timestamps.
+     * Quotes, backslashes and control characters in the description are escaped.
      *
      * @return a JSON string representation of the task
      */
-    public String toJson() {
-        return String.format(
-                "{\"id\":%d,\"description\":\"%s\",\"status\":\"%s\",\"createdAt\":\"%s\",\"updatedAt\":\"%s\"}",
-                id,
-                description,
-                status.name(),
-                createdAt.format(formatter),
-                updatedAt.format(formatter)
-        );
+    public synchronized String toJson() {
+        StringBuilder sb = new StringBuilder(96 + description.length());
+        appendJson(sb);
+        return sb.toString();
+    }
+
+    /**
+     * Appends the JSON representation of the task, the same as toJson(), without building an intermediate string.
+     *
+     * @param sb the StringBuilder to append to
+     */
+    synchronized void appendJson(StringBuilder sb) {
+        sb.append("{\"id\":").append(id).append(",\"description\":\"");
+        appendEscaped(sb, description);
+        sb.append("\",\"status\":\"").append(status.name()).append("\",\"createdAt\":\"");
+        IsoTimestamp.append(sb, createdAt);
+        sb.append("\",\"updatedAt\":\"");
+        IsoTimestamp.append(sb, updatedAt);
+        sb.append("\"}");
+    }
+
+    /**
+     * Appends the task as a CSV row: id, description, status, createdAt, updatedAt.
+     * The description is quoted when it holds a comma, a quote or a line break, with quotes doubled.
+     *
+     * @param sb the StringBuilder to append to
+     */
+    synchronized void appendCsv(StringBuilder sb) {
+        sb.append(id).append(',');
+        boolean quoted = false;
+        for (int i = 0; i < description.length() && !quoted; i++) {
+            char c = description.charAt(i);
+            quoted = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (quoted) {
+            sb.append('"');
+            for (int i = 0; i < description.length(); i++) {
+                char c = description.charAt(i);
+                sb.append(c);
+                if (c == '"') {
+                    sb.append('"');
+                }
+            }
+            sb.append('"');
+        } else {
+            sb.append(description);
+        }
+        sb.append(',').append(status.name()).append(',');
+        IsoTimestamp.append(sb, createdAt);
+        sb.append(',');
+        IsoTimestamp.append(sb, updatedAt);
+    }
+
+    /**
+     * Appends the value as the content of a JSON string, escaping the characters JSON does not allow verbatim.
+     *
+     * @param sb the StringBuilder to append to
+     * @param value the value to escape
+     */
+    static void appendEscaped(StringBuilder sb, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                case '\b' -> sb.append("\\b");
+                case '\f' -> sb.append("\\f");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
     }
 
     /**
@@ -155,11 +311,22 @@ class Task {
      * @return a string representation of the task
      */
     @Override
-    public String toString() {
-        return "id: " + id +
-                ", description: " + description +
-                ", status: " + status +
-                ", createdAt: " + createdAt +
-                ", updatedAt: " + updatedAt;
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder(96 + description.length());
+        appendText(sb);
+        return sb.toString();
+    }
+
+    /**
+     * Appends the human-readable representation of the task, the same as toString().
+     *
+     * @param sb the StringBuilder to append to
+     */
+    synchronized void appendText(StringBuilder sb) {
+        sb.append("id: ").append(id)
+                .append(", description: ").append(description)
+                .append(", status: ").append(status)
+                .append(", createdAt: ").append(createdAt)
+                .append(", updatedAt: ").append(updatedAt);
     }
 }
\ No newline at end of file
@@ -0,0 +1,248 @@
+package dev.shoangenes.tasktracker;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cold storage for tasks that are done and no longer touched, kept next to the store so the hot store stays small.
+ * Every archiving run appends one gzip-compressed segment of JSON lines, and segments are never rewritten.
+ * A small manifest holds the number of segments and tasks and the highest archived ID, which the manager reads
+ * on startup so a new task never reuses the ID of an archived one. Segments are only read when a listing asks
+ * for archived tasks.
+ */
+class TaskArchive {
+    // System property and environment variable setting the automatic policy, in days since the last update
+    static final String DAYS_PROPERTY = "tasktracker.archive.days";
+    static final String DAYS_ENV_VARIABLE = "TASK_TRACKER_ARCHIVE_DAYS";
+    // The automatic policy runs at most once in this many milliseconds
+    static final long POLICY_PERIOD_MILLIS = 24 * 60 * 60 * 1000L;
+
+    /**
+     * The manifest file, read and replaced as a whole.
+     */
+    private static final class Manifest {
+        private int segments;
+        private long count;
+        private int maxId;
+        // Time the automatic policy last ran, in epoch millis as returned by Task.toEpochMillis
+        private long policyRun;
+    }
+
+    private final Path directory;
+
+    /**
+     * Constructor for TaskArchive.
+     *
+     * @param directory the directory holding the segments and the manifest
+     */
+    TaskArchive(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the archive directory of the store whose main file is given.
+     *
+     * @param dataPath the main file of the store
+     * @return the path of the archive directory
+     */
+    static Path directoryFor(Path dataPath) {
+        return dataPath.resolveSibling(dataPath.getFileName() + ".archive");
+    }
+
+    /**
+     * Resolves the automatic policy from the tasktracker.archive.days system property or the
+     * TASK_TRACKER_ARCHIVE_DAYS environment variable.
+     *
+     * @return the number of days after which a done task is archived, or null if tasks are only archived on demand
+     * @throws TaskStorageException if the configured value is not a non-negative number
+     */
+    static Integer policyDaysFromEnvironment() {
+        String value = System.getProperty(DAYS_PROPERTY, System.getenv(DAYS_ENV_VARIABLE));
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            int days = Integer.parseInt(value.trim());
+            if (days >= 0) {
+                return days;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new TaskStorageException("Invalid number of days before archiving: " + value);
+    }
+
+    /**
+     * Returns the highest ID ever archived.
+     *
+     * @return the highest archived ID, 0 if nothing was archived
+     * @throws TaskStorageException if the manifest cannot be read
+     */
+    int getMaxId() {
+        return readManifest().maxId;
+    }
+
+    /**
+     * Returns the number of archived tasks.
+     *
+     * @return the number of tasks in every segment
+     * @throws TaskStorageException if the manifest cannot be read
+     */
+    long getCount() {
+        return readManifest().count;
+    }
+
+    /**
+     * Returns when the automatic policy is due next, a whole period after it last ran. The store lock must be held.
+     *
+     * @return the time the policy should run again in epoch millis
+     * @throws TaskStorageException if the manifest cannot be read
+     */
+    long getPolicyDueTime() {
+        return readManifest().policyRun + POLICY_PERIOD_MILLIS;
+    }
+
+    /**
+     * Records that the automatic policy ran, the store lock must be held.
+     *
+     * @param now the current time in epoch millis
+     * @throws TaskStorageException if the manifest cannot be written
+     */
+    void markPolicyRun(long now) {
+        Manifest manifest = readManifest();
+        manifest.policyRun = now;
+        writeManifest(manifest);
+    }
+
+    /**
+     * Appends the tasks as a new segment, the store lock must be held.
+     * The segment is synced and moved into place before the manifest counts it, so a failed append leaves the
+     * archive as it was.
+     *
+     * @param tasks the tasks to archive
+     * @throws TaskStorageException if the segment or the manifest cannot be written
+     */
+    void append(Collection<Task> tasks) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        long start = Metrics.ARCHIVE_WRITE.start();
+        Manifest manifest = readManifest();
+        Path segment = segmentPath(manifest.segments + 1);
+        Path tempPath = segment.resolveSibling(segment.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(directory);
+            try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                GZIPOutputStream gzip = new GZIPOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+                Writer writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8), 64 * 1024);
+                StringBuilder sb = new StringBuilder(256);
+                for (Task task : tasks) {
+                    sb.setLength(0);
+                    task.appendJson(sb);
+                    writer.append(sb).append('\n');
+                    manifest.maxId = Math.max(manifest.maxId, task.getId());
+                }
+                writer.flush();
+                gzip.finish();
+                channel.force(true);
+            }
+            Files.move(tempPath, segment, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new TaskStorageException("Error writing task archive segment " + segment, e);
+        }
+        manifest.segments++;
+        manifest.count += tasks.size();
+        writeManifest(manifest);
+        Metrics.ARCHIVE_WRITE.stop(start);
+    }
+
+    /**
+     * Performs the given action for every archived task, segment by segment in the order they were written.
+     *
+     * @param action the action to perform
+     * @throws TaskStorageException if a segment cannot be read
+     */
+    void forEach(Consumer<Task> action) {
+        long start = Metrics.ARCHIVE_READ.start();
+        int segments = readManifest().segments;
+        for (int number = 1; number <= segments; number++) {
+            Path segment = segmentPath(number);
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(segment), 64 * 1024), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isEmpty()) {
+                        action.accept(Task.fromJson(line));
+                    }
+                }
+            } catch (IOException e) {
+                throw new TaskStorageException("Error reading task archive segment " + segment, e);
+            }
+        }
+        Metrics.ARCHIVE_READ.stop(start);
+    }
+
+    private Path segmentPath(int number) {
+        return directory.resolve(String.format("segment-%06d.jsonl.gz", number));
+    }
+
+    private Manifest readManifest() {
+        Manifest manifest = new Manifest();
+        Path path = directory.resolve("manifest");
+        if (!Files.exists(path)) {
+            return manifest;
+        }
+        try {
+            for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                String[] fields = line.trim().split(" ");
+                if (fields.length != 2) {
+                    continue;
+                }
+                switch (fields[0]) {
+                    case "segments" -> manifest.segments = Integer.parseInt(fields[1]);
+                    case "count" -> manifest.count = Long.parseLong(fields[1]);
+                    case "maxId" -> manifest.maxId = Integer.parseInt(fields[1]);
+                    case "policyRun" -> manifest.policyRun = Long.parseLong(fields[1]);
+                    default -> {
+                        // Unknown keys are ignored
+                    }
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            throw new TaskStorageException("Error reading task archive manifest", e);
+        }
+        return manifest;
+    }
+
+    private void writeManifest(Manifest manifest) {
+        String content = "segments " + manifest.segments + "\n"
+                + "count " + manifest.count + "\n"
+                + "maxId " + manifest.maxId + "\n"
+                + "policyRun " + manifest.policyRun + "\n";
+        Path path = directory.resolve("manifest");
+        Path tempPath = directory.resolve("manifest.tmp");
+        try {
+            Files.createDirectories(directory);
+            Files.writeString(tempPath, content, StandardCharsets.UTF_8);
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new TaskStorageException("Error writing task archive manifest", e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package dev.shoangenes.tasktracker;
+
+/**
+ * A single mutation applied to the task store.
+ * The task holds the state after the change was applied and is null for DELETE changes.
+ *
+ * @param type the kind of mutation
+ * @param id the unique identifier of the affected task
+ * @param task the task after the mutation, or null if it was deleted
+ */
+public record TaskChange(ChangeType type, int id, Task task) {
+
+    /**
+     * Creates a change describing a mutation of the given task.
+     *
+     * @param type the kind of mutation
+     * @param task the task after the mutation
+     * @return a new TaskChange
+     */
+    static TaskChange of(ChangeType type, Task task) {
+        return new TaskChange(type, task.getId(), task);
+    }
+
+    /**
+     * Creates a change describing the deletion of a task.
+     *
+     * @param id the unique identifier of the deleted task
+     * @return a new TaskChange
+     */
+    static TaskChange deleted(int id) {
+        return new TaskChange(ChangeType.DELETE, id, null);
+    }
+}
@@ -0,0 +1,594 @@
+package dev.shoangenes.tasktracker;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * History of the changes applied to the tasks, kept next to the store as an event log with periodic snapshots.
+ * Every event holds the task before and after the change as JSON, so it can be undone and redone, and the tasks
+ * as they were at a past time are rebuilt from the nearest snapshot before that time and the events following it,
+ * never from the start of the history.
+ *
+ * Events are stamped and held in memory when recorded, and appended to the log by flush(), which runs under the
+ * store lock when the manager saves, so sequence numbers grow in the order events reach the log. A timestamp is
+ * never older than the one of the event before it, so past states are rebuilt from a prefix of the log. The log is
+ * split into segments of a fixed number of events, and every completed segment is followed by a snapshot of the
+ * tasks, built from the previous snapshot and the segment. The events of a bulk change are logged together as one
+ * group, which undo and redo apply as a unit. The log is not synced to disk: a flush interrupted
+ * before its head file was replaced is dropped on the next flush.
+ */
+class TaskHistory {
+    // System property and environment variable turning the history off
+    static final String PROPERTY = "tasktracker.history";
+    static final String ENV_VARIABLE = "TASK_TRACKER_HISTORY";
+    // Number of events between two snapshots
+    static final int DEFAULT_SNAPSHOT_INTERVAL = 1000;
+    // Number of changes that can be undone in a row
+    static final int UNDO_DEPTH = 1000;
+
+    private static final String NONE = "-";
+
+    /**
+     * How an event came to be: a change made by a command, or the undo or redo of an earlier change.
+     */
+    enum Kind {
+        CHANGE, UNDO, REDO
+    }
+
+    /**
+     * An event of the log.
+     *
+     * @param sequence the position of the event in the log, starting at 1
+     * @param time the time the event was recorded, in epoch millis as returned by Task.toEpochMillis
+     * @param kind how the event came to be
+     * @param reference the first sequence of the group of changes undone or redone, 0 for a change
+     * @param type the kind of mutation
+     * @param id the ID of the task
+     * @param before the task before the event as JSON, null if it did not exist
+     * @param after the task after the event as JSON, null if it was deleted
+     * @param continued true if the event belongs to the group of the event before it
+     */
+    record Event(long sequence, long time, Kind kind, long reference, ChangeType type, int id, String before,
+                 String after, boolean continued) {
+    }
+
+    /**
+     * An event recorded but not logged yet.
+     *
+     * @param kind how the event came to be
+     * @param reference the first sequence of the group of changes undone or redone, 0 for a change
+     * @param type the kind of mutation
+     * @param id the ID of the task
+     * @param before the task before the event as JSON, null if it did not exist
+     * @param after the task after the event as JSON, null if it was deleted
+     */
+    record Change(Kind kind, long reference, ChangeType type, int id, String before, String after) {
+    }
+
+    private record Pending(Change change, long time, boolean continued) {
+    }
+
+    /**
+     * The head file: the last event logged, the segment being written and the undo and redo stacks.
+     */
+    private static final class Head {
+        private long sequence;
+        private long time;
+        // Sequence of the first event of the segment being written, and its length once the head was written
+        private long segment = 1;
+        private long length;
+        // Sequences of the changes that can be undone, and of the undone changes that can be redone, last on top
+        private final ArrayDeque<Long> undo = new ArrayDeque<>();
+        private final ArrayDeque<Long> redo = new ArrayDeque<>();
+    }
+
+    private final Path directory;
+    private final int snapshotInterval;
+    private final Clock clock;
+    private final List<Pending> pending = new ArrayList<>();
+
+    TaskHistory(Path directory, Clock clock) {
+        this(directory, DEFAULT_SNAPSHOT_INTERVAL, clock);
+    }
+
+    /**
+     * Constructor for TaskHistory.
+     *
+     * @param directory the directory holding the log, the snapshots and the head file
+     * @param snapshotInterval the number of events between two snapshots
+     * @param clock the clock stamping the events when they are recorded
+     */
+    TaskHistory(Path directory, int snapshotInterval, Clock clock) {
+        if (snapshotInterval < 1) {
+            throw new IllegalArgumentException("Snapshot interval must be positive");
+        }
+        this.directory = directory;
+        this.snapshotInterval = snapshotInterval;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the history directory of the store whose main file is given.
+     *
+     * @param dataPath the main file of the store
+     * @return the path of the history directory
+     */
+    static Path directoryFor(Path dataPath) {
+        return dataPath.resolveSibling(dataPath.getFileName() + ".history");
+    }
+
+    /**
+     * Tells whether the history is kept, unless the tasktracker.history system property or the
+     * TASK_TRACKER_HISTORY environment variable is false.
+     *
+     * @return true if the history is kept
+     */
+    static boolean enabledFromEnvironment() {
+        String value = System.getProperty(PROPERTY, System.getenv(ENV_VARIABLE));
+        return value == null || value.isBlank() || Boolean.parseBoolean(value.trim());
+    }
+
+    /**
+     * Records an event, to be logged by the next flush.
+     *
+     * @param kind how the event came to be
+     * @param reference the sequence of the change undone or redone, 0 for a change
+     * @param type the kind of mutation
+     * @param id the ID of the task
+     * @param before the task before the event as JSON, null if it did not exist
+     * @param after the task after the event as JSON, null if it was deleted
+     */
+    synchronized void record(Kind kind, long reference, ChangeType type, int id, String before, String after) {
+        pending.add(new Pending(new Change(kind, reference, type, id, before, after), now(), false));
+    }
+
+    /**
+     * Records the events of one bulk change as a group, to be logged together by the next flush.
+     * All the events of a group have the same kind and reference.
+     *
+     * @param group the events in the order they were applied, nothing is recorded if it is empty
+     */
+    synchronized void recordGroup(List<Change> group) {
+        long time = now();
+        for (int i = 0; i < group.size(); i++) {
+            pending.add(new Pending(group.get(i), time, i > 0));
+        }
+    }
+
+    /**
+     * Appends the recorded events to the log, the store lock must be held.
+     * The first flush of a store starts its history with a snapshot of the stored tasks as they were before the
+     * recorded events.
+     *
+     * @param storedTasks supplies the tasks currently stored
+     * @param eventsStored true if the stored tasks already hold the recorded events, which are then reverted
+     * @throws TaskStorageException if the history cannot be written
+     */
+    synchronized void flush(Supplier<Map<Integer, Task>> storedTasks, boolean eventsStored) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        try {
+            Head head = readHead();
+            if (head == null) {
+                head = start(storedTasks.get(), eventsStored);
+            }
+            long time = head.time;
+            StringBuilder lines = new StringBuilder();
+            for (Pending event : pending) {
+                long sequence = ++head.sequence;
+                // Events recorded by other managers may have been logged with a later time already
+                time = Math.max(time, event.time());
+                appendLine(lines, sequence, time, event);
+                if (event.continued()) {
+                    // The stacks hold the first sequence of every group only
+                    continue;
+                }
+                Change change = event.change();
+                switch (change.kind()) {
+                    case CHANGE -> {
+                        push(head.undo, sequence);
+                        head.redo.clear();
+                    }
+                    case UNDO -> {
+                        head.undo.removeLastOccurrence(change.reference());
+                        push(head.redo, change.reference());
+                    }
+                    case REDO -> {
+                        head.redo.removeLastOccurrence(change.reference());
+                        push(head.undo, change.reference());
+                    }
+                }
+            }
+            head.time = time;
+
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+            try (FileChannel channel = FileChannel.open(segmentPath(head.segment), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE)) {
+                // Drops the events of a flush that was interrupted before its head file was written
+                channel.truncate(head.length);
+                channel.position(head.length);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            head.length += buffer.limit();
+            pending.clear();
+
+            if (head.sequence - head.segment + 1 >= snapshotInterval) {
+                Map<Integer, Task> tasks = new HashMap<>();
+                long from = replayFromSnapshot(latestSnapshot(Long.MAX_VALUE), head, Long.MAX_VALUE, tasks);
+                if (from != head.sequence) {
+                    throw new TaskStorageException("Task history ends at event " + from + " instead of " + head.sequence);
+                }
+                JsonTaskStorage.writeTasks(snapshotPath(head.sequence, head.time), tasks.values());
+                head.segment = head.sequence + 1;
+                head.length = 0;
+            }
+            writeHead(head);
+        } catch (IOException e) {
+            throw new TaskStorageException("Error writing task history", e);
+        }
+    }
+
+    /**
+     * Starts a new history with a snapshot of the tasks before the recorded events.
+     * Files of a history whose head was lost are removed first.
+     */
+    private Head start(Map<Integer, Task> tasks, boolean eventsStored) throws IOException {
+        if (eventsStored) {
+            for (int i = pending.size() - 1; i >= 0; i--) {
+                Change event = pending.get(i).change();
+                if (event.before() == null) {
+                    tasks.remove(event.id());
+                } else {
+                    tasks.put(event.id(), Task.fromJson(event.before()));
+                }
+            }
+        }
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Head head = new Head();
+        // The snapshot holds the tasks as they were when the first event was recorded
+        head.time = pending.get(0).time();
+        JsonTaskStorage.writeTasks(snapshotPath(0, head.time), tasks.values());
+        return head;
+    }
+
+    private static void push(ArrayDeque<Long> stack, long sequence) {
+        stack.addLast(sequence);
+        if (stack.size() > UNDO_DEPTH) {
+            stack.removeFirst();
+        }
+    }
+
+    /**
+     * Returns the group of changes that undo would revert, the store lock must be held and the history flushed.
+     *
+     * @return the events of the last change not undone yet in the order they were logged, empty if there is none
+     * @throws TaskStorageException if the history cannot be read
+     */
+    synchronized List<Event> peekUndo() {
+        return peek(true);
+    }
+
+    /**
+     * Returns the group of changes that redo would apply again, the store lock must be held and the history
+     * flushed.
+     *
+     * @return the events of the last change undone since the last change made by a command in the order they were
+     *         logged, empty if there is none
+     * @throws TaskStorageException if the history cannot be read
+     */
+    synchronized List<Event> peekRedo() {
+        return peek(false);
+    }
+
+    private List<Event> peek(boolean undo) {
+        try {
+            Head head = readHead();
+            if (head == null) {
+                return List.of();
+            }
+            Long sequence = undo ? head.undo.peekLast() : head.redo.peekLast();
+            return sequence == null ? List.of() : findGroup(head, sequence);
+        } catch (IOException e) {
+            throw new TaskStorageException("Error reading task history", e);
+        }
+    }
+
+    /**
+     * Reads the group starting with the given sequence from the segment holding it. A group is logged by a
+     * single flush, so it never spans two segments.
+     */
+    private List<Event> findGroup(Head head, long sequence) throws IOException {
+        long segment = 0;
+        for (long start : segments()) {
+            if (start <= sequence) {
+                segment = start;
+            }
+        }
+        List<Event> group = new ArrayList<>();
+        boolean[] ended = {false};
+        readSegment(head, segment, event -> {
+            if (ended[0] || event.sequence() < sequence) {
+                return;
+            }
+            if (event.sequence() == sequence || event.continued() && !group.isEmpty()) {
+                group.add(event);
+            } else {
+                ended[0] = true;
+            }
+        });
+        if (group.isEmpty()) {
+            throw new TaskStorageException("Task history has no event " + sequence);
+        }
+        return group;
+    }
+
+    /**
+     * Rebuilds the tasks as they were at the given time from the nearest snapshot before it.
+     * Only the events logged by flush() are seen.
+     *
+     * @param time the time to look at
+     * @return the tasks at that time, with their IDs as keys
+     * @throws NoSuchElementException if the history starts after the given time or was never written
+     * @throws TaskStorageException if the history cannot be read
+     */
+    Map<Integer, Task> stateAsOf(LocalDateTime time) {
+        long until = Task.toEpochMillis(time);
+        try {
+            Head head = readHead();
+            if (head == null) {
+                throw new NoSuchElementException("No history recorded yet");
+            }
+            long[] snapshot = latestSnapshot(until);
+            if (snapshot == null) {
+                long[] first = latestSnapshot(Long.MIN_VALUE);
+                throw new NoSuchElementException("History starts at "
+                        + (first == null ? "an unknown time" : Task.fromEpochMillis(first[1])));
+            }
+            Map<Integer, Task> tasks = new HashMap<>();
+            replayFromSnapshot(snapshot, head, until, tasks);
+            return tasks;
+        } catch (IOException e) {
+            throw new TaskStorageException("Error reading task history", e);
+        }
+    }
+
+    /**
+     * Loads a snapshot and applies the events logged after it, up to the given time.
+     *
+     * @return the sequence of the last event applied
+     */
+    private long replayFromSnapshot(long[] snapshot, Head head, long until, Map<Integer, Task> tasks) throws IOException {
+        if (snapshot == null) {
+            throw new TaskStorageException("Task history has no snapshot");
+        }
+        JsonTaskStorage.readTasks(snapshotPath(snapshot[0], snapshot[1]), tasks);
+        long[] last = {snapshot[0]};
+        boolean[] done = {false};
+        for (long segment : segments()) {
+            if (segment <= snapshot[0] || segment > head.segment || done[0]) {
+                continue;
+            }
+            readSegment(head, segment, event -> {
+                if (done[0] || event.sequence() <= last[0]) {
+                    return;
+                }
+                if (event.time() > until) {
+                    done[0] = true;
+                    return;
+                }
+                if (event.after() == null) {
+                    tasks.remove(event.id());
+                } else {
+                    tasks.put(event.id(), Task.fromJson(event.after()));
+                }
+                last[0] = event.sequence();
+            });
+        }
+        return last[0];
+    }
+
+    /**
+     * Finds the latest snapshot taken at or before the given time, or the first one for Long.MIN_VALUE.
+     *
+     * @return the sequence and time of the snapshot, or null if there is none
+     */
+    private long[] latestSnapshot(long until) throws IOException {
+        long[] latest = null;
+        long[] first = null;
+        for (long[] snapshot : snapshots()) {
+            if (first == null || snapshot[0] < first[0]) {
+                first = snapshot;
+            }
+            if (snapshot[1] <= until && (latest == null || snapshot[0] > latest[0])) {
+                latest = snapshot;
+            }
+        }
+        return until == Long.MIN_VALUE ? first : latest;
+    }
+
+    private void readSegment(Head head, long segment, Consumer<Event> action) throws IOException {
+        Path path = segmentPath(segment);
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The head segment is read up to the length of the last complete flush
+            long length = segment == head.segment ? head.length : channel.size();
+            BufferedReader reader = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8));
+            long read = 0;
+            String line;
+            while (read < length && (line = reader.readLine()) != null) {
+                read += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                if (!line.isEmpty()) {
+                    action.accept(parseLine(line));
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends an event as a line of the log. The kind is written in lower case for an event continuing the group
+     * of the event before it.
+     */
+    private static void appendLine(StringBuilder sb, long sequence, long time, Pending pending) {
+        Change event = pending.change();
+        char kind = event.kind().name().charAt(0);
+        sb.append(sequence).append('\t').append(time).append('\t')
+                .append(pending.continued() ? Character.toLowerCase(kind) : kind)
+                .append('\t').append(event.reference()).append('\t').append(event.type().name())
+                .append('\t').append(event.id())
+                .append('\t').append(event.before() == null ? NONE : event.before())
+                .append('\t').append(event.after() == null ? NONE : event.after()).append('\n');
+    }
+
+    /**
+     * Parses a line of the log. JSON escapes tabs, so fields are split on them.
+     */
+    private static Event parseLine(String line) {
+        String[] fields = line.split("\t", 8);
+        if (fields.length != 8) {
+            throw new TaskStorageException("Malformed task history event: " + line);
+        }
+        char letter = fields[2].charAt(0);
+        Kind kind = switch (Character.toUpperCase(letter)) {
+            case 'C' -> Kind.CHANGE;
+            case 'U' -> Kind.UNDO;
+            case 'R' -> Kind.REDO;
+            default -> throw new TaskStorageException("Malformed task history event: " + line);
+        };
+        return new Event(Long.parseLong(fields[0]), Long.parseLong(fields[1]), kind, Long.parseLong(fields[3]),
+                ChangeType.valueOf(fields[4]), Integer.parseInt(fields[5]),
+                fields[6].equals(NONE) ? null : fields[6], fields[7].equals(NONE) ? null : fields[7],
+                Character.isLowerCase(letter));
+    }
+
+    private Head readHead() throws IOException {
+        Path path = directory.resolve("head");
+        if (!Files.exists(path)) {
+            return null;
+        }
+        Head head = new Head();
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            String[] fields = line.trim().split(" ");
+            switch (fields[0]) {
+                case "sequence" -> head.sequence = Long.parseLong(fields[1]);
+                case "time" -> head.time = Long.parseLong(fields[1]);
+                case "segment" -> head.segment = Long.parseLong(fields[1]);
+                case "length" -> head.length = Long.parseLong(fields[1]);
+                case "undo", "redo" -> {
+                    ArrayDeque<Long> stack = fields[0].equals("undo") ? head.undo : head.redo;
+                    for (int i = 1; i < fields.length; i++) {
+                        stack.addLast(Long.parseLong(fields[i]));
+                    }
+                }
+                default -> {
+                    // Unknown keys are ignored
+                }
+            }
+        }
+        return head;
+    }
+
+    private void writeHead(Head head) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append("sequence ").append(head.sequence).append('\n')
+                .append("time ").append(head.time).append('\n')
+                .append("segment ").append(head.segment).append('\n')
+                .append("length ").append(head.length).append('\n')
+                .append("undo");
+        head.undo.forEach(sequence -> sb.append(' ').append(sequence));
+        sb.append("\nredo");
+        head.redo.forEach(sequence -> sb.append(' ').append(sequence));
+        sb.append('\n');
+        Path path = directory.resolve("head");
+        Path tempPath = directory.resolve("head.tmp");
+        Files.writeString(tempPath, sb, StandardCharsets.UTF_8);
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path segmentPath(long start) {
+        return directory.resolve("events-" + start + ".log");
+    }
+
+    private Path snapshotPath(long sequence, long time) {
+        return directory.resolve("snapshot-" + sequence + "-" + time + ".json");
+    }
+
+    /**
+     * Lists the first sequence of every segment, in ascending order.
+     */
+    private List<Long> segments() throws IOException {
+        List<Long> starts = new ArrayList<>();
+        for (String name : fileNames()) {
+            if (name.startsWith("events-") && name.endsWith(".log")) {
+                try {
+                    starts.add(Long.parseLong(name.substring("events-".length(), name.length() - ".log".length())));
+                } catch (NumberFormatException e) {
+                    // Not a segment
+                }
+            }
+        }
+        starts.sort(null);
+        return starts;
+    }
+
+    /**
+     * Lists the sequence and time of every snapshot.
+     */
+    private List<long[]> snapshots() throws IOException {
+        List<long[]> found = new ArrayList<>();
+        for (String name : fileNames()) {
+            if (name.startsWith("snapshot-") && name.endsWith(".json")) {
+                String[] fields = name.substring("snapshot-".length(), name.length() - ".json".length()).split("-");
+                try {
+                    if (fields.length == 2) {
+                        found.add(new long[] {Long.parseLong(fields[0]), Long.parseLong(fields[1])});
+                    }
+                } catch (NumberFormatException e) {
+                    // Not a snapshot
+                }
+            }
+        }
+        return found;
+    }
+
+    private List<String> fileNames() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).toList();
+        }
+    }
+
+    private long now() {
+        return Task.toEpochMillis(LocalDateTime.now(clock));
+    }
+}
@@ -0,0 +1,368 @@
+package dev.shoangenes.tasktracker;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.function.Consumer;
+
+/**
+ * Incremental JSON reader that builds Task objects in a single pass over a Reader.
+ * Only the current record is held in memory, characters are read through a fixed buffer
+ * and field names are matched in place, so load time and memory grow linearly with the file.
+ */
+class TaskJsonReader implements AutoCloseable {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader in;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    // Reused for every string token to avoid allocating while matching field names
+    private final StringBuilder token = new StringBuilder();
+    private int position;
+    private int limit;
+    private int line = 1;
+
+    /**
+     * Constructor for TaskJsonReader.
+     *
+     * @param in the Reader providing the JSON content, it does not need to be buffered
+     */
+    TaskJsonReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads a JSON array of tasks and passes every task to the consumer as soon as it is parsed.
+     * An input with only whitespace is treated as an empty array.
+     *
+     * @param consumer the consumer receiving every parsed task
+     * @return the number of tasks read
+     * @throws TaskStorageException if the content is not a valid array of tasks
+     */
+    int readTasks(Consumer<Task> consumer) {
+        int count = 0;
+        int next = peek();
+        if (next == -1) {
+            return 0;
+        }
+        expect('[');
+        if (peek() == ']') {
+            read();
+        } else {
+            do {
+                consumer.accept(readTask());
+                count++;
+            } while (consumeSeparator(']'));
+        }
+        if (peek() != -1) {
+            throw error("Unexpected content after the tasks array");
+        }
+        return count;
+    }
+
+    /**
+     * Reads a slice of a tasks array cut right before a task object, as produced by ParallelTaskParser.
+     * The first slice starts with the opening bracket, every slice but the last ends with the comma
+     * following its last task, and the last one ends with the closing bracket.
+     *
+     * @param consumer the consumer receiving every parsed task
+     * @param first whether the slice starts the array
+     * @param last whether the slice ends the array
+     * @return the number of tasks read
+     * @throws TaskStorageException if the content is not a valid slice of an array of tasks
+     */
+    int readChunk(Consumer<Task> consumer, boolean first, boolean last) {
+        int count = 0;
+        boolean more = true;
+        if (first) {
+            expect('[');
+            if (last && peek() == ']') {
+                read();
+                more = false;
+            }
+        }
+        while (more) {
+            consumer.accept(readTask());
+            count++;
+            int c = nextNonWhitespace();
+            if (c == ',') {
+                // The comma ending a slice is followed by the next slice
+                more = last || peek() != -1;
+            } else if (c == ']' && last) {
+                more = false;
+            } else {
+                throw error(last ? "Expected ',' or ']'" : "Expected ','");
+            }
+        }
+        if (peek() != -1) {
+            throw error("Unexpected content after the tasks array");
+        }
+        return count;
+    }
+
+    /**
+     * Reads a single task object.
+     * Fields may appear in any order and unknown fields are skipped.
+     *
+     * @return the parsed Task
+     * @throws TaskStorageException if the content is not a valid task object
+     */
+    Task readTask() {
+        int id = 0;
+        boolean hasId = false;
+        String description = null;
+        Status status = null;
+        LocalDateTime createdAt = null;
+        LocalDateTime updatedAt = null;
+
+        expect('{');
+        if (peek() == '}') {
+            throw error("Empty task object");
+        }
+        do {
+            readString();
+            expect(':');
+            if (token.length() == 2 && token.charAt(0) == 'i' && token.charAt(1) == 'd') {
+                id = readInt();
+                if (id < 0) {
+                    throw error("Negative task id");
+                }
+                hasId = true;
+            } else if (contentEquals("description")) {
+                description = readString();
+            } else if (contentEquals("status")) {
+                status = parseStatus(readString());
+            } else if (contentEquals("createdAt")) {
+                createdAt = parseDateTime(readString());
+            } else if (contentEquals("updatedAt")) {
+                updatedAt = parseDateTime(readString());
+            } else {
+                skipValue();
+            }
+        } while (consumeSeparator('}'));
+
+        if (!hasId || description == null || status == null || createdAt == null || updatedAt == null) {
+            throw error("Task object is missing required fields");
+        }
+        return Task.restore(id, description, status, createdAt, updatedAt);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private boolean contentEquals(String name) {
+        return token.length() == name.length() && name.contentEquals(token);
+    }
+
+    private Status parseStatus(String value) {
+        try {
+            return Status.valueOf(value.toUpperCase().replace(' ', '_'));
+        } catch (IllegalArgumentException e) {
+            throw error("Unknown task status '" + value + "'");
+        }
+    }
+
+    private LocalDateTime parseDateTime(String value) {
+        try {
+            return IsoTimestamp.parse(value);
+        } catch (DateTimeParseException e) {
+            throw error("Invalid timestamp '" + value + "'");
+        }
+    }
+
+    /**
+     * Consumes either a comma or the given closing character.
+     *
+     * @param closing the character closing the current object or array
+     * @return true if a comma was consumed and another element follows, false if the closing character was consumed
+     */
+    private boolean consumeSeparator(char closing) {
+        int c = nextNonWhitespace();
+        if (c == ',') {
+            return true;
+        }
+        if (c == closing) {
+            return false;
+        }
+        throw error("Expected ',' or '" + closing + "'");
+    }
+
+    private String readString() {
+        expect('"');
+        token.setLength(0);
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                throw error("Unterminated string");
+            }
+            if (c == '"') {
+                return token.toString();
+            }
+            if (c == '\\') {
+                readEscape();
+            } else if (c < 0x20) {
+                throw error("Unescaped control character in string");
+            } else {
+                token.append((char) c);
+            }
+        }
+    }
+
+    private void readEscape() {
+        int c = read();
+        switch (c) {
+            case '"', '\\', '/' -> token.append((char) c);
+            case 'b' -> token.append('\b');
+            case 'f' -> token.append('\f');
+            case 'n' -> token.append('\n');
+            case 'r' -> token.append('\r');
+            case 't' -> token.append('\t');
+            case 'u' -> {
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(read(), 16);
+                    if (digit < 0) {
+                        throw error("Invalid unicode escape");
+                    }
+                    value = (value << 4) | digit;
+                }
+                token.append((char) value);
+            }
+            default -> throw error("Invalid escape sequence");
+        }
+    }
+
+    private int readInt() {
+        int c = nextNonWhitespace();
+        boolean negative = c == '-';
+        if (negative) {
+            c = read();
+        }
+        if (c < '0' || c > '9') {
+            throw error("Expected a number");
+        }
+        long value = 0;
+        while (true) {
+            value = value * 10 + (c - '0');
+            if (value > Integer.MAX_VALUE + 1L) {
+                throw error("Number out of range");
+            }
+            int next = peekRaw();
+            if (next < '0' || next > '9') {
+                break;
+            }
+            c = read();
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw error("Number out of range");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Skips a value of any type, including nested objects and arrays.
+     */
+    private void skipValue() {
+        int c = peek();
+        switch (c) {
+            case '"' -> readString();
+            case '{', '[' -> {
+                int depth = 0;
+                do {
+                    c = read();
+                    if (c == -1) {
+                        throw error("Unterminated value");
+                    }
+                    if (c == '"') {
+                        position--;
+                        readString();
+                    } else if (c == '{' || c == '[') {
+                        depth++;
+                    } else if (c == '}' || c == ']') {
+                        depth--;
+                    }
+                } while (depth > 0);
+            }
+            default -> {
+                // Numbers, true, false and null end at the next separator
+                while (true) {
+                    int next = peekRaw();
+                    if (next == -1 || next == ',' || next == '}' || next == ']' || Character.isWhitespace(next)) {
+                        break;
+                    }
+                    read();
+                }
+            }
+        }
+    }
+
+    private void expect(char expected) {
+        if (nextNonWhitespace() != expected) {
+            throw error("Expected '" + expected + "'");
+        }
+    }
+
+    private int nextNonWhitespace() {
+        int c;
+        do {
+            c = read();
+        } while (c != -1 && Character.isWhitespace(c));
+        return c;
+    }
+
+    /**
+     * Returns the next non-whitespace character without consuming it.
+     */
+    private int peek() {
+        int c = nextNonWhitespace();
+        if (c != -1) {
+            position--;
+        }
+        return c;
+    }
+
+    /**
+     * Returns the next character, whitespace included, without consuming it.
+     */
+    private int peekRaw() {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    private int read() {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        char c = buffer[position++];
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+
+    private boolean fill() {
+        try {
+            int read;
+            do {
+                read = in.read(buffer, 0, buffer.length);
+            } while (read == 0);
+            if (read < 0) {
+                return false;
+            }
+            position = 0;
+            limit = read;
+            return true;
+        } catch (IOException e) {
+            throw new TaskStorageException("Error reading tasks from JSON", e);
+        }
+    }
+
+    private TaskStorageException error(String message) {
+        return new TaskStorageException("Malformed tasks JSON at line " + line + ": " + message);
+    }
+}
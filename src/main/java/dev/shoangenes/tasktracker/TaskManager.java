@@ -1,27 +1,124 @@
 package dev.shoangenes.tasktracker;
 
 import java.io.IOException;
+import java.io.PrintStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
-public class TaskManager {
+public class TaskManager implements AutoCloseable {
+    // System property and environment variable enabling the persisted search index
+    static final String PERSIST_SEARCH_INDEX_PROPERTY = "tasktracker.search.persist";
+    static final String PERSIST_SEARCH_INDEX_ENV_VARIABLE = "TASK_TRACKER_SEARCH_PERSIST";
     // File path where tasks are stored in JSON format
     private final Path FILE_PATH;
-    // HashMap to store tasks with their unique IDs
-    private final HashMap<Integer, Task> tasks;
+    // Storage engine used to load and persist tasks
+    private final TaskStorage storage;
+    // Concurrent map to store tasks with their unique IDs, indexed by the ID without boxing
+    private final IntTaskMap tasks;
+    // Stored tasks not materialised yet, null when the storage loads everything up front
+    private final TaskSource source;
+    // Serializes saves, mutations never wait for it
+    private final Object saveLock = new Object();
+    // Task IDs partitioned by status, built on the first filtered listing or count
+    private final StatusIndex statusIndex = new StatusIndex();
+    // Inverted index over descriptions, built or loaded on the first search
+    private final SearchIndex searchIndex = new SearchIndex();
+    // Task IDs sorted by creation and update time, built on the first time-range query
+    private final TimeIndex timeIndex = new TimeIndex();
+    // Tasks changed since the last save, a save is skipped when it is empty
+    private final ChangeSet changes = new ChangeSet();
+    // Log of every change with periodic snapshots, for undo, redo and past states, null when disabled
+    private final TaskHistory history;
+    // Serializes undo and redo, which read the history before they apply a change
+    private final Object travelLock = new Object();
+    // Done tasks moved out of the store, only read when a query asks for them
+    private final TaskArchive archive;
+    // Time the automatic archive policy is due next as last read from the archive, so saves skip the manifest
+    private volatile long archivePolicyDueTime;
+    // Coordinates ID allocation and saves with other processes using the same store
+    private final StoreLock storeLock;
+    // Version of the store this manager's tasks are based on, another process saved if the lock file differs
+    private volatile long loadedVersion;
+    // Notified after every mutation, used to save in the background
+    private volatile Runnable changeListener;
+    // Whether the search index is kept next to the tasks file between runs
+    private final boolean persistSearchIndex = Boolean.parseBoolean(
+            System.getProperty(PERSIST_SEARCH_INDEX_PROPERTY, System.getenv(PERSIST_SEARCH_INDEX_ENV_VARIABLE)));
 
     /**
      * Constructor for TaskManager.
-     * Initializes the task manager and reads tasks from the JSON file.
+     * Initializes the task manager with the storage engine selected by the environment and reads tasks from it.
      */
     public TaskManager() {
-        FILE_PATH = getAppDataFolder();
+        this(defaultFilePath());
+    }
+
+    private TaskManager(Path filePath) {
+        this(StorageType.fromEnvironment().create(filePath), filePath, Clock.systemDefaultZone());
+    }
+
+    /**
+     * Constructor for TaskManager using the given storage engine.
+     *
+     * @param storage the storage engine used to load and persist tasks
+     */
+    public TaskManager(TaskStorage storage) {
+        this(storage, Clock.systemDefaultZone());
+    }
+
+    /**
+     * Constructor for TaskManager using the given storage engine and the given clock to stamp history events.
+     *
+     * @param storage the storage engine used to load and persist tasks
+     * @param historyClock the clock stamping the events of the history when they are recorded
+     */
+    TaskManager(TaskStorage storage, Clock historyClock) {
+        this(storage, storage.getFilePath(), historyClock);
+    }
+
+    /**
+     * Constructor for TaskManager using the given storage engine, keeping the lock, history and archive next to
+     * the given file.
+     *
+     * @param storage the storage engine used to load and persist tasks
+     * @param filePath the file the lock, history and archive paths are derived from
+     * @param historyClock the clock stamping the events of the history when they are recorded
+     */
+    private TaskManager(TaskStorage storage, Path filePath, Clock historyClock) {
+        FILE_PATH = filePath;
         ensureDirectoryExists();
-        tasks = readTasksFromJson();
+        this.storage = storage;
+        storeLock = StoreLock.open(StoreLock.lockPathFor(FILE_PATH));
+        history = TaskHistory.enabledFromEnvironment()
+                ? new TaskHistory(TaskHistory.directoryFor(FILE_PATH), historyClock) : null;
+        archive = new TaskArchive(TaskArchive.directoryFor(FILE_PATH));
+        long start = Metrics.LOAD.start();
+        // Opened under the store lock, so no other process replaces the files while they are opened
+        source = storeLock.locked(() -> {
+            loadedVersion = readStoreVersion();
+            // Archived IDs are never handed out again
+            Task.advanceLastId(archive.getMaxId());
+            return storage.openSource();
+        });
+        tasks = loadTasks();
+        Metrics.LOAD.stop(start);
     }
 
     /**
@@ -30,6 +127,15 @@ public class TaskManager {
      * @return the Path object representing the tasks file
      */
     public Path getAppDataFolder() {
+        return defaultFilePath();
+    }
+
+    /**
+     * Resolves the default tasks.json path for the current OS without creating a TaskManager.
+     *
+     * @return the Path object representing the tasks file
+     */
+    static Path defaultFilePath() {
         String osName = System.getProperty("os.name").toLowerCase();
         String userDir = System.getProperty("user.dir");
         Path tasksDir;
@@ -68,81 +174,477 @@ public class TaskManager {
     }
 
     /**
-     * Reads tasks from a JSON file and returns them as a HashMap.
-     * If the file does not exist, it returns an empty HashMap.
+     * Reads tasks from the storage and returns them as a HashMap.
+     * If nothing has been stored yet, it returns an empty HashMap.
      *
      * @return a HashMap containing tasks with their IDs as keys
      */
     public HashMap<Integer, Task> readTasksFromJson() {
         HashMap<Integer, Task> storedTask = new HashMap<>();
+        storage.load(storedTask);
+        return storedTask;
+    }
+
+    /**
+     * Reads the version of the store before it is loaded, so a save racing with the load is merged later
+     * rather than overwritten. A store whose files were all deleted starts its shared ID counter over, after
+     * the archived IDs.
+     *
+     * @return the current version of the store
+     */
+    private long readStoreVersion() {
+        return storeLock.locked(() -> {
+            if (storage.getDataFiles().stream().noneMatch(Files::exists)) {
+                storeLock.writeLastId(archive.getMaxId());
+            }
+            return storeLock.readVersion();
+        });
+    }
+
+    /**
+     * Loads the tasks held by the manager, leaving them in the lazy source when the storage provides one.
+     *
+     * @return an IntTaskMap containing the loaded tasks
+     */
+    private IntTaskMap loadTasks() {
+        IntTaskMap loaded = new IntTaskMap();
+        if (source == null) {
+            storage.load(loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * Finds a task by its ID, materialising it from the lazy source if it has not been loaded yet.
+     *
+     * @param id the unique identifier of the task
+     * @return the Task if found, otherwise null
+     */
+    private Task findTask(int id) {
+        Task task = tasks.get(id);
+        if (task == null && source != null) {
+            // Atomic per ID, so concurrent lookups materialise the task only once
+            task = tasks.computeIfAbsent(id, source::take);
+            if (task != null) {
+                // The task may have left the source while the status index was being built
+                synchronized (task) {
+                    if (tasks.get(id) == task) {
+                        indexTask(task);
+                    }
+                }
+            }
+        }
+        return task;
+    }
+
+    /**
+     * Builds the status index from the loaded tasks and the lazy source if it has not been built yet.
+     */
+    private void ensureStatusIndex() {
+        statusIndex.ensureBuilt(sink -> {
+            long start = Metrics.INDEX_BUILD.start();
+            if (source != null) {
+                source.forEachStatus(sink);
+            }
+            tasks.forEachTask(task -> sink.accept(task.getId(), task.getStatus()));
+            Metrics.INDEX_BUILD.stop(start);
+        });
+    }
+
+    /**
+     * Adds a task to every secondary index, the caller holds the task's lock.
+     *
+     * @param task the task to index
+     */
+    private void indexTask(Task task) {
+        long start = Metrics.INDEX_UPDATE.start();
+        statusIndex.add(task.getId(), task.getStatus());
+        searchIndex.add(task.getId(), task.getDescription());
+        timeIndex.add(task.getId(), Task.toEpochMillis(task.getCreatedAt()), Task.toEpochMillis(task.getUpdatedAt()));
+        Metrics.INDEX_UPDATE.stop(start);
+    }
+
+    /**
+     * Removes a deleted task from every secondary index, the caller holds the task's lock.
+     *
+     * @param task the task to remove
+     */
+    private void unindexTask(Task task) {
+        long start = Metrics.INDEX_UPDATE.start();
+        statusIndex.remove(task.getId(), task.getStatus());
+        searchIndex.remove(task.getId(), task.getDescription());
+        timeIndex.remove(task.getId(), Task.toEpochMillis(task.getCreatedAt()), Task.toEpochMillis(task.getUpdatedAt()));
+        Metrics.INDEX_UPDATE.stop(start);
+    }
+
+    /**
+     * Builds the time index from the loaded tasks and the lazy source if it has not been built yet.
+     */
+    private void ensureTimeIndex() {
+        timeIndex.ensureBuilt(sink -> {
+            long start = Metrics.INDEX_BUILD.start();
+            if (source != null) {
+                source.forEachHeader(sink);
+            }
+            tasks.forEachTask(task -> sink.accept(task.getId(), task.getStatus(),
+                    Task.toEpochMillis(task.getCreatedAt()), Task.toEpochMillis(task.getUpdatedAt())));
+            Metrics.INDEX_BUILD.stop(start);
+        });
+    }
 
-        if (!Files.exists(FILE_PATH)) {
-            return storedTask;
+    /**
+     * Loads the persisted search index if it matches the stored tasks, or builds it from the tasks.
+     */
+    private void ensureSearchIndex() {
+        if (persistSearchIndex && !searchIndex.isBuilt()) {
+            searchIndex.load(getSearchIndexPath(), storeFingerprint());
         }
+        searchIndex.ensureBuilt(sink -> {
+            long start = Metrics.INDEX_BUILD.start();
+            if (source != null) {
+                source.forEach(task -> sink.accept(task.getId(), task.getDescription()));
+            }
+            tasks.forEachTask(task -> sink.accept(task.getId(), task.getDescription()));
+            Metrics.INDEX_BUILD.stop(start);
+        });
+    }
 
+    private Path getSearchIndexPath() {
+        return FILE_PATH.resolveSibling("tasks.search");
+    }
+
+    /**
+     * Computes a fingerprint of the storage files from their names, sizes and modification times.
+     * A persisted search index is only reused if the fingerprint did not change since it was written.
+     *
+     * @return the fingerprint of the stored tasks
+     */
+    private long storeFingerprint() {
+        long fingerprint = 17;
         try {
-            String jsonContent = Files.readString(FILE_PATH);
-            String cleaned = jsonContent.trim().replaceAll("\\s", "");
-            if (!cleaned.isEmpty() && !cleaned.equals("[]")) {
-                parseTasksFromJson(storedTask, jsonContent);
+            for (Path file : storage.getDataFiles()) {
+                fingerprint = 31 * fingerprint + file.getFileName().toString().hashCode();
+                if (Files.exists(file)) {
+                    fingerprint = 31 * fingerprint + Files.size(file);
+                    fingerprint = 31 * fingerprint + Files.getLastModifiedTime(file).to(TimeUnit.NANOSECONDS);
+                }
             }
         } catch (IOException e) {
-            throw new TaskStorageException("Error reading tasks from JSON", e);
+            throw new TaskStorageException("Unable to read task storage attributes", e);
         }
+        return fingerprint;
+    }
 
-        return storedTask;
+    /**
+     * Applies a mutation to an existing task and records it, while holding the task's lock.
+     * Holding the lock keeps the recorded changes of a task in the order they were applied,
+     * and checking the map under it stops a task deleted concurrently from being modified.
+     *
+     * @param id the unique identifier of the task
+     * @param type the kind of mutation
+     * @param mutation the mutation to apply
+     * @throws NoSuchElementException if no task with the given ID exists
+     */
+    private void mutate(int id, ChangeType type, Consumer<Task> mutation) {
+        Task task = Optional.ofNullable(findTask(id)).orElseThrow(() -> new NoSuchElementException("No such task with id: " + id));
+        synchronized (task) {
+            if (tasks.get(id) != task) {
+                throw new NoSuchElementException("No such task with id: " + id);
+            }
+            applyMutation(task, type, mutation, null);
+        }
+    }
+
+    /**
+     * Applies a mutation to a task held by the manager, records it and updates the indexes.
+     * The caller holds the task's lock and has checked that the task was not deleted.
+     *
+     * @param group collects the history event of a bulk change, null to record it on its own
+     */
+    private void applyMutation(Task task, ChangeType type, Consumer<Task> mutation, List<TaskHistory.Change> group) {
+        int id = task.getId();
+        Status before = task.getStatus();
+        String descriptionBefore = task.getDescription();
+        LocalDateTime updatedBefore = task.getUpdatedAt();
+        String json = history == null ? null : task.toJson();
+        mutation.accept(task);
+        record(TaskChange.of(type, task), json, TaskHistory.Kind.CHANGE, 0, group);
+        long start = Metrics.INDEX_UPDATE.start();
+        statusIndex.move(id, before, task.getStatus());
+        if (!descriptionBefore.equals(task.getDescription())) {
+            searchIndex.update(id, descriptionBefore, task.getDescription());
+        }
+        timeIndex.touch(id, Task.toEpochMillis(updatedBefore), Task.toEpochMillis(task.getUpdatedAt()));
+        Metrics.INDEX_UPDATE.stop(start);
+    }
+
+    /**
+     * Applies a mutation to every task matching the query that it would change, in one pass over the candidates
+     * of the most selective index. Every task is checked against the query again under its lock, so a task
+     * changed concurrently so that it no longer matches is left alone.
+     *
+     * The save lock is held throughout, so a save in the background persists either none or all of the changes,
+     * and the next save writes them at once. The changes are logged in the history as one group, so a single undo
+     * reverts them all.
+     *
+     * @param query the tasks to change
+     * @param type the kind of mutation
+     * @param needed tells whether the mutation would change a task
+     * @param mutation the mutation to apply
+     * @return the number of tasks changed
+     */
+    private int mutateAll(TaskQuery query, ChangeType type, Predicate<Task> needed, Consumer<Task> mutation) {
+        synchronized (saveLock) {
+            // Only the IDs are kept, a task decoded from the lazy source is not held by the manager
+            List<Integer> candidates = new ArrayList<>();
+            forEachCandidate(query, task -> {
+                if (needed.test(task)) {
+                    candidates.add(task.getId());
+                }
+            });
+            List<TaskHistory.Change> group = history == null ? null : new ArrayList<>();
+            int changed = 0;
+            for (int id : candidates) {
+                Task task = findTask(id);
+                if (task == null) {
+                    continue;
+                }
+                synchronized (task) {
+                    if (tasks.get(id) == task && query.matches(task) && needed.test(task)) {
+                        if (type == ChangeType.DELETE) {
+                            tasks.remove(id, task);
+                            record(TaskChange.deleted(id), history == null ? null : task.toJson(),
+                                    TaskHistory.Kind.CHANGE, 0, group);
+                            unindexTask(task);
+                        } else {
+                            applyMutation(task, type, mutation, group);
+                        }
+                        changed++;
+                    }
+                }
+            }
+            if (group != null) {
+                history.recordGroup(group);
+            }
+            return changed;
+        }
+    }
+
+    /**
+     * Performs the given action for every task, including the ones still held by the lazy source.
+     * Tasks of the source are decoded for the action only and are not kept in memory.
+     *
+     * @param action the action to perform
+     */
+    private void forEachTask(Consumer<Task> action) {
+        tasks.forEachTask(action);
+        if (source != null) {
+            source.forEach(action);
+        }
     }
 
     /**
-     * Pases tasks form JSON content and stores them in the provided HashMap.
+     * Records a mutation made by a command in the storage, the history and the changes pending for the next save.
      *
-     * @param storedTask the HashMap to store tasks
-     * @param jsonContent the JSON content as a String
+     * @param change the mutation that was applied
+     * @param before the task before the mutation as JSON, null if it was added or the history is disabled
      */
-    private void parseTasksFromJson(HashMap<Integer, Task> storedTask, String jsonContent) {
-        String[] taskList = jsonContent.replace("[", "").replace("]", "").split("},");
+    private void record(TaskChange change, String before) {
+        record(change, before, TaskHistory.Kind.CHANGE, 0, null);
+    }
 
-        for (String taskStr : taskList) {
-            if (!taskStr.endsWith("}")) {
-                taskStr = taskStr + "}";
+    /**
+     * Records an applied mutation in the storage, the history and the changes pending for the next save.
+     *
+     * @param change the mutation that was applied
+     * @param before the task before the mutation as JSON, null if it did not exist or the history is disabled
+     * @param kind how the mutation came to be
+     * @param reference the first sequence of the group of changes undone or redone, 0 for a change
+     * @param group collects the history event of a bulk change, which records the group once it is applied, or
+     *        null to record the event on its own
+     */
+    private void record(TaskChange change, String before, TaskHistory.Kind kind, long reference,
+                        List<TaskHistory.Change> group) {
+        storage.record(change);
+        changes.record(change);
+        if (history != null) {
+            TaskHistory.Change event = new TaskHistory.Change(kind, reference, change.type(), change.id(), before,
+                    change.task() == null ? null : change.task().toJson());
+            if (group == null) {
+                history.recordGroup(List.of(event));
+            } else {
+                group.add(event);
             }
-            Task newTask = Task.fromJson(taskStr);
-            storedTask.put(newTask.getId(), newTask);
         }
+        Runnable listener = changeListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Sets the action run after every mutation. It runs while the mutated task is locked, so it must not block.
+     *
+     * @param listener the action to run, or null to remove it
+     */
+    void setChangeListener(Runnable listener) {
+        changeListener = listener;
+    }
+
+    /**
+     * Checks if any task changed since the last save.
+     *
+     * @return true if the next call to writeTasksToJson() would persist changes
+     */
+    public boolean hasUnsavedChanges() {
+        return !changes.isEmpty();
+    }
+
+    /**
+     * Returns the IDs of the tasks changed since the last save, with how each one changed.
+     *
+     * @return an unmodifiable snapshot of the pending changes
+     */
+    public Map<Integer, ChangeType> getUnsavedChanges() {
+        return changes.snapshot().changes();
     }
 
+    /**
+     * Persists the tasks changed since the last save through the storage, and does nothing if none changed.
+     * The JSON storage rewrites tasks.json, while the journal storage only syncs the mutations already appended.
+     *
+     * The save holds the store lock. If another process saved since this manager loaded the store, its tasks
+     * are merged first, so the changes of both processes are kept. Done tasks are archived first when the
+     * automatic archive policy is due.
+     */
     public void writeTasksToJson() {
-        StringBuilder auxSb = new StringBuilder();
-        auxSb.append("[\n");
-        Task[] arrayTasks = tasks.values().toArray(new Task[0]);
-        for (int i = 0; i < arrayTasks.length; i++) {
-            auxSb.append(arrayTasks[i].toJson());
-            if (i < arrayTasks.length - 1) {
-                auxSb.append(",\n");
+        synchronized (saveLock) {
+            // The automatic archive policy, if configured, is applied with the save
+            archiveIfDue();
+            ChangeSet.Snapshot snapshot = changes.snapshot();
+            if (!snapshot.isEmpty()) {
+                long start = Metrics.SAVE.start();
+                storeLock.locked(() -> {
+                    long version = storeLock.readVersion();
+                    Map<Integer, ChangeType> saved = snapshot.changes();
+                    if (version != loadedVersion && storage.rewritesOnSave()) {
+                        saved = mergeStoredChanges(saved);
+                    }
+                    if (history != null) {
+                        history.flush(this::readTasksFromJson, !storage.rewritesOnSave());
+                    }
+                    storage.save(tasks.values(), saved);
+                    storeLock.writeVersion(version + 1);
+                    loadedVersion = version + 1;
+                });
+                changes.clear(snapshot);
+                Metrics.SAVE.stop(start);
+                Metrics.counter("changes.saved").addAndGet(snapshot.changes().size());
             }
-            else {
-                auxSb.append("\n");
+            if (persistSearchIndex) {
+                searchIndex.save(getSearchIndexPath(), storeFingerprint());
             }
         }
-        auxSb.append("]");
+    }
 
-        String jsonContent = auxSb.toString();
-        try {
-            Files.writeString(FILE_PATH, jsonContent);
-        } catch (IOException e) {
-            throw new TaskStorageException("Error writing tasks to JSON", e);
+    /**
+     * Merges the tasks saved by another process into this manager before it saves.
+     * Tasks changed here keep this manager's version, the others are replaced by the stored ones, and a task
+     * deleted by the other process stays deleted even if it was changed here. A task added here under an ID
+     * the other process used as well is moved to a new ID.
+     *
+     * @param changed the changes of this manager since its last save
+     * @return the changes to save, with every moved task added under its new ID so a delta save writes it
+     */
+    private Map<Integer, ChangeType> mergeStoredChanges(Map<Integer, ChangeType> changed) {
+        if (source != null) {
+            // The source maps the file as it was loaded, so every task is taken from it before it is replaced
+            List<Integer> ids = new ArrayList<>();
+            source.forEachStatus((id, status) -> ids.add(id));
+            ids.forEach(this::findTask);
+        }
+        IntTaskMap stored = new IntTaskMap();
+        storage.load(stored);
+
+        List<Task> collisions = new ArrayList<>();
+        tasks.forEachTask(task -> {
+            boolean added = changed.get(task.getId()) == ChangeType.ADD;
+            if (stored.get(task.getId()) == null && !added) {
+                replaceTask(task.getId(), null);
+            } else if (stored.get(task.getId()) != null && added) {
+                collisions.add(task);
+            }
+        });
+        // Loading the stored tasks advanced the last ID past them, so the new IDs are free
+        Map<Integer, ChangeType> saved = new HashMap<>(changed);
+        for (Task task : collisions) {
+            replaceTask(task.getId(), null);
+            Task moved = Task.restore(Task.allocateId(), task.getDescription(), task.getStatus(),
+                    task.getCreatedAt(), task.getUpdatedAt());
+            replaceTask(moved.getId(), moved);
+            saved.put(moved.getId(), ChangeType.ADD);
+        }
+        stored.forEachTask(task -> {
+            ChangeType change = changed.get(task.getId());
+            if (change == null || change == ChangeType.ADD) {
+                replaceTask(task.getId(), task);
+            }
+        });
+        return saved;
+    }
+
+    /**
+     * Replaces the task held under an ID while merging, keeping the indexes in line.
+     *
+     * @param id the unique identifier of the task
+     * @param task the new task, or null to remove the current one
+     */
+    private void replaceTask(int id, Task task) {
+        Task current = tasks.get(id);
+        if (current != null) {
+            synchronized (current) {
+                if (tasks.remove(id, current)) {
+                    unindexTask(current);
+                }
+            }
+        }
+        if (task != null) {
+            synchronized (task) {
+                tasks.put(id, task);
+                indexTask(task);
+            }
         }
     }
 
+    /**
+     * Releases the storage, waiting for any background work such as a journal compaction.
+     */
+    @Override
+    public void close() {
+        storage.close();
+        storeLock.close();
+    }
+
     /**
      * Adds a new task with the given description.
-     * The task is assigned a unique ID and stored in the tasks HashMap.
+     * The task is assigned a unique ID and stored in the tasks map.
      *
      * @param description the description of the task to be added
      */
     public void addTask(String description) {
-        Task task = new Task(description);
-        tasks.put(task.getId(), task);
+        // Storages that append every mutation need IDs unique across processes right away, the others
+        // move colliding IDs when they merge on save
+        Task task = storage.rewritesOnSave() ? new Task(description) : storeLock.locked(() -> {
+            Task.advanceLastId(storeLock.readLastId());
+            Task allocated = new Task(description);
+            storeLock.writeLastId(allocated.getId());
+            return allocated;
+        });
+        synchronized (task) {
+            tasks.put(task.getId(), task);
+            record(TaskChange.of(ChangeType.ADD, task), null);
+            indexTask(task);
+        }
     }
 
     /**
@@ -154,8 +656,7 @@ public class TaskManager {
      * @throws NoSuchElementException if no task with the given ID exists
      */
     public void updateTask(int id, String description) {
-        Task newTask = Optional.ofNullable(tasks.get(id)).orElseThrow(() -> new NoSuchElementException("No such task with id: " + id));
-        newTask.updateDescription(description);
+        mutate(id, ChangeType.UPDATE, task -> task.updateDescription(description));
     }
 
     /**
@@ -166,7 +667,14 @@ public class TaskManager {
      * @throws NoSuchElementException if no task with the given ID exists
      */
     public void deleteTask(int id) {
-        Optional.ofNullable(tasks.remove(id)).orElseThrow(() -> new NoSuchElementException("No such task with id: " + id));
+        Task task = Optional.ofNullable(findTask(id)).orElseThrow(() -> new NoSuchElementException("No such task with id: " + id));
+        synchronized (task) {
+            if (!tasks.remove(id, task)) {
+                throw new NoSuchElementException("No such task with id: " + id);
+            }
+            record(TaskChange.deleted(id), history == null ? null : task.toJson());
+            unindexTask(task);
+        }
     }
 
     /**
@@ -177,8 +685,7 @@ public class TaskManager {
      * @throws NoSuchElementException if no task with the given ID exists
      */
     public void markDone(int id) {
-        Task modifyTask = Optional.ofNullable(tasks.get(id)).orElseThrow(() -> new NoSuchElementException("No such task with id: " + id));
-        modifyTask.markAsDone();
+        mutate(id, ChangeType.MARK_DONE, Task::markAsDone);
     }
 
     /**
@@ -189,8 +696,283 @@ public class TaskManager {
      * @throws NoSuchElementException if no task with the given ID exists
      */
     public void markInProgress(int id) {
-        Task modifyTask = Optional.ofNullable(tasks.get(id)).orElseThrow(() -> new NoSuchElementException("No such task with id: " + id));
-        modifyTask.markAsInProgress();
+        mutate(id, ChangeType.MARK_IN_PROGRESS, Task::markAsInProgress);
+    }
+
+    /**
+     * Marks every task matching the query as DONE, in one pass, skipping the tasks already DONE.
+     *
+     * @param query the tasks to mark, an empty query marks every task
+     * @return the number of tasks marked
+     * @see #mutateAll(TaskQuery, ChangeType, Predicate, Consumer)
+     */
+    public int markDone(TaskQuery query) {
+        return mutateAll(query, ChangeType.MARK_DONE, task -> task.getStatus() != Status.DONE, Task::markAsDone);
+    }
+
+    /**
+     * Marks every task matching the query as IN_PROGRESS, in one pass, skipping the tasks already IN_PROGRESS.
+     *
+     * @param query the tasks to mark, an empty query marks every task
+     * @return the number of tasks marked
+     */
+    public int markInProgress(TaskQuery query) {
+        return mutateAll(query, ChangeType.MARK_IN_PROGRESS, task -> task.getStatus() != Status.IN_PROGRESS,
+                Task::markAsInProgress);
+    }
+
+    /**
+     * Deletes every task matching the query, in one pass.
+     *
+     * @param query the tasks to delete, an empty query deletes every task
+     * @return the number of tasks deleted
+     */
+    public int deleteTasks(TaskQuery query) {
+        return mutateAll(query, ChangeType.DELETE, task -> true, task -> {
+        });
+    }
+
+    /**
+     * Sets the description of every task matching the query, in one pass, skipping the tasks that already have it.
+     *
+     * @param query the tasks to update, an empty query updates every task
+     * @param description the new description
+     * @return the number of tasks updated
+     */
+    public int updateTasks(TaskQuery query, String description) {
+        return mutateAll(query, ChangeType.UPDATE, task -> !task.getDescription().equals(description),
+                task -> task.updateDescription(description));
+    }
+
+    /**
+     * Replaces every occurrence of a text in the descriptions of the tasks matching the query and containing
+     * it, in one pass. The text is matched ignoring case, as by TaskQuery.containing.
+     *
+     * @param query the tasks to update, an empty query updates every task containing the text
+     * @param text the text to replace, must not be empty
+     * @param replacement the text put in its place
+     * @return the number of tasks updated
+     * @throws IllegalArgumentException if the text is empty
+     */
+    public int replaceInDescriptions(TaskQuery query, String text, String replacement) {
+        if (text.isEmpty()) {
+            throw new IllegalArgumentException("The text to replace must not be empty");
+        }
+        Pattern pattern = Pattern.compile(Pattern.quote(text), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        String quoted = Matcher.quoteReplacement(replacement);
+        return mutateAll(query, ChangeType.UPDATE,
+                task -> pattern.matcher(task.getDescription()).find()
+                        && !pattern.matcher(task.getDescription()).replaceAll(quoted).equals(task.getDescription()),
+                task -> task.updateDescription(pattern.matcher(task.getDescription()).replaceAll(quoted)));
+    }
+
+    /**
+     * Moves the DONE tasks last updated before the given time to the archive, as one new segment.
+     * The tasks are deleted from the store, so the next save no longer writes them, and they are only read again
+     * by queries including archived tasks. Their IDs stay taken. The segment is appended under the store lock,
+     * which is never held while the lock of a task is taken: a mutation appending to the journal takes them the
+     * other way round.
+     *
+     * @param updatedBefore the exclusive upper bound of the last update time
+     * @return the number of tasks archived
+     * @throws TaskStorageException if the archive cannot be written, in which case no task is removed
+     */
+    public int archiveTasks(LocalDateTime updatedBefore) {
+        List<Integer> candidates = new ArrayList<>();
+        forEachMatching(new TaskQuery().withStatus(Status.DONE), task -> {
+            if (task.getUpdatedAt().isBefore(updatedBefore)) {
+                candidates.add(task.getId());
+            }
+        });
+        List<Task> removed = new ArrayList<>();
+        for (int id : candidates) {
+            Task task = findTask(id);
+            if (task == null) {
+                continue;
+            }
+            synchronized (task) {
+                // Checked again under the task's lock, a concurrent command may have changed it
+                if (task.getStatus() == Status.DONE && task.getUpdatedAt().isBefore(updatedBefore)
+                        && tasks.remove(id, task)) {
+                    unindexTask(task);
+                    removed.add(task);
+                }
+            }
+        }
+        try {
+            storeLock.locked(() -> archive.append(removed));
+        } catch (TaskStorageException e) {
+            removed.forEach(task -> replaceTask(task.getId(), task));
+            throw e;
+        }
+        // One group, so a single undo brings back every archived task
+        List<TaskHistory.Change> group = history == null ? null : new ArrayList<>();
+        for (Task task : removed) {
+            synchronized (task) {
+                record(TaskChange.deleted(task.getId()), history == null ? null : task.toJson(),
+                        TaskHistory.Kind.CHANGE, 0, group);
+            }
+        }
+        if (group != null) {
+            history.recordGroup(group);
+        }
+        return removed.size();
+    }
+
+    /**
+     * Archives the DONE tasks not updated for the number of days set by TASK_TRACKER_ARCHIVE_DAYS, at most once a
+     * day. Without the setting tasks are only archived on demand and the archive is not read.
+     * Every save runs it, so the policy applies to single commands, batches and the daemon alike.
+     *
+     * @return the number of tasks archived
+     * @throws TaskStorageException if the setting is invalid or the archive cannot be written
+     */
+    public int archiveIfDue() {
+        Integer days = TaskArchive.policyDaysFromEnvironment();
+        if (days == null) {
+            return 0;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        long nowMillis = Task.toEpochMillis(now);
+        if (nowMillis < archivePolicyDueTime) {
+            return 0;
+        }
+        // The run is claimed under the store lock, so a single process runs the policy, and the tasks are archived
+        // after the lock is released
+        Long previousRun = storeLock.locked(() -> {
+            // Another process may have run the policy since it was last read
+            long dueTime = archive.getPolicyDueTime();
+            if (nowMillis < dueTime) {
+                archivePolicyDueTime = dueTime;
+                return null;
+            }
+            archive.markPolicyRun(nowMillis);
+            return dueTime - TaskArchive.POLICY_PERIOD_MILLIS;
+        });
+        if (previousRun == null) {
+            return 0;
+        }
+        archivePolicyDueTime = nowMillis + TaskArchive.POLICY_PERIOD_MILLIS;
+        try {
+            return archiveTasks(now.minusDays(days));
+        } catch (TaskStorageException e) {
+            // Nothing was archived, so the policy runs again with the next save
+            storeLock.locked(() -> archive.markPolicyRun(previousRun));
+            archivePolicyDueTime = 0;
+            throw e;
+        }
+    }
+
+    /**
+     * Finds an archived task by its ID, reading the archive.
+     *
+     * @param id the unique identifier of the task
+     * @return the archived Task if found, otherwise null
+     */
+    public Task getArchivedTask(int id) {
+        Task[] found = new Task[1];
+        // A task archived, restored and archived again is in several segments, the last one is the newest
+        archive.forEach(task -> {
+            if (task.getId() == id) {
+                found[0] = task;
+            }
+        });
+        return found[0];
+    }
+
+    /**
+     * Tells whether the manager keeps the history of the changes, which undo, redo and past queries read.
+     *
+     * @return true if the history is kept
+     */
+    public boolean hasHistory() {
+        return history != null;
+    }
+
+    /**
+     * Reverts the last change that was not undone yet, restoring the task as it was before it.
+     * Changes saved by every process are undone in the order they were saved, so the pending changes are
+     * logged first.
+     *
+     * A bulk change is undone as a whole.
+     *
+     * @return the events of the change that was undone, empty if there is nothing to undo
+     * @throws IllegalStateException if the history is disabled
+     */
+    public List<TaskHistory.Event> undo() {
+        return travel(true);
+    }
+
+    /**
+     * Applies again the last change that was undone, as long as no command changed a task since.
+     *
+     * A bulk change is applied again as a whole.
+     *
+     * @return the events of the change that was applied again, empty if there is nothing to redo
+     * @throws IllegalStateException if the history is disabled
+     */
+    public List<TaskHistory.Event> redo() {
+        return travel(false);
+    }
+
+    private List<TaskHistory.Event> travel(boolean undo) {
+        if (history == null) {
+            throw new IllegalStateException("The task history is disabled");
+        }
+        synchronized (travelLock) {
+            List<TaskHistory.Event> events = storeLock.locked(() -> {
+                history.flush(this::readTasksFromJson, !storage.rewritesOnSave());
+                return undo ? history.peekUndo() : history.peekRedo();
+            });
+            if (events.isEmpty()) {
+                return events;
+            }
+            // A group is undone from its last change back to its first, and redone in the order it was applied
+            List<TaskHistory.Event> ordered = undo ? events.reversed() : events;
+            long reference = events.get(0).sequence();
+            TaskHistory.Kind kind = undo ? TaskHistory.Kind.UNDO : TaskHistory.Kind.REDO;
+            List<TaskHistory.Change> group = new ArrayList<>();
+            for (TaskHistory.Event event : ordered) {
+                restoreTask(event.id(), undo ? event.before() : event.after(), kind, reference, group);
+            }
+            history.recordGroup(group);
+            return events;
+        }
+    }
+
+    /**
+     * Puts a task back in the state recorded by the history, adding, replacing or deleting it.
+     *
+     * @param id the unique identifier of the task
+     * @param json the task to restore as JSON, or null to delete it
+     * @param kind whether the change is undone or redone
+     * @param reference the first sequence of the group of changes undone or redone
+     * @param group collects the history events of the undo or redo
+     */
+    private void restoreTask(int id, String json, TaskHistory.Kind kind, long reference,
+                             List<TaskHistory.Change> group) {
+        Task current = findTask(id);
+        String before = current == null ? null : current.toJson();
+        if (json == null) {
+            if (current == null) {
+                // Already gone, only the history moves
+                group.add(new TaskHistory.Change(kind, reference, ChangeType.DELETE, id, null, null));
+                return;
+            }
+            synchronized (current) {
+                if (tasks.remove(id, current)) {
+                    unindexTask(current);
+                }
+                record(TaskChange.deleted(id), before, kind, reference, group);
+            }
+            return;
+        }
+        Task restored = Task.fromJson(json);
+        replaceTask(id, restored);
+        synchronized (restored) {
+            record(TaskChange.of(current == null ? ChangeType.ADD : ChangeType.UPDATE, restored), before, kind,
+                    reference, group);
+        }
     }
 
     /**
@@ -200,20 +982,271 @@ public class TaskManager {
      * @param printMode the mode in which tasks should be printed
      */
     public void printTask(PrintMode printMode) {
-        for (Task task : tasks.values()) {
-            switch (printMode) {
-                case ALL -> System.out.println(task.toString());
-                case TODO -> {
-                    if (task.getStatus() == Status.TODO) System.out.println(task);
-                }
-                case DONE -> {
-                    if (task.getStatus() == Status.DONE) System.out.println(task);
+        printTask(printMode, System.out);
+    }
+
+    /**
+     * Prints tasks based on the specified print mode to the given stream.
+     * Filtered modes read the status index, so their cost depends on the number of matching tasks only.
+     *
+     * @param printMode the mode in which tasks should be printed
+     * @param out the stream receiving the tasks
+     */
+    public void printTask(PrintMode printMode, PrintStream out) {
+        Status status = switch (printMode) {
+            case ALL -> null;
+            case TODO -> Status.TODO;
+            case DONE -> Status.DONE;
+            case IN_PROGRESS -> Status.IN_PROGRESS;
+        };
+        try (TaskWriter writer = new TaskWriter(out, OutputFormat.TEXT)) {
+            if (status == null) {
+                forEachTask(writer);
+            } else {
+                forEachMatching(new TaskQuery().withStatus(status), writer);
+            }
+        }
+    }
+
+    /**
+     * Prints the tasks matching the query in the given format to the given stream.
+     * Tasks are written through one buffered writer, which is flushed once every task is written.
+     *
+     * @param query the criteria, order and page of the tasks to print
+     * @param format the format of every task
+     * @param out the stream receiving the tasks
+     * @throws NoSuchElementException if the query starts after a task that does not exist
+     */
+    public void printTasks(TaskQuery query, OutputFormat format, PrintStream out) {
+        try (TaskWriter writer = new TaskWriter(out, format)) {
+            forEachMatching(query, writer);
+        }
+    }
+
+    /**
+     * Finds the tasks matching the query.
+     *
+     * @param query the criteria to match
+     * @return the matching tasks
+     * @see #forEachMatching(TaskQuery, Consumer)
+     */
+    public List<Task> findTasks(TaskQuery query) {
+        List<Task> found = new ArrayList<>();
+        forEachMatching(query, found::add);
+        return found;
+    }
+
+    /**
+     * Performs the given action for every task matching the query.
+     * Candidates are read from the most selective index available: the IDs when the query lists them, the update
+     * time index when the query bounds the update time, then the creation time index, then the status index.
+     * Tasks are visited in the order of that index, by time for time ranges and by ID otherwise, and every
+     * candidate is checked against the full query.
+     *
+     * A query with an order or a page visits the tasks sorted by its order, by ID when it sets none. With a limit
+     * only the first offset + limit tasks are kept while the candidates are read, in a bounded heap, so a page
+     * costs a pass over the candidates but never a sort of all of them.
+     *
+     * A query with an as-of time visits the tasks of that time, rebuilt from the history instead of the indexes.
+     * A query including archived tasks reads the archive and visits its tasks with the current ones.
+     *
+     * @param query the criteria to match
+     * @param action the action to perform
+     * @throws NoSuchElementException if the query starts after a task that does not exist, or looks at a time
+     *         before the history started
+     * @throws IllegalStateException if the query looks at a past time and the history is disabled
+     */
+    public void forEachMatching(TaskQuery query, Consumer<Task> action) {
+        if (query.getAsOf() != null) {
+            forEachAsOf(query, action);
+        } else if (query.isIncludingArchived()) {
+            forEachWithArchived(query, action);
+        } else if (query.isPaged()) {
+            forEachInPage(query, candidates -> forEachCandidate(query, candidates), this::findTask, action);
+        } else {
+            forEachCandidate(query, action);
+        }
+    }
+
+    /**
+     * Visits the tasks matching the query as they were at its as-of time, rebuilt from the history.
+     */
+    private void forEachAsOf(TaskQuery query, Consumer<Task> action) {
+        if (history == null) {
+            throw new IllegalStateException("The task history is disabled");
+        }
+        forEachIn(history.stateAsOf(query.getAsOf()), query, action);
+    }
+
+    /**
+     * Visits the archived and current tasks matching the query. A task restored after it was archived is
+     * visited once, as it is in the store.
+     */
+    private void forEachWithArchived(TaskQuery query, Consumer<Task> action) {
+        Map<Integer, Task> all = new HashMap<>();
+        archive.forEach(task -> all.put(task.getId(), task));
+        forEachTask(task -> all.put(task.getId(), task));
+        forEachIn(all, query, action);
+    }
+
+    /**
+     * Visits the tasks of the map matching the query. No index covers these tasks, so every one is checked and
+     * they are visited by ID.
+     */
+    private void forEachIn(Map<Integer, Task> candidates, TaskQuery query, Consumer<Task> action) {
+        List<Task> matching = new ArrayList<>();
+        for (Task task : candidates.values()) {
+            if (query.matches(task)) {
+                matching.add(task);
+            }
+        }
+        matching.sort(Comparator.comparingInt(Task::getId));
+        if (query.isPaged()) {
+            forEachInPage(query, matching::forEach, candidates::get, action);
+        } else {
+            matching.forEach(action);
+        }
+    }
+
+    /**
+     * A matching task with its sort key, read once when the task is visited, so a task updated while the page is
+     * built keeps its place.
+     */
+    private record Ranked(long key, int id, Task task) {
+    }
+
+    /**
+     * Visits a page of the candidates in the order of the query.
+     *
+     * @param query the order and page
+     * @param candidates passes every matching task to the consumer it is given
+     * @param lookup finds the cursor task by ID
+     * @param action the action to perform
+     */
+    private void forEachInPage(TaskQuery query, Consumer<Consumer<Task>> candidates, IntFunction<Task> lookup,
+                               Consumer<Task> action) {
+        TaskOrder order = query.getOrder() == null ? TaskOrder.ID : query.getOrder();
+        Comparator<Ranked> comparator = Comparator.comparingLong(Ranked::key).thenComparingInt(Ranked::id);
+        if (query.isDescending()) {
+            comparator = comparator.reversed();
+        }
+
+        Ranked cursor = null;
+        if (query.getAfter() != null) {
+            int id = query.getAfter();
+            Task task = Optional.ofNullable(lookup.apply(id)).orElseThrow(() -> new NoSuchElementException("No such task with id: " + id));
+            cursor = new Ranked(order.keyOf(task), id, task);
+        }
+        Ranked start = cursor;
+        Comparator<Ranked> inOrder = comparator;
+
+        List<Ranked> page;
+        if (query.getLimit() >= 0) {
+            // Top-K selection: the head of the heap is the last task of the page, replaced by any task before it
+            long wanted = (long) query.getOffset() + query.getLimit();
+            int capacity = (int) Math.min(wanted, Integer.MAX_VALUE - 8);
+            PriorityQueue<Ranked> heap = new PriorityQueue<>(Math.max(1, Math.min(capacity, 1024)), inOrder.reversed());
+            if (capacity > 0) {
+                candidates.accept(task -> {
+                    Ranked ranked = new Ranked(order.keyOf(task), task.getId(), task);
+                    if (start != null && inOrder.compare(ranked, start) <= 0) {
+                        return;
+                    }
+                    if (heap.size() < capacity) {
+                        heap.add(ranked);
+                    } else if (inOrder.compare(ranked, heap.peek()) < 0) {
+                        heap.poll();
+                        heap.add(ranked);
+                    }
+                });
+            }
+            page = new ArrayList<>(heap);
+        } else {
+            List<Ranked> all = new ArrayList<>();
+            candidates.accept(task -> {
+                Ranked ranked = new Ranked(order.keyOf(task), task.getId(), task);
+                if (start == null || inOrder.compare(ranked, start) > 0) {
+                    all.add(ranked);
                 }
-                case IN_PROGRESS -> {
-                    if (task.getStatus() == Status.IN_PROGRESS) System.out.println(task);
+            });
+            page = all;
+        }
+        page.sort(inOrder);
+        for (int i = query.getOffset(); i < page.size(); i++) {
+            action.accept(page.get(i).task());
+        }
+    }
+
+    private void forEachCandidate(TaskQuery query, Consumer<Task> action) {
+        if (query.getIds() != null) {
+            // IDs past the last one handed out were never used
+            query.getIds().forEach(Task.getLastIdSaved(), id -> visitIfMatching(id, query, action));
+        } else if (query.getUpdatedSince() != null || query.getUpdatedBefore() != null) {
+            ensureTimeIndex();
+            long from = query.getUpdatedSince() == null ? Long.MIN_VALUE : Task.toEpochMillis(query.getUpdatedSince());
+            long to = query.getUpdatedBefore() == null ? Long.MAX_VALUE : Task.toEpochMillis(query.getUpdatedBefore());
+            for (TimeIndex.Entry entry : timeIndex.updatedBetween(from, to)) {
+                visitIfMatching(entry.id(), query, action);
+            }
+        } else if (query.getCreatedAfter() != null || query.getCreatedBefore() != null) {
+            ensureTimeIndex();
+            long from = query.getCreatedAfter() == null ? Long.MIN_VALUE : Task.toEpochMillis(query.getCreatedAfter());
+            long to = query.getCreatedBefore() == null ? Long.MAX_VALUE : Task.toEpochMillis(query.getCreatedBefore());
+            for (TimeIndex.Entry entry : timeIndex.createdBetween(from, to)) {
+                visitIfMatching(entry.id(), query, action);
+            }
+        } else if (query.getStatus() != null) {
+            ensureStatusIndex();
+            for (int id : statusIndex.idsWith(query.getStatus())) {
+                visitIfMatching(id, query, action);
+            }
+        } else {
+            forEachTask(task -> {
+                if (query.matches(task)) {
+                    action.accept(task);
                 }
+            });
+        }
+    }
+
+    /**
+     * Visits a candidate read from an index, the indexes are live views so the task is checked again.
+     */
+    private void visitIfMatching(int id, TaskQuery query, Consumer<Task> action) {
+        Task task = findTask(id);
+        if (task != null && query.matches(task)) {
+            action.accept(task);
+        }
+    }
+
+    /**
+     * Finds the tasks whose description matches the query, in ID order.
+     * Terms separated by spaces must all match, OR separates alternatives and a trailing * matches a prefix.
+     *
+     * @param query the search query
+     * @return the matching tasks
+     */
+    public List<Task> searchTasks(String query) {
+        ensureSearchIndex();
+        List<Task> found = new ArrayList<>();
+        for (int id : searchIndex.search(query)) {
+            Task task = findTask(id);
+            if (task != null) {
+                found.add(task);
             }
         }
+        return found;
+    }
+
+    /**
+     * Counts the tasks with the given status using the status index.
+     *
+     * @param status the status to count
+     * @return the number of tasks with the status
+     */
+    public int countTasks(Status status) {
+        ensureStatusIndex();
+        return statusIndex.count(status);
     }
 
     /**
@@ -224,7 +1257,7 @@ public class TaskManager {
      * @return the Task object if found, otherwise null
      */
     public Task getTaskById(int id) {
-        return tasks.get(id);
+        return findTask(id);
     }
 
     /**
@@ -233,6 +1266,6 @@ public class TaskManager {
      * @return true if there are no tasks, false otherwise
      */
     public boolean isEmpty() {
-        return tasks.isEmpty();
+        return tasks.isEmpty() && (source == null || source.isEmpty());
     }
 }
@@ -1,55 +1,124 @@
 package dev.shoangenes.tasktracker;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 
 public class TaskManagerCLI {
-    public static void main(String[] args) {
-        try {
-            TaskManager taskManager = new TaskManager();
+    // Selection accepted by the bulk forms of update, delete, mark-in-progress and mark-done
+    private static final String SELECTION_USAGE = "<ids> [--status todo|in-progress|done] [--created-after <time>] "
+            + "[--created-before <time>] [--updated-since <time>] [--updated-before <time>] [--match <text>]";
 
-            if (args.length < 1) {
-                System.out.println("Usage: task-tracker <command> [arguments]");
-                return;
+    public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("convert")) {
+            // Converting works on the files directly and must not be followed by a save of a loaded store
+            try {
+                handleConvert(args);
+            } catch (TaskStorageException e) {
+                System.out.println("Fatal error: " + e.getMessage());
+                System.exit(1);
             }
+            return;
+        }
+        if (args.length > 0 && args[0].equals("daemon")) {
+            handleDaemon(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("batch")) {
+            // A batch persists on its own schedule instead of once after a single command
+            handleBatch(args);
+            return;
+        }
 
-            String command = args[0];
-
-            try {
-                switch (command) {
-                    case "help" -> handleHelp(args);
-                    case "add" -> handleAdd(taskManager, args);
-                    case "update" -> handleUpdate(taskManager, args);
-                    case "delete" -> handleDelete(taskManager, args);
-                    case "mark-in-progress" -> handleMarkInProgress(taskManager, args);
-                    case "mark-done" -> handleMarkDone(taskManager, args);
-                    case "list" -> handleList(taskManager, args);
-                    default -> System.out.println("Unknown command, enter 'help' to display all commands");
-                }
-            } catch (NoSuchElementException e) {
-                System.out.println("Error: " + e.getMessage());
+        // A running daemon already holds the tasks in memory, so the command is forwarded to it
+        Optional<Integer> forwarded = DaemonClient.forward(TaskTrackerDaemon.socketPath(), args, System.out);
+        if (forwarded.isPresent()) {
+            if (forwarded.get() != 0) {
+                System.exit(forwarded.get());
             }
+            return;
+        }
 
+        try (TaskManager taskManager = new TaskManager()) {
+            execute(taskManager, args, System.out);
             taskManager.writeTasksToJson();
         } catch (TaskStorageException e) {
             System.out.println("Fatal error: " + e.getMessage());
             System.exit(1);
         }
+        Metrics.appendToLog(args.length > 0 ? args[0] : "");
     }
 
+    /**
+     * Executes a single command against the given TaskManager.
+     * Errors caused by the user, such as unknown IDs, are printed to the output instead of being thrown.
+     *
+     * @param taskManager the TaskManager instance to manage tasks
+     * @param args the command line arguments, starting with the command
+     * @param out the stream receiving the command output
+     * @throws TaskStorageException if the tasks cannot be read or written
+     */
+    static void execute(TaskManager taskManager, String[] args, PrintStream out) {
+        if (args.length < 1) {
+            out.println("Usage: task-tracker <command> [arguments]");
+            return;
+        }
+
+        String command = args[0];
+
+        long start = System.nanoTime();
+        boolean known = true;
+        try {
+            switch (command) {
+                case "help" -> handleHelp(args, out);
+                case "add" -> handleAdd(taskManager, args, out);
+                case "update" -> handleUpdate(taskManager, args, out);
+                case "delete" -> handleDelete(taskManager, args, out);
+                case "mark-in-progress" -> handleMarkInProgress(taskManager, args, out);
+                case "mark-done" -> handleMarkDone(taskManager, args, out);
+                case "list" -> handleList(taskManager, args, out);
+                case "count" -> handleCount(taskManager, out);
+                case "search" -> handleSearch(taskManager, args, out);
+                case "undo" -> handleUndo(taskManager, true, out);
+                case "redo" -> handleUndo(taskManager, false, out);
+                case "archive" -> handleArchive(taskManager, args, out);
+                case "stats" -> handleStats(args, out);
+                default -> {
+                    known = false;
+                    out.println("Unknown command, enter 'help' to display all commands");
+                }
+            }
+        } catch (NoSuchElementException e) {
+            Metrics.counter("commands.failed").incrementAndGet();
+            out.println("Error: " + e.getMessage());
+        } finally {
+            if (known) {
+                Metrics.timer("command." + command).stop(start);
+            }
+        }
+    }
 
     /**
      * Parses the ID from a string and prints an error message if the parsing fails.
      *
      * @param idStr the string to parse as an ID
+     * @param out the stream receiving the error message
      * @return an Optional containing the parsed ID, or empty if parsing failed
      */
-    private static Optional<Integer> parseIdOrPrintError(String idStr) {
+    private static Optional<Integer> parseIdOrPrintError(String idStr, PrintStream out) {
         try {
             return Optional.of(Integer.parseInt(idStr));
         } catch (NumberFormatException e) {
-            System.out.println("Error: ID must be a valid number. Got: '" + idStr + "'");
+            out.println("Error: ID must be a valid number. Got: '" + idStr + "'");
             return Optional.empty();
         }
     }
@@ -59,13 +128,14 @@ public class TaskManagerCLI {
      * If no arguments are provided, it prints the help message.
      *
      * @param args the command line arguments
+     * @param out the stream receiving the command output
      */
-    private static void handleHelp(String[] args) {
+    private static void handleHelp(String[] args, PrintStream out) {
         if (args.length < 1) {
-            System.out.println("Usage: task-tracker help [without arguments]");
+            out.println("Usage: task-tracker help [without arguments]");
             return;
         }
-        printHelp();
+        printHelp(out);
     }
 
     /**
@@ -74,129 +144,596 @@ public class TaskManagerCLI {
      *
      * @param taskManager the TaskManager instance to manage tasks
      * @param args the command line arguments
+     * @param out the stream receiving the command output
      */
-    private static void handleAdd(TaskManager taskManager, String[] args) {
+    private static void handleAdd(TaskManager taskManager, String[] args, PrintStream out) {
         if (args.length < 2) {
-            System.out.println("Usage: task-tracker <description>");
+            out.println("Usage: task-tracker <description>");
             return;
         }
         String description = String.join(" ", Arrays.copyOfRange(args, 1, args.length));
         taskManager.addTask(description);
-        System.out.println("Task added successfully.");
+        out.println("Task added successfully.");
     }
 
     /**
      * Handles the 'update' command to update an existing task.
-     * If the ID or description is missing, it prints an error message.
+     * Given ID ranges or filters instead of one ID, it sets the description of every selected task, or with
+     * --match replaces the matched text in their descriptions. If the ID or description is missing, it prints an
+     * error message.
      *
      * @param taskManager the TaskManager instance to manage tasks
      * @param args the command line arguments
+     * @param out the stream receiving the command output
      */
-    private static void handleUpdate(TaskManager taskManager, String[] args) {
+    private static void handleUpdate(TaskManager taskManager, String[] args, PrintStream out) {
         if (args.length < 3) {
-            System.out.println("Usage: task-tracker update <id> <description>");
+            out.println("Usage: task-tracker update <id> <description>");
+            out.println("   or: task-tracker update " + SELECTION_USAGE + " <description>");
             return;
         }
-        Optional<Integer> parsedId = parseIdOrPrintError(args[1]);
+        if (isSelection(args[1])) {
+            TaskQuery query = new TaskQuery();
+            int next = parseSelection(args, query, true, out);
+            if (next < 0) {
+                return;
+            }
+            if (next == args.length) {
+                out.println("Error: Missing description");
+                return;
+            }
+            String description = String.join(" ", Arrays.copyOfRange(args, next, args.length));
+            int updated = query.getText() == null ? taskManager.updateTasks(query, description)
+                    : taskManager.replaceInDescriptions(query, query.getText(), description);
+            printCount(updated, "updated", out);
+            return;
+        }
+        Optional<Integer> parsedId = parseIdOrPrintError(args[1], out);
         if (parsedId.isEmpty()) return;
         int id = parsedId.get();
         String description = String.join(" ", Arrays.copyOfRange(args, 2, args.length));
         taskManager.updateTask(id, description);
-        System.out.println("Task with id " + id + " updated.");
+        out.println("Task with id " + id + " updated.");
     }
 
     /**
      * Handles the 'delete' command to delete an existing task.
-     * If the ID is missing or invalid, it prints an error message.
+     * Given ID ranges or filters instead of one ID, it applies to every selected task at once and prints how many
+     * changed. If the ID is missing or invalid, it prints an error message.
      *
      * @param taskManager the TaskManager instance to manage tasks
      * @param args the command line arguments
+     * @param out the stream receiving the command output
      */
-    private static void handleDelete(TaskManager taskManager, String[] args) {
+    private static void handleDelete(TaskManager taskManager, String[] args, PrintStream out) {
         if (args.length < 2) {
-            System.out.println("Usage: task-tracker delete <id>");
+            out.println("Usage: task-tracker delete <id>");
+            out.println("   or: task-tracker delete " + SELECTION_USAGE);
             return;
         }
-        Optional<Integer> parsedId = parseIdOrPrintError(args[1]);
+        if (isSelection(args[1])) {
+            TaskQuery query = new TaskQuery();
+            if (parseSelection(args, query, false, out) > 0) {
+                printCount(taskManager.deleteTasks(query), "deleted", out);
+            }
+            return;
+        }
+        Optional<Integer> parsedId = parseIdOrPrintError(args[1], out);
         if (parsedId.isEmpty()) return;
         int id = parsedId.get();
         taskManager.deleteTask(id);
-        System.out.println("Task with id " + id + " deleted.");
+        out.println("Task with id " + id + " deleted.");
     }
 
     /**
      * Handles the 'mark-in-progress' command to mark a task as in progress.
-     * If the ID is missing or invalid, it prints an error message.
+     * Given ID ranges or filters instead of one ID, it applies to every selected task at once and prints how many
+     * changed. If the ID is missing or invalid, it prints an error message.
      *
      * @param taskManager the TaskManager instance to manage tasks
      * @param args the command line arguments
+     * @param out the stream receiving the command output
      */
-    private static void handleMarkInProgress(TaskManager taskManager, String[] args) {
+    private static void handleMarkInProgress(TaskManager taskManager, String[] args, PrintStream out) {
         if (args.length < 2) {
-            System.out.println("Usage: task-tracker mark-in-progress <id>");
+            out.println("Usage: task-tracker mark-in-progress <id>");
+            out.println("   or: task-tracker mark-in-progress " + SELECTION_USAGE);
+            return;
+        }
+        if (isSelection(args[1])) {
+            TaskQuery query = new TaskQuery();
+            if (parseSelection(args, query, false, out) > 0) {
+                printCount(taskManager.markInProgress(query), "marked in progress", out);
+            }
             return;
         }
-        Optional<Integer> parsedId = parseIdOrPrintError(args[1]);
+        Optional<Integer> parsedId = parseIdOrPrintError(args[1], out);
         if (parsedId.isEmpty()) return;
         int id = parsedId.get();
         taskManager.markInProgress(id);
-        System.out.println("Task with id " + id + " marked in progress.");
+        out.println("Task with id " + id + " marked in progress.");
     }
 
     /**
      * Handles the 'mark-done' command to mark a task as done.
-     * If the ID is missing or invalid, it prints an error message.
+     * Given ID ranges or filters instead of one ID, it applies to every selected task at once and prints how many
+     * changed. If the ID is missing or invalid, it prints an error message.
      *
      * @param taskManager the TaskManager instance to manage tasks
      * @param args the command line arguments
+     * @param out the stream receiving the command output
      */
-    private static void handleMarkDone(TaskManager taskManager, String[] args) {
+    private static void handleMarkDone(TaskManager taskManager, String[] args, PrintStream out) {
         if (args.length < 2) {
-            System.out.println("Usage: task-tracker mark-done <id>");
+            out.println("Usage: task-tracker mark-done <id>");
+            out.println("   or: task-tracker mark-done " + SELECTION_USAGE);
+            return;
+        }
+        if (isSelection(args[1])) {
+            TaskQuery query = new TaskQuery();
+            if (parseSelection(args, query, false, out) > 0) {
+                printCount(taskManager.markDone(query), "marked done", out);
+            }
             return;
         }
-        Optional<Integer> parsedId = parseIdOrPrintError(args[1]);
+        Optional<Integer> parsedId = parseIdOrPrintError(args[1], out);
         if (parsedId.isEmpty()) return;
         int id = parsedId.get();
         taskManager.markDone(id);
-        System.out.println("Task with id " + id + " marked done.");
+        out.println("Task with id " + id + " marked done.");
+    }
+
+    /**
+     * Checks if the first argument of a command selects tasks in bulk, as a list of IDs and ranges such as
+     * '100-250,300' or a filter option, rather than a single ID.
+     */
+    private static boolean isSelection(String argument) {
+        return argument.startsWith("--") || !argument.isEmpty() && Character.isDigit(argument.charAt(0))
+                && (argument.indexOf(',') >= 0 || argument.indexOf('-') >= 0);
+    }
+
+    /**
+     * Parses the selection of a bulk command starting at its first argument: an optional list of IDs and ranges
+     * followed by filter options. A selection must have at least one criterion, so a bulk command never applies
+     * to every task by accident.
+     *
+     * @param args the command line arguments
+     * @param query the query receiving the criteria
+     * @param trailing whether arguments that are not options may follow the selection, such as a description
+     * @param out the stream receiving the error messages
+     * @return the index of the first argument after the selection, or -1 if the selection is invalid
+     */
+    private static int parseSelection(String[] args, TaskQuery query, boolean trailing, PrintStream out) {
+        LocalDateTime now = LocalDateTime.now();
+        int i = 1;
+        try {
+            if (!args[i].startsWith("--")) {
+                query.withIds(IdRanges.parse(args[i++]));
+            }
+            for (; i < args.length && args[i].startsWith("--"); i++) {
+                String option = args[i];
+                if (i + 1 == args.length) {
+                    out.println("Error: Missing value for '" + option + "'");
+                    return -1;
+                }
+                String value = args[++i];
+                switch (option) {
+                    case "--status" -> query.withStatus(parseOption(Status.class, "status", value.replace('-', '_')));
+                    case "--created-after" -> query.createdAfter(TimeArgument.parse(value, now));
+                    case "--created-before" -> query.createdBefore(TimeArgument.parse(value, now));
+                    case "--updated-since" -> query.updatedSince(TimeArgument.parse(value, now));
+                    case "--updated-before" -> query.updatedBefore(TimeArgument.parse(value, now));
+                    case "--match" -> {
+                        if (value.isEmpty()) {
+                            out.println("Error: The text to match must not be empty");
+                            return -1;
+                        }
+                        query.containing(value);
+                    }
+                    default -> {
+                        out.println("Error: Unknown filter '" + option + "'");
+                        return -1;
+                    }
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            out.println("Error: " + e.getMessage());
+            return -1;
+        }
+        if (i == 1) {
+            out.println("Error: Missing IDs or filters");
+            return -1;
+        }
+        if (!trailing && i < args.length) {
+            out.println("Error: Unexpected argument '" + args[i] + "'");
+            return -1;
+        }
+        return i;
+    }
+
+    private static void printCount(int count, String verb, PrintStream out) {
+        out.println(count + (count == 1 ? " task " : " tasks ") + verb + ".");
     }
 
     /**
      * Handles the 'list' command to print tasks based on the specified mode.
-     * If the mode is missing or invalid, it prints an error message.
+     * The mode may be followed by time filters on the creation and update times, each taking an ISO date, an ISO
+     * date-time or a relative duration such as '2d' or '6h', by a sort order, by a page given as a limit with an
+     * offset or the ID of the last task of the previous page, and by an output format. If the mode or an option is
+     * invalid, it prints an error message.
      *
      * @param taskManager the TaskManager instance to manage tasks
      * @param args the command line arguments
+     * @param out the stream receiving the command output
      */
-    private static void handleList(TaskManager taskManager, String[] args) {
+    private static void handleList(TaskManager taskManager, String[] args, PrintStream out) {
         if (args.length < 2) {
-            System.out.println("Usage: task-tracker list <mode: ALL, TODO, DONE, IN-PROGRESS>");
+            out.println("Usage: task-tracker list <mode: ALL, TODO, DONE, IN-PROGRESS> "
+                    + "[--created-after <time>] [--created-before <time>] [--updated-since <time>] "
+                    + "[--updated-before <time>] [--match <text>] "
+                    + "[--sort id|created|updated] [--desc] [--limit <n>] [--offset <n>] [--after <id>] "
+                    + "[--format text|jsonl|csv] [--as-of <time>] [--archived]");
             return;
         }
+        PrintMode printMode;
         try {
-            PrintMode printMode = PrintMode.valueOf(args[1].toUpperCase());
-            taskManager.printTask(printMode);
+            printMode = PrintMode.valueOf(args[1].toUpperCase().replace('-', '_'));
         } catch (IllegalArgumentException e) {
-            System.out.println("Error: Unknown printMode '" + args[1] + "'");
+            out.println("Error: Unknown printMode '" + args[1] + "'");
+            return;
+        }
+        if (args.length == 2) {
+            taskManager.printTask(printMode, out);
+            return;
+        }
+
+        TaskQuery query = new TaskQuery().withStatus(switch (printMode) {
+            case ALL -> null;
+            case TODO -> Status.TODO;
+            case DONE -> Status.DONE;
+            case IN_PROGRESS -> Status.IN_PROGRESS;
+        });
+        TaskOrder order = null;
+        boolean descending = false;
+        OutputFormat format = OutputFormat.TEXT;
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 2; i < args.length; i++) {
+            String option = args[i];
+            if (option.equals("--desc")) {
+                descending = true;
+                continue;
+            }
+            if (option.equals("--archived")) {
+                query.includeArchived(true);
+                continue;
+            }
+            if (i + 1 == args.length) {
+                out.println("Error: Missing value for '" + option + "'");
+                return;
+            }
+            String value = args[++i];
+            try {
+                switch (option) {
+                    case "--created-after" -> query.createdAfter(TimeArgument.parse(value, now));
+                    case "--created-before" -> query.createdBefore(TimeArgument.parse(value, now));
+                    case "--updated-since" -> query.updatedSince(TimeArgument.parse(value, now));
+                    case "--updated-before" -> query.updatedBefore(TimeArgument.parse(value, now));
+                    case "--match" -> query.containing(value);
+                    case "--sort" -> order = parseOption(TaskOrder.class, "sort order", value);
+                    case "--format" -> format = parseOption(OutputFormat.class, "format", value);
+                    case "--limit" -> query.limit(parseCount(option, value));
+                    case "--offset" -> query.offset(parseCount(option, value));
+                    case "--after" -> query.after(parseCount(option, value));
+                    case "--as-of" -> {
+                        if (!taskManager.hasHistory()) {
+                            out.println("Error: The task history is disabled");
+                            return;
+                        }
+                        query.asOf(TimeArgument.parse(value, now));
+                    }
+                    default -> {
+                        out.println("Error: Unknown filter '" + option + "'");
+                        return;
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                out.println("Error: " + e.getMessage());
+                return;
+            }
+        }
+        if (order != null || descending) {
+            query.orderBy(order == null ? TaskOrder.ID : order, descending);
+        }
+        taskManager.printTasks(query, format, out);
+    }
+
+    /**
+     * Parses the value of an option naming a constant of the given enum, ignoring case.
+     *
+     * @throws IllegalArgumentException if the value names no constant
+     */
+    private static <E extends Enum<E>> E parseOption(Class<E> type, String name, String value) {
+        try {
+            return Enum.valueOf(type, value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown " + name + " '" + value + "'");
+        }
+    }
+
+    /**
+     * Parses the value of an option taking a number that cannot be negative.
+     *
+     * @throws IllegalArgumentException if the value is not such a number
+     */
+    private static int parseCount(String option, String value) {
+        try {
+            int count = Integer.parseInt(value);
+            if (count >= 0) {
+                return count;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("'" + option + "' must be a number that is not negative. Got: '" + value + "'");
+    }
+
+    /**
+     * Handles the 'search' command to print the tasks whose description matches the given terms.
+     * If the terms are missing, it prints an error message.
+     *
+     * @param taskManager the TaskManager instance to manage tasks
+     * @param args the command line arguments
+     * @param out the stream receiving the command output
+     */
+    private static void handleSearch(TaskManager taskManager, String[] args, PrintStream out) {
+        if (args.length < 2) {
+            out.println("Usage: task-tracker search <terms> [OR <terms>] (a trailing * matches a prefix)");
+            return;
+        }
+        String query = String.join(" ", Arrays.copyOfRange(args, 1, args.length));
+        for (Task task : taskManager.searchTasks(query)) {
+            out.println(task);
+        }
+    }
+
+    /**
+     * Handles the 'stats' command to print the timers and counters of the process serving the command,
+     * the running daemon when there is one. With --json, the metrics are printed as one JSON object.
+     *
+     * @param args the command line arguments
+     * @param out the stream receiving the command output
+     */
+    private static void handleStats(String[] args, PrintStream out) {
+        if (args.length > 2 || args.length == 2 && !args[1].equals("--json")) {
+            out.println("Usage: task-tracker stats [--json]");
+            return;
+        }
+        if (args.length == 2) {
+            out.println(Metrics.toJson());
+        } else {
+            Metrics.printText(out);
+        }
+    }
+
+    /**
+     * Handles the 'undo' and 'redo' commands, which revert the last change or apply again the last undone one.
+     *
+     * @param taskManager the TaskManager instance to manage tasks
+     * @param undo true for undo, false for redo
+     * @param out the stream receiving the output
+     */
+    private static void handleUndo(TaskManager taskManager, boolean undo, PrintStream out) {
+        if (!taskManager.hasHistory()) {
+            out.println("Error: The task history is disabled");
+            return;
+        }
+        List<TaskHistory.Event> events = undo ? taskManager.undo() : taskManager.redo();
+        if (events.isEmpty()) {
+            out.println(undo ? "Nothing to undo." : "Nothing to redo.");
+            return;
+        }
+        TaskHistory.Event event = events.get(0);
+        out.println((undo ? "Undid " : "Redid ") + event.type().name().toLowerCase().replace('_', '-')
+                + (events.size() == 1 ? " of task " + event.id() : " of " + events.size() + " tasks") + ".");
+    }
+
+    /**
+     * Handles the 'archive' command to move the DONE tasks to the archive.
+     * Without --before every DONE task is archived, otherwise only the ones last updated before the given time.
+     *
+     * @param taskManager the TaskManager instance to manage tasks
+     * @param args the command line arguments
+     * @param out the stream receiving the output
+     */
+    private static void handleArchive(TaskManager taskManager, String[] args, PrintStream out) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime before = now;
+        if (args.length > 1) {
+            if (args.length != 3 || !args[1].equals("--before")) {
+                out.println("Usage: task-tracker archive [--before <time>]");
+                return;
+            }
+            try {
+                before = TimeArgument.parse(args[2], now);
+            } catch (IllegalArgumentException e) {
+                out.println("Error: " + e.getMessage());
+                return;
+            }
+        }
+        int archived = taskManager.archiveTasks(before);
+        out.println("Archived " + archived + (archived == 1 ? " task." : " tasks."));
+    }
+
+    /**
+     * Handles the 'count' command to print the number of tasks with each status.
+     *
+     * @param taskManager the TaskManager instance to manage tasks
+     * @param out the stream receiving the command output
+     */
+    private static void handleCount(TaskManager taskManager, PrintStream out) {
+        for (Status status : Status.values()) {
+            out.println(status + ": " + taskManager.countTasks(status));
+        }
+    }
+
+    /**
+     * Handles the 'convert' command to convert the task store between tasks.json and the binary tasks.bin.
+     * If the direction is missing or invalid, or the source file does not exist, it prints an error message.
+     *
+     * @param args the command line arguments
+     */
+    private static void handleConvert(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: task-tracker convert <to-binary|to-json>");
+            return;
+        }
+        Path jsonPath = TaskManager.defaultFilePath();
+        Path binaryPath = BinaryTaskStorage.binaryPathFor(jsonPath);
+        switch (args[1]) {
+            case "to-binary" -> {
+                if (!Files.exists(jsonPath)) {
+                    System.out.println("Error: No tasks file found at " + jsonPath);
+                    return;
+                }
+                int count = BinaryTaskStorage.convertJsonToBinary(jsonPath, binaryPath);
+                System.out.println("Converted " + count + " tasks to " + binaryPath);
+            }
+            case "to-json" -> {
+                if (!Files.exists(binaryPath)) {
+                    System.out.println("Error: No binary tasks file found at " + binaryPath);
+                    return;
+                }
+                int count = BinaryTaskStorage.convertBinaryToJson(binaryPath, jsonPath);
+                System.out.println("Converted " + count + " tasks to " + jsonPath);
+            }
+            default -> System.out.println("Error: Unknown conversion '" + args[1] + "'");
+        }
+    }
+
+    /**
+     * Handles the 'daemon' command to run the daemon in the foreground, or to stop a running one.
+     *
+     * @param args the command line arguments
+     */
+    private static void handleDaemon(String[] args) {
+        Path socketPath = TaskTrackerDaemon.socketPath();
+        if (args.length > 1 && args[1].equals("stop")) {
+            if (DaemonClient.stop(socketPath)) {
+                System.out.println("Daemon stopped.");
+            } else {
+                System.out.println("Error: No daemon is running.");
+            }
+            return;
+        }
+        if (args.length > 1) {
+            System.out.println("Usage: task-tracker daemon [stop]");
+            return;
+        }
+        try {
+            new TaskTrackerDaemon(new TaskManager(), socketPath).run();
+        } catch (TaskStorageException | IllegalArgumentException e) {
+            System.out.println("Fatal error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Handles the 'batch' command to apply the commands read from a file or the standard input, one per line.
+     * The commands run against a single TaskManager that persists every given number of commands and at the end,
+     * or are forwarded one by one to a running daemon. Failing lines are reported and do not stop the batch.
+     *
+     * @param args the command line arguments
+     */
+    private static void handleBatch(String[] args) {
+        Path file = null;
+        int saveEvery = 0;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--save-every") && i + 1 < args.length) {
+                try {
+                    saveEvery = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException e) {
+                    saveEvery = -1;
+                }
+                if (saveEvery < 0) {
+                    System.out.println("Error: --save-every must be a non-negative number. Got: '" + args[i] + "'");
+                    return;
+                }
+            } else if (file == null && !args[i].startsWith("--")) {
+                file = args[i].equals("-") ? null : Path.of(args[i]);
+            } else {
+                System.out.println("Usage: task-tracker batch [file|-] [--save-every <n>]");
+                return;
+            }
+        }
+        if (file != null && !Files.isRegularFile(file)) {
+            System.out.println("Error: No batch file found at " + file);
+            return;
+        }
+
+        BatchRunner.Result result;
+        try (BufferedReader in = file == null
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Path socketPath = TaskTrackerDaemon.socketPath();
+            if (DaemonClient.isRunning(socketPath)) {
+                // The daemon owns the tasks and persists them itself
+                BatchRunner runner = new BatchRunner((commandArgs, out) -> DaemonClient.forward(socketPath, commandArgs, out)
+                        .orElseThrow(() -> new TaskStorageException("The daemon stopped during the batch")), () -> {}, 0);
+                result = runner.run(in, System.out);
+            } else {
+                try (TaskManager taskManager = new TaskManager()) {
+                    BatchRunner runner = new BatchRunner((commandArgs, out) -> execute(taskManager, commandArgs, out),
+                            taskManager::writeTasksToJson, saveEvery);
+                    result = runner.run(in, System.out);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Fatal error: Could not read batch input: " + e.getMessage());
+            System.exit(1);
+            return;
+        } catch (TaskStorageException e) {
+            System.out.println("Fatal error: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        System.out.println("Batch finished: " + result.applied() + " applied, " + result.failed() + " failed.");
+        if (result.failed() > 0) {
+            System.exit(1);
         }
     }
 
     /**
      * Prints the help message with usage instructions and available commands.
+     *
+     * @param out the stream receiving the help message
      */
-    private static void printHelp(){
-        System.out.println("Usage:");
-        System.out.println("\tjava TaskManagerCLI <command> [arguments]");
-        System.out.println("Or:");
-        System.out.println("\ttask-tracker <command> [arguments]");
-        System.out.println();
-        System.out.println("Available commands:");
-        System.out.println("\tadd <description>");
-        System.out.println("\tupdate <id> <description>");
-        System.out.println("\tdelete <id>");
-        System.out.println("\tmark-in-progress <id>");
-        System.out.println("\tmark-done <id>");
-        System.out.println("\tlist [status]");
+    private static void printHelp(PrintStream out){
+        out.println("Usage:");
+        out.println("\tjava TaskManagerCLI <command> [arguments]");
+        out.println("Or:");
+        out.println("\ttask-tracker <command> [arguments]");
+        out.println();
+        out.println("Available commands:");
+        out.println("\tadd <description>");
+        out.println("\tupdate <id|selection> <description>");
+        out.println("\tdelete <id|selection>");
+        out.println("\tmark-in-progress <id|selection>");
+        out.println("\tmark-done <id|selection>");
+        out.println("\t     selection: [<ids such as 100-250,300>] [--status <status>] [--created-after <time>]");
+        out.println("\t     [--created-before <time>] [--updated-since <time>] [--updated-before <time>] [--match <text>]");
+        out.println("\tlist [status] [--created-after <time>] [--created-before <time>] [--updated-since <time>]");
+        out.println("\t     [--updated-before <time>] [--match <text>]");
+        out.println("\t     [--sort id|created|updated] [--desc] [--limit <n>] [--offset <n>] [--after <id>]");
+        out.println("\t     [--format text|jsonl|csv] [--as-of <time>] [--archived]");
+        out.println("\tundo");
+        out.println("\tredo");
+        out.println("\tarchive [--before <time>]");
+        out.println("\tcount");
+        out.println("\tstats [--json]");
+        out.println("\tsearch <terms> [OR <terms>]");
+        out.println("\tconvert <to-binary|to-json>");
+        out.println("\tdaemon [stop]");
+        out.println("\tbatch [file|-] [--save-every <n>]");
     }
 }
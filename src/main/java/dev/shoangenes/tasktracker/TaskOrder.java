@@ -0,0 +1,22 @@
+package dev.shoangenes.tasktracker;
+
+/**
+ * Orders in which listed tasks can be sorted.
+ */
+public enum TaskOrder {
+    ID, CREATED, UPDATED;
+
+    /**
+     * Returns the sort key of the task for this order, ties are broken by ID.
+     *
+     * @param task the task to sort
+     * @return the ID, or the creation or update time in epoch milliseconds
+     */
+    long keyOf(Task task) {
+        return switch (this) {
+            case ID -> task.getId();
+            case CREATED -> Task.toEpochMillis(task.getCreatedAt());
+            case UPDATED -> Task.toEpochMillis(task.getUpdatedAt());
+        };
+    }
+}
@@ -0,0 +1,288 @@
+package dev.shoangenes.tasktracker;
+
+import java.time.LocalDateTime;
+
+/**
+ * Criteria selecting tasks by ID, status, creation or last update time and description, with an optional order
+ * and page.
+ * Every criterion is optional, and a query without criteria matches every task. A query may also look at the
+ * tasks as they were at a past time, rebuilt from the history, or include the archived tasks.
+ */
+public class TaskQuery {
+    private Status status;
+    private LocalDateTime createdAfter;
+    private LocalDateTime createdBefore;
+    private LocalDateTime updatedSince;
+    private LocalDateTime updatedBefore;
+    private IdRanges ids;
+    // Matched case-insensitively anywhere in the description
+    private String text;
+    // Null to visit the tasks in the order of the index serving the query
+    private TaskOrder order;
+    private boolean descending;
+    private int offset;
+    // Negative for no limit
+    private int limit = -1;
+    // ID of the last task of the previous page, null to start from the first task
+    private Integer after;
+    // Time the tasks are looked at, null for the current tasks
+    private LocalDateTime asOf;
+    // Whether archived tasks are read and matched as well
+    private boolean includingArchived;
+
+    /**
+     * Restricts the query to tasks with the given status.
+     *
+     * @param status the status to match, or null for any status
+     * @return this query
+     */
+    public TaskQuery withStatus(Status status) {
+        this.status = status;
+        return this;
+    }
+
+    /**
+     * Restricts the query to tasks created strictly after the given time.
+     *
+     * @param createdAfter the exclusive lower bound, or null for no bound
+     * @return this query
+     */
+    public TaskQuery createdAfter(LocalDateTime createdAfter) {
+        this.createdAfter = createdAfter;
+        return this;
+    }
+
+    /**
+     * Restricts the query to tasks created strictly before the given time.
+     *
+     * @param createdBefore the exclusive upper bound, or null for no bound
+     * @return this query
+     */
+    public TaskQuery createdBefore(LocalDateTime createdBefore) {
+        this.createdBefore = createdBefore;
+        return this;
+    }
+
+    /**
+     * Restricts the query to tasks updated at or after the given time.
+     *
+     * @param updatedSince the inclusive lower bound, or null for no bound
+     * @return this query
+     */
+    public TaskQuery updatedSince(LocalDateTime updatedSince) {
+        this.updatedSince = updatedSince;
+        return this;
+    }
+
+    /**
+     * Restricts the query to tasks last updated strictly before the given time.
+     *
+     * @param updatedBefore the exclusive upper bound, or null for no bound
+     * @return this query
+     */
+    public TaskQuery updatedBefore(LocalDateTime updatedBefore) {
+        this.updatedBefore = updatedBefore;
+        return this;
+    }
+
+    /**
+     * Restricts the query to tasks whose ID is in the given set.
+     *
+     * @param ids the IDs to match, or null for any ID
+     * @return this query
+     */
+    public TaskQuery withIds(IdRanges ids) {
+        this.ids = ids;
+        return this;
+    }
+
+    /**
+     * Restricts the query to tasks whose description contains the given text, ignoring case.
+     *
+     * @param text the text to find, or null for any description
+     * @return this query
+     */
+    public TaskQuery containing(String text) {
+        this.text = text;
+        return this;
+    }
+
+    /**
+     * Sorts the matching tasks, ties are broken by ID.
+     *
+     * @param order the sort key
+     * @param descending whether the largest keys come first
+     * @return this query
+     */
+    public TaskQuery orderBy(TaskOrder order, boolean descending) {
+        this.order = order;
+        this.descending = descending;
+        return this;
+    }
+
+    /**
+     * Skips the given number of matching tasks.
+     *
+     * @param offset the number of tasks to skip
+     * @return this query
+     * @throws IllegalArgumentException if the offset is negative
+     */
+    public TaskQuery offset(int offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("The offset must not be negative");
+        }
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     * Stops after the given number of matching tasks.
+     *
+     * @param limit the largest number of tasks to return
+     * @return this query
+     * @throws IllegalArgumentException if the limit is negative
+     */
+    public TaskQuery limit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("The limit must not be negative");
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Starts right after the given task in the order of the query, the last task of the previous page.
+     * Unlike an offset, the cursor does not shift when tasks before it are added or deleted.
+     *
+     * @param id the ID of the cursor task, or null to start from the first task
+     * @return this query
+     */
+    public TaskQuery after(Integer id) {
+        this.after = id;
+        return this;
+    }
+
+    /**
+     * Looks at the tasks as they were at the given time instead of the current ones.
+     *
+     * @param asOf the time to look at, or null for the current tasks
+     * @return this query
+     */
+    public TaskQuery asOf(LocalDateTime asOf) {
+        this.asOf = asOf;
+        return this;
+    }
+
+    /**
+     * Matches the archived tasks as well as the current ones, which reads the whole archive.
+     *
+     * @param includingArchived whether archived tasks are matched
+     * @return this query
+     */
+    public TaskQuery includeArchived(boolean includingArchived) {
+        this.includingArchived = includingArchived;
+        return this;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public LocalDateTime getCreatedAfter() {
+        return createdAfter;
+    }
+
+    public LocalDateTime getCreatedBefore() {
+        return createdBefore;
+    }
+
+    public LocalDateTime getUpdatedSince() {
+        return updatedSince;
+    }
+
+    public LocalDateTime getUpdatedBefore() {
+        return updatedBefore;
+    }
+
+    public IdRanges getIds() {
+        return ids;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public TaskOrder getOrder() {
+        return order;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public Integer getAfter() {
+        return after;
+    }
+
+    public LocalDateTime getAsOf() {
+        return asOf;
+    }
+
+    public boolean isIncludingArchived() {
+        return includingArchived;
+    }
+
+    /**
+     * Checks if the query sorts or pages its results, in which case they are collected before being visited.
+     *
+     * @return true if an order, offset, limit or cursor is set
+     */
+    public boolean isPaged() {
+        return order != null || offset > 0 || limit >= 0 || after != null;
+    }
+
+    /**
+     * Checks if the task matches every criterion of the query.
+     *
+     * @param task the task to check
+     * @return true if the task matches, false otherwise
+     */
+    public boolean matches(Task task) {
+        if (ids != null && !ids.contains(task.getId())) {
+            return false;
+        }
+        if (status != null && task.getStatus() != status) {
+            return false;
+        }
+        if (createdAfter != null && !task.getCreatedAt().isAfter(createdAfter)) {
+            return false;
+        }
+        if (createdBefore != null && !task.getCreatedAt().isBefore(createdBefore)) {
+            return false;
+        }
+        if (updatedSince != null && task.getUpdatedAt().isBefore(updatedSince)) {
+            return false;
+        }
+        if (updatedBefore != null && !task.getUpdatedAt().isBefore(updatedBefore)) {
+            return false;
+        }
+        return text == null || containsIgnoreCase(task.getDescription(), text);
+    }
+
+    private static boolean containsIgnoreCase(String description, String text) {
+        for (int i = 0; i + text.length() <= description.length(); i++) {
+            if (description.regionMatches(true, i, text, 0, text.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,70 @@
+package dev.shoangenes.tasktracker;
+
+import java.util.function.Consumer;
+
+/**
+ * Stored tasks that are materialised on demand instead of being loaded up front.
+ * A task is handed over to the manager the first time it is taken, after which the source no longer serves it.
+ */
+interface TaskSource {
+
+    /**
+     * Checks if the source still holds tasks that have not been taken or removed.
+     *
+     * @return true if every task was taken or removed, false otherwise
+     */
+    boolean isEmpty();
+
+    /**
+     * Materialises the task with the given ID and stops serving it.
+     *
+     * @param id the unique identifier of the task
+     * @return the Task, or null if the source does not hold it
+     */
+    Task take(int id);
+
+    /**
+     * Stops serving the task with the given ID without materialising it.
+     *
+     * @param id the unique identifier of the task
+     * @return true if the source held the task, false otherwise
+     */
+    boolean remove(int id);
+
+    /**
+     * Materialises every task still held by the source, in ID order, without handing them over.
+     *
+     * @param action the action receiving each task
+     */
+    void forEach(Consumer<Task> action);
+
+    /**
+     * Passes the ID, status and timestamps of every task still held by the source, without materialising them.
+     *
+     * @param action the action receiving each header
+     */
+    void forEachHeader(HeaderConsumer action);
+
+    /**
+     * Passes the ID and status of every task still held by the source, without materialising them.
+     *
+     * @param action the action receiving each ID and status
+     */
+    default void forEachStatus(StatusConsumer action) {
+        forEachHeader((id, status, createdAt, updatedAt) -> action.accept(id, status));
+    }
+
+    interface StatusConsumer {
+        void accept(int id, Status status);
+    }
+
+    interface HeaderConsumer {
+        /**
+         * @param id the unique identifier of the task
+         * @param status the current status of the task
+         * @param createdAt the creation timestamp in epoch milliseconds
+         * @param updatedAt the last update timestamp in epoch milliseconds
+         */
+        void accept(int id, Status status, long createdAt, long updatedAt);
+    }
+}
@@ -0,0 +1,96 @@
+package dev.shoangenes.tasktracker;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Storage engine used by TaskManager to load and persist tasks.
+ * Implementations decide whether mutations are written as they happen (record) or in bulk (save).
+ */
+public interface TaskStorage extends AutoCloseable {
+
+    /**
+     * Returns the path of the main tasks file handled by this storage.
+     *
+     * @return the Path of the tasks file
+     */
+    Path getFilePath();
+
+    /**
+     * Returns every file holding stored tasks, used to tell whether the store changed.
+     *
+     * @return the data files of the storage, existing or not
+     */
+    default List<Path> getDataFiles() {
+        return List.of(getFilePath());
+    }
+
+    /**
+     * Loads every stored task into the given map.
+     *
+     * @param tasks the map receiving the tasks with their IDs as keys
+     * @throws TaskStorageException if the tasks cannot be read
+     */
+    void load(Map<Integer, Task> tasks);
+
+    /**
+     * Opens a view of the stored tasks that materialises them on demand.
+     * Storages that cannot serve tasks lazily return null and are loaded with load().
+     *
+     * @return a TaskSource, or null if tasks must be loaded up front
+     * @throws TaskStorageException if the tasks cannot be read
+     */
+    default TaskSource openSource() {
+        return null;
+    }
+
+    /**
+     * Records a single mutation as soon as it is applied.
+     * Storages that only persist full snapshots can ignore it.
+     *
+     * @param change the mutation that was applied
+     * @throws TaskStorageException if the change cannot be recorded
+     */
+    default void record(TaskChange change) {
+    }
+
+    /**
+     * Persists the current state of all tasks.
+     *
+     * @param tasks every task currently held by the manager
+     * @throws TaskStorageException if the tasks cannot be written
+     */
+    void save(Collection<Task> tasks);
+
+    /**
+     * Persists the current state of all tasks, knowing which tasks changed since the last save.
+     * Storages that can write deltas only need to look at the changed IDs, the others rewrite every task.
+     *
+     * @param tasks every task currently held by the manager
+     * @param changes the IDs of the tasks changed since the last save, with how they changed
+     * @throws TaskStorageException if the tasks cannot be written
+     */
+    default void save(Collection<Task> tasks, Map<Integer, ChangeType> changes) {
+        save(tasks);
+    }
+
+    /**
+     * Tells whether save() writes the whole state held by the manager.
+     * Such storages would overwrite the tasks saved by another process, so the manager merges them first.
+     * Storages that append every mutation as it happens keep the changes of every process without merging.
+     *
+     * @return true if saving rewrites the store from the manager's tasks
+     */
+    default boolean rewritesOnSave() {
+        return true;
+    }
+
+    /**
+     * Releases any resource held by the storage, waiting for pending background work.
+     */
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,275 @@
+package dev.shoangenes.tasktracker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Long-running process that keeps a TaskManager in memory and serves CLI commands over a Unix domain socket.
+ * This avoids paying for JVM startup and a full reload of the tasks on every command.
+ *
+ * Protocol, every integer is big-endian:
+ * <pre>
+ * request:  int kind (COMMAND or STOP), int argc, argc x (int length, UTF-8 bytes)
+ * response: any number of output frames (int length >= 0, UTF-8 bytes), then int -1 and int exit status
+ * </pre>
+ */
+public class TaskTrackerDaemon {
+    static final int COMMAND = 0;
+    static final int STOP = 1;
+    static final int END_OF_OUTPUT = -1;
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    private final TaskManager taskManager;
+    private final Path socketPath;
+    // Saves in the background when write-behind is enabled, null to save after every command
+    private final WriteBehindPersister persister;
+    // Commands run concurrently under the read lock, shutdown takes the write lock
+    private final ReadWriteLock lifecycle = new ReentrantReadWriteLock();
+    private ServerSocketChannel server;
+    private volatile boolean running;
+    private boolean closed;
+
+    /**
+     * Constructor for TaskTrackerDaemon.
+     *
+     * @param taskManager the TaskManager serving every command
+     * @param socketPath the path of the Unix domain socket to listen on
+     */
+    public TaskTrackerDaemon(TaskManager taskManager, Path socketPath) {
+        this.taskManager = taskManager;
+        this.socketPath = socketPath;
+        this.persister = WriteBehindPersister.fromEnvironment(taskManager);
+    }
+
+    /**
+     * Returns the path of the daemon socket, next to the tasks file.
+     *
+     * @return the Path of the Unix domain socket
+     */
+    public static Path socketPath() {
+        return TaskManager.defaultFilePath().resolveSibling("task-tracker.sock");
+    }
+
+    /**
+     * Binds the socket and serves commands until the daemon is stopped.
+     * Every connection is handled on its own virtual thread against the shared, thread-safe TaskManager.
+     * The tasks are persisted after every command, or in the background when TASK_TRACKER_WRITE_BEHIND_MS is set,
+     * and the socket is removed on exit.
+     *
+     * @throws TaskStorageException if the socket cannot be bound or another daemon is already running
+     */
+    public void run() {
+        bind();
+        Thread shutdownHook = new Thread(this::shutdown, "task-tracker-daemon-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+        System.out.println("Daemon listening on " + socketPath);
+
+        try (ExecutorService handlers = Executors.newVirtualThreadPerTaskExecutor()) {
+            while (running) {
+                SocketChannel client;
+                try {
+                    client = server.accept();
+                } catch (ClosedChannelException e) {
+                    break;
+                } catch (IOException e) {
+                    System.err.println("Warning: unable to accept daemon connection: " + e.getMessage());
+                    continue;
+                }
+                handlers.execute(() -> handle(client));
+            }
+            // Closing the executor waits for the requests still running
+        }
+
+        shutdown();
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // Already shutting down, the hook released everything
+        }
+    }
+
+    /**
+     * Stops accepting new connections.
+     */
+    public void stop() {
+        running = false;
+        try {
+            server.close();
+        } catch (IOException e) {
+            System.err.println("Warning: unable to close daemon socket: " + e.getMessage());
+        }
+    }
+
+    private void bind() {
+        try {
+            if (Files.exists(socketPath)) {
+                if (DaemonClient.isRunning(socketPath)) {
+                    throw new TaskStorageException("A daemon is already running on " + socketPath);
+                }
+                // Left behind by a daemon that was killed
+                Files.delete(socketPath);
+            }
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            server.bind(UnixDomainSocketAddress.of(socketPath));
+            running = true;
+        } catch (IOException e) {
+            throw new TaskStorageException("Unable to bind daemon socket " + socketPath, e);
+        }
+    }
+
+    private void handle(SocketChannel client) {
+        try (client) {
+            serve(client);
+        } catch (EOFException e) {
+            // A client probing whether the daemon is running
+        } catch (IOException e) {
+            System.err.println("Warning: daemon request failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads one request from the client, executes it and streams the output back.
+     */
+    private void serve(SocketChannel client) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(client)));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(client)));
+
+        int kind = in.readInt();
+        if (kind == STOP) {
+            stop();
+            out.writeInt(END_OF_OUTPUT);
+            out.writeInt(0);
+            out.flush();
+            return;
+        }
+        String[] args = readArgs(in);
+
+        PrintStream commandOut = new PrintStream(
+                new BufferedOutputStream(new FrameOutputStream(out), OUTPUT_BUFFER_SIZE), false, StandardCharsets.UTF_8);
+        int status = 0;
+        lifecycle.readLock().lock();
+        try {
+            if (closed) {
+                commandOut.println("Fatal error: daemon is shutting down");
+                status = 1;
+            } else {
+                TaskManagerCLI.execute(taskManager, args, commandOut);
+                if (persister == null) {
+                    taskManager.writeTasksToJson();
+                }
+            }
+        } catch (TaskStorageException e) {
+            commandOut.println("Fatal error: " + e.getMessage());
+            status = 1;
+        } finally {
+            lifecycle.readLock().unlock();
+        }
+        commandOut.flush();
+        out.writeInt(END_OF_OUTPUT);
+        out.writeInt(status);
+        out.flush();
+    }
+
+    /**
+     * Releases the socket and the TaskManager, it runs once whether the daemon was stopped or killed.
+     */
+    private void shutdown() {
+        lifecycle.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            stop();
+            try {
+                Files.deleteIfExists(socketPath);
+            } catch (IOException e) {
+                System.err.println("Warning: unable to delete daemon socket: " + e.getMessage());
+            }
+            if (persister != null) {
+                try {
+                    persister.close();
+                } catch (TaskStorageException e) {
+                    System.err.println("Warning: unable to save tasks: " + e.getMessage());
+                }
+            }
+            taskManager.close();
+        } finally {
+            lifecycle.writeLock().unlock();
+        }
+    }
+
+    static void writeArgs(DataOutputStream out, String[] args) throws IOException {
+        out.writeInt(args.length);
+        for (String arg : args) {
+            byte[] bytes = arg.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    static String[] readArgs(DataInputStream in) throws IOException {
+        int argc = in.readInt();
+        if (argc < 0 || argc > 1024) {
+            throw new IOException("Invalid argument count: " + argc);
+        }
+        String[] args = new String[argc];
+        for (int i = 0; i < argc; i++) {
+            int length = in.readInt();
+            if (length < 0 || length > 16 * 1024 * 1024) {
+                throw new IOException("Invalid argument length: " + length);
+            }
+            args[i] = new String(in.readNBytes(length), StandardCharsets.UTF_8);
+        }
+        return args;
+    }
+
+    /**
+     * Wraps every write into a length-prefixed output frame.
+     */
+    private static class FrameOutputStream extends OutputStream {
+        private final DataOutputStream out;
+
+        FrameOutputStream(DataOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            out.writeInt(len);
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+}
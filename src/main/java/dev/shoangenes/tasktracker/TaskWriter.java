@@ -0,0 +1,84 @@
+package dev.shoangenes.tasktracker;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.function.Consumer;
+
+/**
+ * Writes listed tasks to a stream through a single buffered writer.
+ * Every task is formatted into one reused StringBuilder and copied to the buffer, so listing allocates
+ * neither a line per task nor a flush per line. The writer must be flushed before anything else is written
+ * to the stream.
+ */
+class TaskWriter implements Consumer<Task>, AutoCloseable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Writer writer;
+    private final OutputFormat format;
+    private final StringBuilder line = new StringBuilder(256);
+    private char[] chars = new char[256];
+
+    /**
+     * Constructor for TaskWriter.
+     *
+     * @param out the stream receiving the tasks, written with its own charset
+     * @param format the format of every task, CSV starts with its header row
+     */
+    TaskWriter(PrintStream out, OutputFormat format) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, out.charset()), BUFFER_SIZE);
+        this.format = format;
+        if (format == OutputFormat.CSV) {
+            line.append("id,description,status,createdAt,updatedAt");
+            writeLine();
+        }
+    }
+
+    /**
+     * Writes a task on its own line.
+     *
+     * @param task the task to write
+     */
+    @Override
+    public void accept(Task task) {
+        switch (format) {
+            case TEXT -> task.appendText(line);
+            case JSONL -> task.appendJson(line);
+            case CSV -> task.appendCsv(line);
+        }
+        writeLine();
+    }
+
+    /**
+     * Copies the formatted line to the buffer through a reused array, Writer.append() would copy it to a String.
+     */
+    private void writeLine() {
+        line.append(System.lineSeparator());
+        int length = line.length();
+        if (chars.length < length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+        }
+        line.getChars(0, length, chars, 0);
+        line.setLength(0);
+        try {
+            writer.write(chars, 0, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Flushes the buffered tasks to the stream, the stream itself stays open.
+     */
+    @Override
+    public void close() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
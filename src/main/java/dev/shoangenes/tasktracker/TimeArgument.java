@@ -0,0 +1,50 @@
+package dev.shoangenes.tasktracker;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Parses the time arguments accepted by the CLI.
+ */
+final class TimeArgument {
+
+    private TimeArgument() {
+    }
+
+    /**
+     * Parses an absolute or relative time.
+     * Accepted forms are an ISO date-time (2026-01-01T10:30), an ISO date (2026-01-01, the start of that day)
+     * and a duration before now made of a number and a unit among s, m, h, d and w (90m, 2d).
+     *
+     * @param value the argument to parse
+     * @param now the current time, used for relative values
+     * @return the parsed time
+     * @throws IllegalArgumentException if the value matches none of the accepted forms
+     */
+    static LocalDateTime parse(String value, LocalDateTime now) {
+        String trimmed = value.trim();
+        try {
+            if (trimmed.length() >= 2 && Character.isDigit(trimmed.charAt(0))
+                    && Character.isLetter(trimmed.charAt(trimmed.length() - 1))
+                    && trimmed.chars().limit(trimmed.length() - 1).allMatch(Character::isDigit)) {
+                long amount = Long.parseLong(trimmed.substring(0, trimmed.length() - 1));
+                return switch (trimmed.charAt(trimmed.length() - 1)) {
+                    case 's' -> now.minusSeconds(amount);
+                    case 'm' -> now.minusMinutes(amount);
+                    case 'h' -> now.minusHours(amount);
+                    case 'd' -> now.minusDays(amount);
+                    case 'w' -> now.minusWeeks(amount);
+                    default -> throw new IllegalArgumentException("Unknown time unit in '" + value + "'");
+                };
+            }
+            if (trimmed.contains("T")) {
+                return IsoTimestamp.parse(trimmed);
+            }
+            return LocalDate.parse(trimmed).atStartOfDay();
+        } catch (DateTimeException | ArithmeticException | NumberFormatException e) {
+            // A relative value too large for a long or before the earliest supported date, or a malformed date
+            throw new IllegalArgumentException("Invalid time '" + value + "'", e);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package dev.shoangenes.tasktracker;
+
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Sorted indexes of task IDs by creation and last update time, in epoch milliseconds.
+ * Time-range queries read a sub-range of the index instead of scanning every task.
+ *
+ * Built on first use and maintained with the same locking as StatusIndex: idempotent updates under a shared lock,
+ * the build under the exclusive one.
+ */
+class TimeIndex {
+    private final ConcurrentSkipListSet<Entry> created = new ConcurrentSkipListSet<>();
+    private final ConcurrentSkipListSet<Entry> updated = new ConcurrentSkipListSet<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean built;
+
+    /**
+     * Position of a task in one of the indexes, ordered by time and then by ID.
+     *
+     * @param time the indexed timestamp in epoch milliseconds
+     * @param id the unique identifier of the task
+     */
+    record Entry(long time, int id) implements Comparable<Entry> {
+        @Override
+        public int compareTo(Entry other) {
+            int byTime = Long.compare(time, other.time);
+            return byTime != 0 ? byTime : Integer.compare(id, other.id);
+        }
+    }
+
+    /**
+     * Builds the indexes if they have not been built yet.
+     *
+     * @param scan the scan feeding the header of every task to the given sink
+     */
+    void ensureBuilt(Consumer<TaskSource.HeaderConsumer> scan) {
+        if (built) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!built) {
+                scan.accept((id, status, createdAt, updatedAt) -> {
+                    created.add(new Entry(createdAt, id));
+                    updated.add(new Entry(updatedAt, id));
+                });
+                built = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Indexes a new task.
+     *
+     * @param id the unique identifier of the task
+     * @param createdAt the creation timestamp in epoch milliseconds
+     * @param updatedAt the last update timestamp in epoch milliseconds
+     */
+    void add(int id, long createdAt, long updatedAt) {
+        lock.readLock().lock();
+        try {
+            if (built) {
+                created.add(new Entry(createdAt, id));
+                updated.add(new Entry(updatedAt, id));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Moves a task to its new last update time.
+     *
+     * @param id the unique identifier of the task
+     * @param before the previous last update timestamp in epoch milliseconds
+     * @param after the new last update timestamp in epoch milliseconds
+     */
+    void touch(int id, long before, long after) {
+        if (before == after) {
+            return;
+        }
+        lock.readLock().lock();
+        try {
+            if (built) {
+                updated.remove(new Entry(before, id));
+                updated.add(new Entry(after, id));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a deleted task.
+     *
+     * @param id the unique identifier of the task
+     * @param createdAt the creation timestamp in epoch milliseconds
+     * @param updatedAt the last update timestamp in epoch milliseconds
+     */
+    void remove(int id, long createdAt, long updatedAt) {
+        lock.readLock().lock();
+        try {
+            if (built) {
+                created.remove(new Entry(createdAt, id));
+                updated.remove(new Entry(updatedAt, id));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the tasks created within the given range, ordered by creation time.
+     *
+     * @param from the lower bound in epoch milliseconds, inclusive
+     * @param to the upper bound in epoch milliseconds, inclusive
+     * @return a live, weakly consistent view of the matching entries
+     */
+    NavigableSet<Entry> createdBetween(long from, long to) {
+        return range(created, from, to);
+    }
+
+    /**
+     * Returns the tasks last updated within the given range, ordered by last update time.
+     *
+     * @param from the lower bound in epoch milliseconds, inclusive
+     * @param to the upper bound in epoch milliseconds, inclusive
+     * @return a live, weakly consistent view of the matching entries
+     */
+    NavigableSet<Entry> updatedBetween(long from, long to) {
+        return range(updated, from, to);
+    }
+
+    private static NavigableSet<Entry> range(NavigableSet<Entry> index, long from, long to) {
+        return index.subSet(new Entry(from, Integer.MIN_VALUE), true, new Entry(to, Integer.MAX_VALUE), true);
+    }
+}
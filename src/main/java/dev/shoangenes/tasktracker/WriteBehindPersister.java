@@ -0,0 +1,230 @@
+package dev.shoangenes.tasktracker;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Saves the tasks of a TaskManager on a background thread, grouping the mutations into one save.
+ * A save starts once the oldest unsaved mutation is older than the window, or as soon as the given number of
+ * mutations is pending, whichever comes first. Mutations never wait for a save.
+ *
+ * A failed background save is reported on stderr and retried after the next window, callers needing the
+ * mutations on disk call flush(), which waits for them and reports the failure.
+ */
+public class WriteBehindPersister implements AutoCloseable {
+    // System properties and environment variables enabling write-behind in the daemon
+    static final String WINDOW_PROPERTY = "tasktracker.writebehind.window";
+    static final String WINDOW_ENV_VARIABLE = "TASK_TRACKER_WRITE_BEHIND_MS";
+    static final String MAX_PENDING_PROPERTY = "tasktracker.writebehind.maxPending";
+    static final String MAX_PENDING_ENV_VARIABLE = "TASK_TRACKER_WRITE_BEHIND_MAX_PENDING";
+    static final int DEFAULT_MAX_PENDING = 1000;
+
+    private final TaskManager taskManager;
+    private final long windowMillis;
+    private final int maxPending;
+    private final ScheduledExecutorService flusher;
+    // Mutations not known to be saved yet
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    // Whether a save is already scheduled for the current window
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+    private volatile long lastFlushNanos;
+    private volatile long maxFlushNanos;
+    private volatile boolean closed;
+
+    /**
+     * The state of the persister at a point in time.
+     *
+     * @param queueDepth the number of mutations not saved yet
+     * @param flushes the number of saves that succeeded
+     * @param failures the number of saves that failed
+     * @param lastFlushLatency the duration of the latest successful save
+     * @param maxFlushLatency the duration of the slowest successful save
+     * @param averageFlushLatency the average duration of the successful saves
+     */
+    public record Stats(int queueDepth, long flushes, long failures, Duration lastFlushLatency,
+                        Duration maxFlushLatency, Duration averageFlushLatency) {
+    }
+
+    /**
+     * Constructor for WriteBehindPersister.
+     * Every mutation of the TaskManager applied from now on is saved in the background.
+     *
+     * @param taskManager the TaskManager whose tasks are saved
+     * @param window the longest time a mutation waits before its save starts
+     * @param maxPending the number of pending mutations that starts a save without waiting for the window
+     * @throws IllegalArgumentException if the window is negative or maxPending is not positive
+     */
+    public WriteBehindPersister(TaskManager taskManager, Duration window, int maxPending) {
+        if (window.isNegative()) {
+            throw new IllegalArgumentException("The write-behind window must not be negative");
+        }
+        if (maxPending < 1) {
+            throw new IllegalArgumentException("The write-behind pending limit must be positive");
+        }
+        this.taskManager = taskManager;
+        this.windowMillis = window.toMillis();
+        this.maxPending = maxPending;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "task-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        taskManager.setChangeListener(this::mutated);
+    }
+
+    /**
+     * Creates a persister configured by the environment, used by the daemon.
+     * TASK_TRACKER_WRITE_BEHIND_MS sets the window and enables write-behind,
+     * TASK_TRACKER_WRITE_BEHIND_MAX_PENDING sets the pending limit, 1000 by default.
+     *
+     * @param taskManager the TaskManager whose tasks are saved
+     * @return the persister, or null if write-behind is not enabled
+     * @throws IllegalArgumentException if a setting is not a valid number
+     */
+    static WriteBehindPersister fromEnvironment(TaskManager taskManager) {
+        String window = System.getProperty(WINDOW_PROPERTY, System.getenv(WINDOW_ENV_VARIABLE));
+        if (window == null || window.isBlank()) {
+            return null;
+        }
+        String maxPending = System.getProperty(MAX_PENDING_PROPERTY, System.getenv(MAX_PENDING_ENV_VARIABLE));
+        try {
+            return new WriteBehindPersister(taskManager, Duration.ofMillis(Long.parseLong(window.trim())),
+                    maxPending == null || maxPending.isBlank() ? DEFAULT_MAX_PENDING : Integer.parseInt(maxPending.trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid write-behind setting: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Called by the TaskManager after every mutation, while the mutated task is locked, so it only schedules.
+     */
+    private void mutated() {
+        if (closed) {
+            return;
+        }
+        int depth = queueDepth.incrementAndGet();
+        try {
+            if (depth % maxPending == 0) {
+                flusher.execute(this::flushInBackground);
+            } else if (scheduled.compareAndSet(false, true)) {
+                flusher.schedule(this::flushInBackground, windowMillis, TimeUnit.MILLISECONDS);
+            }
+        } catch (RejectedExecutionException e) {
+            // Closing, the final flush saves the mutation
+        }
+    }
+
+    private void flushInBackground() {
+        try {
+            save();
+        } catch (TaskStorageException e) {
+            System.err.println("Warning: write-behind save failed, retrying: " + e.getMessage());
+            if (!closed && scheduled.compareAndSet(false, true)) {
+                flusher.schedule(this::flushInBackground, windowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Saves the pending mutations, it only runs on the flusher thread.
+     */
+    private void save() {
+        // Mutations from now on belong to the next window
+        scheduled.set(false);
+        int saving = queueDepth.get();
+        long start = System.nanoTime();
+        try {
+            taskManager.writeTasksToJson();
+        } catch (TaskStorageException e) {
+            failures.incrementAndGet();
+            throw e;
+        }
+        long elapsed = System.nanoTime() - start;
+        queueDepth.addAndGet(-saving);
+        lastFlushNanos = elapsed;
+        maxFlushNanos = Math.max(maxFlushNanos, elapsed);
+        totalFlushNanos.addAndGet(elapsed);
+        flushes.incrementAndGet();
+    }
+
+    /**
+     * Waits until every mutation applied before the call is saved.
+     *
+     * @throws TaskStorageException if the save fails
+     * @throws IllegalStateException if the persister is closed
+     */
+    public void flush() {
+        Future<?> done;
+        try {
+            done = flusher.submit(this::save);
+        } catch (RejectedExecutionException e) {
+            throw new IllegalStateException("The write-behind persister is closed");
+        }
+        try {
+            done.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TaskStorageException failure) {
+                throw failure;
+            }
+            throw new TaskStorageException("Write-behind save failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TaskStorageException("Interrupted while waiting for the write-behind save", e);
+        }
+    }
+
+    /**
+     * Returns the number of mutations not saved yet.
+     *
+     * @return the queue depth
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * Returns the queue depth and the save latencies.
+     *
+     * @return the current stats
+     */
+    public Stats getStats() {
+        long count = flushes.get();
+        return new Stats(queueDepth.get(), count, failures.get(), Duration.ofNanos(lastFlushNanos),
+                Duration.ofNanos(maxFlushNanos), Duration.ofNanos(count == 0 ? 0 : totalFlushNanos.get() / count));
+    }
+
+    /**
+     * Saves the pending mutations and stops the background thread, later mutations are left to the caller.
+     *
+     * @throws TaskStorageException if the final save fails
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            closed = true;
+            taskManager.setChangeListener(null);
+            flusher.shutdownNow();
+            try {
+                flusher.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
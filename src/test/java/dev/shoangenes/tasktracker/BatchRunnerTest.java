@@ -0,0 +1,97 @@
+package dev.shoangenes.tasktracker;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BatchRunnerTest {
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void resetLastId() throws Exception {
+        Field idField = Task.class.getDeclaredField("lastIdSaved");
+        idField.setAccessible(true);
+        idField.setInt(null, 0);
+    }
+
+    @Test
+    public void testSplitArguments() {
+        assertArrayEquals(new String[]{"add", "Buy groceries"}, BatchRunner.splitArguments("add \"Buy groceries\""));
+        assertArrayEquals(new String[]{"add", "It's", "done"}, BatchRunner.splitArguments("add It\\'s  done"));
+        assertArrayEquals(new String[]{"update", "1", "say \"hi\""}, BatchRunner.splitArguments("update 1 'say \"hi\"'"));
+        assertArrayEquals(new String[]{"add", ""}, BatchRunner.splitArguments("add \"\""));
+        assertThrows(IllegalArgumentException.class, () -> BatchRunner.splitArguments("add \"unclosed"));
+    }
+
+    @Test
+    public void testErrorsAreReportedPerLineWithoutAborting() throws Exception {
+        TaskManager manager = new TaskManager(new JsonTaskStorage(tempDir.resolve("tasks.json")));
+        String input = """
+                # setup
+                add "Buy groceries"
+                mark-done 7
+                add 'Cook dinner'
+
+                update x "Nothing"
+                add "unclosed
+                mark-done 2
+                """;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        AtomicInteger checkpoints = new AtomicInteger();
+        BatchRunner runner = new BatchRunner((args, out) -> TaskManagerCLI.execute(manager, args, out), () -> {
+            checkpoints.incrementAndGet();
+            manager.writeTasksToJson();
+        }, 0);
+
+        BatchRunner.Result result = runner.run(new BufferedReader(new StringReader(input)),
+                new PrintStream(output, true, StandardCharsets.UTF_8));
+
+        assertEquals(new BatchRunner.Result(3, 3), result);
+        assertEquals(1, checkpoints.get());
+        String printed = output.toString(StandardCharsets.UTF_8);
+        assertTrue(printed.contains("Line 3: Error: No such task with id: 7"), printed);
+        assertTrue(printed.contains("Line 6: Error: ID must be a valid number"), printed);
+        assertTrue(printed.contains("Line 7: Error: Unclosed \" quote"), printed);
+        assertEquals(Status.DONE, manager.getTaskById(2).getStatus());
+        assertEquals("Cook dinner", manager.getTaskById(2).getDescription());
+    }
+
+    @Test
+    public void testImportPersistsOnScheduleAndAtTheEnd() throws Exception {
+        Path file = tempDir.resolve("tasks.json");
+        TaskManager manager = new TaskManager(new JsonTaskStorage(file));
+        int count = 100_000;
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            input.append("add \"Imported task ").append(i).append("\"\n");
+        }
+        AtomicInteger checkpoints = new AtomicInteger();
+        BatchRunner runner = new BatchRunner((args, out) -> TaskManagerCLI.execute(manager, args, out), () -> {
+            checkpoints.incrementAndGet();
+            manager.writeTasksToJson();
+        }, 40_000);
+
+        BatchRunner.Result result = runner.run(new BufferedReader(new StringReader(input.toString())),
+                new PrintStream(ByteArrayOutputStream.nullOutputStream()));
+
+        assertEquals(new BatchRunner.Result(count, 0), result);
+        // Two scheduled checkpoints and the final one
+        assertEquals(3, checkpoints.get());
+        HashMap<Integer, Task> stored = new TaskManager(new JsonTaskStorage(file)).readTasksFromJson();
+        assertEquals(count, stored.size());
+        assertEquals("Imported task 99999", stored.get(count).getDescription());
+    }
+}
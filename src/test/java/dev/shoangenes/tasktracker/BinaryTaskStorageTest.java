@@ -0,0 +1,156 @@
+package dev.shoangenes.tasktracker;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class BinaryTaskStorageTest {
+    @TempDir
+    Path tempDir;
+
+    private Path binaryPath;
+
+    @BeforeEach
+    public void resetIds() throws NoSuchFieldException, IllegalAccessException {
+        binaryPath = tempDir.resolve("tasks.bin");
+        Field idField = Task.class.getDeclaredField("lastIdSaved");
+        idField.setAccessible(true);
+        idField.setInt(null, 0);
+    }
+
+    @Test
+    public void testTasksAreReadLazilyFromMappedFile() {
+        TaskManager manager = new TaskManager(new BinaryTaskStorage(binaryPath));
+        manager.addTask("Study Java");
+        manager.addTask("Go to the University, then \"rest\"");
+        manager.addTask("Tell Jimmy about that");
+        manager.markDone(2);
+        manager.writeTasksToJson();
+
+        TaskSource source = MappedTaskSource.open(binaryPath);
+        Task task = source.take(2);
+        assertEquals("Go to the University, then \"rest\"", task.getDescription());
+        assertEquals(Status.DONE, task.getStatus());
+        assertNull(source.take(2), "A taken task is no longer served by the source.");
+        assertNull(source.take(4));
+
+        TaskManager reloaded = new TaskManager(new BinaryTaskStorage(binaryPath));
+        assertEquals("Study Java", reloaded.getTaskById(1).getDescription());
+        assertEquals(Status.DONE, reloaded.getTaskById(2).getStatus());
+        assertFalse(reloaded.isEmpty());
+    }
+
+    @Test
+    public void testUntouchedRecordsSurviveSave() {
+        TaskManager manager = new TaskManager(new BinaryTaskStorage(binaryPath));
+        for (int i = 1; i <= 5; i++) {
+            manager.addTask("Task " + i);
+        }
+        manager.writeTasksToJson();
+
+        TaskManager lazy = new TaskManager(new BinaryTaskStorage(binaryPath));
+        lazy.updateTask(3, "Task 3 updated");
+        lazy.deleteTask(4);
+        lazy.addTask("Task 6");
+        lazy.writeTasksToJson();
+
+        TaskManager reloaded = new TaskManager(new BinaryTaskStorage(binaryPath));
+        assertEquals(5, reloaded.countTasks(Status.TODO));
+        reloaded.markDone(2);
+        assertEquals(4, reloaded.countTasks(Status.TODO));
+        assertEquals(1, reloaded.countTasks(Status.DONE));
+        assertEquals("Task 1", reloaded.getTaskById(1).getDescription());
+        assertEquals("Task 3 updated", reloaded.getTaskById(3).getDescription());
+        assertNull(reloaded.getTaskById(4));
+        assertEquals("Task 5", reloaded.getTaskById(5).getDescription());
+        assertEquals("Task 6", reloaded.getTaskById(6).getDescription());
+    }
+
+    @Test
+    public void testSourceKeepsServingRecordsAcrossSaves() {
+        TaskManager manager = new TaskManager(new BinaryTaskStorage(binaryPath));
+        for (int i = 1; i <= 5; i++) {
+            manager.addTask("Task " + i);
+        }
+        manager.writeTasksToJson();
+
+        TaskManager lazy = new TaskManager(new BinaryTaskStorage(binaryPath));
+        lazy.markDone(1);
+        lazy.writeTasksToJson();
+        assertTrue(Files.exists(CheckedFile.backupPath(binaryPath)));
+        assertTrue(Files.exists(CheckedFile.checksumPath(binaryPath)));
+
+        // The mapped file became the backup, the untouched records are now read from the detached copy
+        assertEquals("Task 3", lazy.getTaskById(3).getDescription());
+        lazy.markInProgress(4);
+        lazy.writeTasksToJson();
+
+        TaskManager reloaded = new TaskManager(new BinaryTaskStorage(binaryPath));
+        assertEquals(Status.DONE, reloaded.getTaskById(1).getStatus());
+        assertEquals(Status.IN_PROGRESS, reloaded.getTaskById(4).getStatus());
+        assertEquals("Task 5", reloaded.getTaskById(5).getDescription());
+    }
+
+    @Test
+    public void testTruncatedFileFallsBackToPreviousGeneration() throws IOException {
+        TaskManager manager = new TaskManager(new BinaryTaskStorage(binaryPath));
+        manager.addTask("Study Java");
+        manager.addTask("Go to the University");
+        manager.writeTasksToJson();
+        manager.addTask("Tell Jimmy about that");
+        manager.writeTasksToJson();
+
+        byte[] content = Files.readAllBytes(binaryPath);
+        Files.write(binaryPath, Arrays.copyOf(content, content.length - 3));
+
+        TaskManager reloaded = new TaskManager(new BinaryTaskStorage(binaryPath));
+        assertEquals("Go to the University", reloaded.getTaskById(2).getDescription());
+        assertNull(reloaded.getTaskById(3));
+        assertTrue(Files.exists(CheckedFile.corruptPath(binaryPath)));
+    }
+
+    @Test
+    public void testFlippedByteFallsBackToPreviousGenerationOnLoad() throws IOException {
+        TaskManager manager = new TaskManager(new BinaryTaskStorage(binaryPath));
+        manager.addTask("Study Java");
+        manager.writeTasksToJson();
+        manager.updateTask(1, "Study Rust");
+        manager.writeTasksToJson();
+
+        byte[] content = Files.readAllBytes(binaryPath);
+        content[BinaryTaskStorage.HEADER_SIZE + BinaryTaskStorage.RECORD_HEADER_SIZE] ^= 1;
+        Files.write(binaryPath, content);
+
+        Map<Integer, Task> loaded = new HashMap<>();
+        new BinaryTaskStorage(binaryPath).load(loaded);
+        assertEquals("Study Java", loaded.get(1).getDescription());
+    }
+
+    @Test
+    public void testConvertBetweenJsonAndBinary() {
+        Path jsonPath = tempDir.resolve("tasks.json");
+        TaskManager manager = new TaskManager(new JsonTaskStorage(jsonPath));
+        manager.addTask("Study Java");
+        manager.addTask("Go to the University");
+        manager.markInProgress(1);
+        manager.writeTasksToJson();
+
+        assertEquals(2, BinaryTaskStorage.convertJsonToBinary(jsonPath, binaryPath));
+        Path roundTrip = tempDir.resolve("round-trip.json");
+        assertEquals(2, BinaryTaskStorage.convertBinaryToJson(binaryPath, roundTrip));
+
+        TaskManager reloaded = new TaskManager(new JsonTaskStorage(roundTrip));
+        assertEquals(Status.IN_PROGRESS, reloaded.getTaskById(1).getStatus());
+        assertEquals("Go to the University", reloaded.getTaskById(2).getDescription());
+    }
+}
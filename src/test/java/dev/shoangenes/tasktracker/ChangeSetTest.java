@@ -0,0 +1,108 @@
+package dev.shoangenes.tasktracker;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public class ChangeSetTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testChangesAreCoalesced() {
+        ChangeSet changes = new ChangeSet();
+        Task added = new Task("Added");
+        Task updated = new Task("Updated");
+        changes.record(TaskChange.of(ChangeType.ADD, added));
+        changes.record(TaskChange.of(ChangeType.MARK_DONE, added));
+        changes.record(TaskChange.of(ChangeType.UPDATE, updated));
+        changes.record(TaskChange.of(ChangeType.MARK_IN_PROGRESS, updated));
+        changes.record(TaskChange.deleted(42));
+
+        assertEquals(Map.of(added.getId(), ChangeType.ADD, updated.getId(), ChangeType.MARK_IN_PROGRESS,
+                42, ChangeType.DELETE), changes.snapshot().changes());
+
+        changes.record(TaskChange.deleted(added.getId()));
+        assertEquals(ChangeType.DELETE, changes.snapshot().changes().get(added.getId()));
+    }
+
+    @Test
+    public void testChangesDuringSaveStayPending() {
+        ChangeSet changes = new ChangeSet();
+        Task first = new Task("First");
+        Task second = new Task("Second");
+        changes.record(TaskChange.of(ChangeType.ADD, first));
+        changes.record(TaskChange.of(ChangeType.ADD, second));
+
+        ChangeSet.Snapshot snapshot = changes.snapshot();
+        changes.record(TaskChange.of(ChangeType.UPDATE, second));
+        changes.clear(snapshot);
+
+        assertEquals(Map.of(second.getId(), ChangeType.ADD), changes.snapshot().changes());
+    }
+
+    @Test
+    public void testReadOnlyCommandsDoNotSave() {
+        CountingStorage storage = new CountingStorage(new JsonTaskStorage(tempDir.resolve("tasks.json")));
+        TaskManager manager = new TaskManager(storage);
+        PrintStream out = new PrintStream(OutputStream.nullOutputStream());
+
+        TaskManagerCLI.execute(manager, new String[]{"add", "Buy groceries"}, out);
+        int id = Task.getLastIdSaved();
+        assertEquals(Map.of(id, ChangeType.ADD), manager.getUnsavedChanges());
+        manager.writeTasksToJson();
+        assertEquals(1, storage.saves.size());
+        assertEquals(Map.of(id, ChangeType.ADD), storage.saves.get(0));
+
+        for (String[] command : List.of(new String[]{"list", "all"}, new String[]{"count"}, new String[]{"help"},
+                new String[]{"mark-done", "999999"}, new String[]{"unknown"})) {
+            TaskManagerCLI.execute(manager, command, out);
+            assertFalse(manager.hasUnsavedChanges(), String.join(" ", command));
+            manager.writeTasksToJson();
+        }
+        assertEquals(1, storage.saves.size());
+
+        TaskManagerCLI.execute(manager, new String[]{"mark-done", String.valueOf(id)}, out);
+        manager.writeTasksToJson();
+        assertEquals(List.of(Map.of(id, ChangeType.ADD), Map.of(id, ChangeType.MARK_DONE)), storage.saves);
+    }
+
+    private static class CountingStorage implements TaskStorage {
+        private final TaskStorage delegate;
+        private final List<Map<Integer, ChangeType>> saves = new ArrayList<>();
+
+        CountingStorage(TaskStorage delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Path getFilePath() {
+            return delegate.getFilePath();
+        }
+
+        @Override
+        public void load(Map<Integer, Task> tasks) {
+            delegate.load(tasks);
+        }
+
+        @Override
+        public void save(Collection<Task> tasks) {
+            throw new AssertionError("TaskManager should pass the changes to the storage");
+        }
+
+        @Override
+        public void save(Collection<Task> tasks, Map<Integer, ChangeType> changes) {
+            saves.add(changes);
+            delegate.save(tasks, changes);
+        }
+    }
+}
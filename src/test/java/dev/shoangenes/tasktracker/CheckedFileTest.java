@@ -0,0 +1,189 @@
+package dev.shoangenes.tasktracker;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+public class CheckedFileTest {
+    private static final LocalDateTime TIME = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testTruncatedFileFallsBackToPreviousGeneration() throws IOException {
+        Random random = new Random(13);
+        for (int round = 0; round < 40; round++) {
+            Path file = Files.createDirectory(tempDir.resolve("truncate-" + round)).resolve("tasks.json");
+            JsonTaskStorage.writeTasks(file, generation(1, 50));
+            JsonTaskStorage.writeTasks(file, generation(2, 60));
+
+            byte[] content = Files.readAllBytes(file);
+            int length = random.nextInt(content.length);
+            Files.write(file, Arrays.copyOf(content, length));
+
+            assertEquals(descriptions(generation(1, 50)), load(file), "Truncated at " + length);
+            assertTrue(Files.exists(CheckedFile.corruptPath(file)));
+
+            // The damaged file was moved aside, so saving again keeps the good generation as the backup
+            JsonTaskStorage.writeTasks(file, generation(3, 10));
+            assertEquals(descriptions(generation(3, 10)), load(file));
+            Files.write(file, new byte[0]);
+            assertEquals(descriptions(generation(1, 50)), load(file));
+        }
+    }
+
+    @Test
+    public void testFlippedByteFallsBackToPreviousGeneration() throws IOException {
+        Random random = new Random(29);
+        for (int round = 0; round < 40; round++) {
+            Path file = Files.createDirectory(tempDir.resolve("flip-" + round)).resolve("tasks.json");
+            JsonTaskStorage.writeTasks(file, generation(1, 20));
+            JsonTaskStorage.writeTasks(file, generation(2, 20));
+
+            byte[] content = Files.readAllBytes(file);
+            int offset = random.nextInt(content.length);
+            content[offset] ^= (byte) (1 + random.nextInt(255));
+            Files.write(file, content);
+
+            assertEquals(descriptions(generation(1, 20)), load(file), "Flipped byte " + offset);
+        }
+    }
+
+    @Test
+    public void testWriteKilledAtRandomOffsetKeepsCurrentGeneration() throws IOException {
+        Random random = new Random(7);
+        Path file = tempDir.resolve("tasks.json");
+        JsonTaskStorage.writeTasks(file, generation(1, 30));
+        for (int round = 0; round < 40; round++) {
+            int killAt = random.nextInt(4000);
+            assertThrows(TaskStorageException.class, () -> CheckedFile.write(file, writer ->
+                    JsonTaskStorage.writeArray(new KillingWriter(writer, killAt), generation(2, 100))));
+            assertEquals(descriptions(generation(1, 30)), load(file), "Killed at " + killAt);
+        }
+        JsonTaskStorage.writeTasks(file, generation(3, 5));
+        assertEquals(descriptions(generation(3, 5)), load(file));
+    }
+
+    @Test
+    public void testCrashBetweenStepsAlwaysLeavesAValidGeneration() throws IOException {
+        for (int crashAfter = 1; crashAfter <= 6; crashAfter++) {
+            Path file = Files.createDirectory(tempDir.resolve("step-" + crashAfter)).resolve("tasks.json");
+            JsonTaskStorage.writeTasks(file, generation(1, 5));
+            JsonTaskStorage.writeTasks(file, generation(2, 5));
+
+            int lastStep = crashAfter;
+            assertThrows(TaskStorageException.class, () -> CheckedFile.write(file,
+                    writer -> JsonTaskStorage.writeArray(writer, generation(3, 5)), step -> {
+                        if (step == lastStep) {
+                            throw new IOException("Simulated crash after step " + step);
+                        }
+                    }));
+
+            // Once the new file is in place its checksum is already on disk
+            int expected = crashAfter >= 5 ? 3 : 2;
+            assertEquals(descriptions(generation(expected, 5)), load(file), "Crash after step " + crashAfter);
+
+            JsonTaskStorage.writeTasks(file, generation(4, 5));
+            assertEquals(descriptions(generation(4, 5)), load(file), "Save after crash at step " + crashAfter);
+        }
+    }
+
+    @Test
+    public void testFileWithoutChecksumIsStillRead() throws IOException {
+        Path file = tempDir.resolve("tasks.json");
+        Files.writeString(file, "[\n" + Task.restore(1, "Legacy", Status.TODO, TIME, TIME).toJson() + "\n]");
+
+        assertEquals(List.of("Legacy"), load(file));
+        JsonTaskStorage.writeTasks(file, generation(1, 3));
+        assertEquals(descriptions(generation(1, 3)), load(file));
+    }
+
+    @Test
+    public void testDeletedFileIsNotRestoredFromBackup() throws IOException {
+        Path file = tempDir.resolve("tasks.json");
+        JsonTaskStorage.writeTasks(file, generation(1, 3));
+        JsonTaskStorage.writeTasks(file, generation(2, 3));
+        Files.delete(file);
+
+        assertEquals(List.of(), load(file));
+    }
+
+    @Test
+    public void testNoValidGenerationThrows() throws IOException {
+        Path file = tempDir.resolve("tasks.json");
+        JsonTaskStorage.writeTasks(file, generation(1, 3));
+        JsonTaskStorage.writeTasks(file, generation(2, 3));
+        Files.writeString(file, "[{");
+        Files.writeString(CheckedFile.backupPath(file), "[{");
+
+        assertThrows(TaskStorageException.class, () -> load(file));
+    }
+
+    private static List<Task> generation(int generation, int count) {
+        List<Task> tasks = new ArrayList<>();
+        for (int id = 1; id <= count; id++) {
+            tasks.add(Task.restore(id, "Generation " + generation + " task " + id, Status.TODO, TIME, TIME));
+        }
+        return tasks;
+    }
+
+    private static List<String> descriptions(List<Task> tasks) {
+        return tasks.stream().map(Task::getDescription).collect(Collectors.toList());
+    }
+
+    private static List<String> load(Path file) {
+        Map<Integer, Task> tasks = new HashMap<>();
+        JsonTaskStorage.readTasks(file, tasks);
+        return tasks.values().stream().sorted((a, b) -> Integer.compare(a.getId(), b.getId()))
+                .map(Task::getDescription).collect(Collectors.toList());
+    }
+
+    /**
+     * Writer failing once a given number of characters went through, like a process killed mid-write.
+     */
+    private static class KillingWriter extends Writer {
+        private final Writer delegate;
+        private int remaining;
+
+        KillingWriter(Writer delegate, int killAt) {
+            this.delegate = delegate;
+            this.remaining = killAt;
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+            int allowed = Math.min(length, remaining);
+            delegate.write(buffer, offset, allowed);
+            remaining -= allowed;
+            if (allowed < length) {
+                delegate.flush();
+                throw new IOException("Killed");
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
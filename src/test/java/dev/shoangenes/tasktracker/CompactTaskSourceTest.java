@@ -0,0 +1,107 @@
+package dev.shoangenes.tasktracker;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class CompactTaskSourceTest {
+    private static final LocalDateTime TIME = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    @TempDir
+    Path tempDir;
+
+    private Path file;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        file = tempDir.resolve("tasks.json");
+        Field idField = Task.class.getDeclaredField("lastIdSaved");
+        idField.setAccessible(true);
+        idField.set(null, 0);
+    }
+
+    @Test
+    public void testCompactSaveWritesTheSameJson() throws IOException {
+        JsonTaskStorage.writeTasks(file, tasks(200, 7));
+        String eager = Files.readString(file);
+
+        try (TaskManager manager = new TaskManager(new JsonTaskStorage(file, false, true))) {
+            assertEquals(200, manager.findTasks(new TaskQuery()).size());
+            manager.writeTasksToJson();
+        }
+        assertEquals(eager, Files.readString(file));
+    }
+
+    @Test
+    public void testTasksAreBuiltOnlyWhenTouched() {
+        JsonTaskStorage.writeTasks(file, tasks(50, 5));
+
+        try (TaskManager manager = new TaskManager(new JsonTaskStorage(file, false, true))) {
+            assertEquals(16, manager.countTasks(Status.TODO));
+            assertEquals("Shared description 4 \"quoted\" é", manager.getTaskById(9).getDescription());
+            manager.markDone(9);
+            manager.deleteTask(10);
+            manager.addTask("New task");
+            assertEquals(51, Task.getLastIdSaved());
+            manager.writeTasksToJson();
+        }
+
+        Map<Integer, Task> stored = new HashMap<>();
+        JsonTaskStorage.readTasks(file, stored);
+        assertEquals(50, stored.size());
+        assertEquals(Status.DONE, stored.get(9).getStatus());
+        assertNull(stored.get(10));
+        assertEquals("New task", stored.get(51).getDescription());
+        assertEquals(TIME.plusMinutes(20), stored.get(20).getCreatedAt());
+    }
+
+    @Test
+    public void testDescriptionsAreStoredOnce() {
+        JsonTaskStorage.writeTasks(file, tasks(10_000, 10));
+        CompactTaskSource source = CompactTaskSource.read(file);
+
+        int[] count = {0};
+        source.forEachHeader((id, status, createdAt, updatedAt) -> count[0]++);
+        assertEquals(10_000, count[0]);
+        // 10 distinct descriptions of about 32 bytes, instead of 10,000 copies
+        assertTrue(source.footprint() < 10_000 * 26L + 1024, "Footprint: " + source.footprint());
+        assertEquals("Shared description 3 \"quoted\" é", source.take(9_993).getDescription());
+    }
+
+    @Test
+    public void testUnorderedFileIsSortedAndKeepsTheLastDuplicate() throws IOException {
+        Files.writeString(file, """
+                [
+                {"id":3,"description":"Third","status":"DONE","createdAt":"2026-01-01T12:00:00","updatedAt":"2026-01-01T12:00:00"},
+                {"id":1,"description":"First","status":"TODO","createdAt":"2026-01-01T12:00:00","updatedAt":"2026-01-01T12:00:00"},
+                {"id":3,"description":"Third again","status":"TODO","createdAt":"2026-01-01T12:00:00","updatedAt":"2026-01-01T12:00:00"}
+                ]""");
+        CompactTaskSource source = CompactTaskSource.read(file);
+        List<Integer> ids = new ArrayList<>();
+        source.forEach(task -> ids.add(task.getId()));
+        assertEquals(List.of(1, 3), ids);
+        assertEquals("Third again", source.take(3).getDescription());
+        assertEquals(3, source.getMaxId());
+    }
+
+    private static List<Task> tasks(int count, int distinctDescriptions) {
+        List<Task> tasks = new ArrayList<>(count);
+        for (int id = 1; id <= count; id++) {
+            tasks.add(Task.restore(id, "Shared description " + id % distinctDescriptions + " \"quoted\" é",
+                    Status.values()[id % 3], TIME.plusMinutes(id), TIME.plusMinutes(id + 1)));
+        }
+        return tasks;
+    }
+}
@@ -0,0 +1,127 @@
+package dev.shoangenes.tasktracker;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class IndexedJsonTaskSourceTest {
+    private static final LocalDateTime TIME = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    @TempDir
+    Path tempDir;
+
+    private Path file;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        file = tempDir.resolve("tasks.json");
+        Field idField = Task.class.getDeclaredField("lastIdSaved");
+        idField.setAccessible(true);
+        idField.set(null, 0);
+    }
+
+    @Test
+    public void testLazySaveWritesTheSameJsonAndAnIndex() throws IOException {
+        new JsonTaskStorage(file, true).save(tasks(5));
+        String lazy = Files.readString(file);
+        new JsonTaskStorage(file).save(tasks(5));
+        assertEquals(Files.readString(file), lazy);
+
+        new JsonTaskStorage(file, true).save(List.of());
+        assertEquals("[\n]", Files.readString(file));
+    }
+
+    @Test
+    public void testTasksAreParsedOnlyWhenTouched() {
+        new JsonTaskStorage(file, true).save(tasks(100));
+
+        try (IndexedJsonTaskSource source = IndexedJsonTaskSource.open(file)) {
+            assertNotNull(source);
+            assertEquals(100, source.getMaxId());
+            Task task = source.take(42);
+            assertEquals("Task 42 \"quoted\" é", task.getDescription());
+            assertNull(source.take(42), "A taken task is no longer served by the source.");
+            assertNull(source.take(101));
+            int[] headers = {0};
+            source.forEachHeader((id, status, createdAt, updatedAt) -> {
+                assertEquals(Status.values()[id % 3], status);
+                assertEquals(Task.toEpochMillis(TIME.plusMinutes(id)), createdAt);
+                headers[0]++;
+            });
+            assertEquals(99, headers[0]);
+        }
+    }
+
+    @Test
+    public void testUntouchedRecordsAreCopiedOnSave() {
+        new JsonTaskStorage(file, true).save(tasks(50));
+
+        try (TaskManager manager = new TaskManager(new JsonTaskStorage(file, true))) {
+            assertEquals(16, manager.countTasks(Status.TODO));
+            manager.markDone(9);
+            manager.deleteTask(10);
+            manager.addTask("New task");
+            manager.writeTasksToJson();
+        }
+
+        Map<Integer, Task> stored = new HashMap<>();
+        JsonTaskStorage.readTasks(file, stored);
+        assertEquals(50, stored.size());
+        assertEquals(Status.DONE, stored.get(9).getStatus());
+        assertNull(stored.get(10));
+        assertEquals("New task", stored.get(51).getDescription());
+        assertEquals("Task 20 \"quoted\" é", stored.get(20).getDescription());
+
+        try (TaskManager manager = new TaskManager(new JsonTaskStorage(file, true))) {
+            assertEquals(Status.DONE, manager.getTaskById(9).getStatus());
+            assertNull(manager.getTaskById(10));
+            assertEquals("New task", manager.getTaskById(51).getDescription());
+        }
+    }
+
+    @Test
+    public void testIndexOfAnotherGenerationIsIgnored() {
+        new JsonTaskStorage(file, true).save(tasks(10));
+        new JsonTaskStorage(file).save(tasks(3));
+
+        assertNull(IndexedJsonTaskSource.open(file));
+        try (TaskManager manager = new TaskManager(new JsonTaskStorage(file, true))) {
+            assertNull(manager.getTaskById(4));
+            assertEquals("Task 3 \"quoted\" é", manager.getTaskById(3).getDescription());
+        }
+    }
+
+    @Test
+    public void testDamagedRecordIsDetected() throws IOException {
+        new JsonTaskStorage(file, true).save(tasks(10));
+        String content = Files.readString(file);
+        Files.writeString(file, content.replace("Task 7 ", "Tusk 7 "));
+
+        try (IndexedJsonTaskSource source = IndexedJsonTaskSource.open(file)) {
+            assertNotNull(source);
+            assertEquals("Task 6 \"quoted\" é", source.take(6).getDescription());
+            assertThrows(TaskStorageException.class, () -> source.take(7));
+        }
+    }
+
+    private static List<Task> tasks(int count) {
+        List<Task> tasks = new ArrayList<>();
+        for (int id = 1; id <= count; id++) {
+            tasks.add(Task.restore(id, "Task " + id + " \"quoted\" é", Status.values()[id % 3],
+                    TIME.plusMinutes(id), TIME.plusHours(id)));
+        }
+        return tasks;
+    }
+}
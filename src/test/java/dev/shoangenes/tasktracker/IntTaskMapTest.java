@@ -0,0 +1,81 @@
+package dev.shoangenes.tasktracker;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.Field;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class IntTaskMapTest {
+    @AfterEach
+    public void resetLastId() throws Exception {
+        Field idField = Task.class.getDeclaredField("lastIdSaved");
+        idField.setAccessible(true);
+        idField.setInt(null, 0);
+    }
+
+    @Test
+    public void testPutGetRemove() {
+        IntTaskMap map = new IntTaskMap();
+        Task first = task(1);
+        Task far = task(5_000_000);
+
+        assertNull(map.put(1, first));
+        assertNull(map.put(5_000_000, far));
+        assertSame(first, map.get(1));
+        assertSame(far, map.get(5_000_000));
+        assertNull(map.get(2));
+        assertNull(map.get(-1));
+        assertEquals(2, map.size());
+
+        assertFalse(map.remove(1, far));
+        assertTrue(map.remove(1, first));
+        assertNull(map.get(1));
+        assertEquals(1, map.size());
+        assertThrows(IllegalArgumentException.class, () -> map.put(-1, first));
+    }
+
+    @Test
+    public void testComputeIfAbsentCallsFunctionOnce() {
+        IntTaskMap map = new IntTaskMap();
+        AtomicInteger calls = new AtomicInteger();
+
+        Task computed = map.computeIfAbsent(7, id -> {
+            calls.incrementAndGet();
+            return task(id);
+        });
+        assertSame(computed, map.computeIfAbsent(7, id -> {
+            calls.incrementAndGet();
+            return task(id);
+        }));
+        assertNull(map.computeIfAbsent(8, id -> null));
+        assertEquals(1, calls.get());
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void testIterationInIdOrderThroughMapView() {
+        IntTaskMap map = new IntTaskMap();
+        Map<Integer, Task> view = map;
+        for (int id : new int[]{3000, 2, 1025, 1}) {
+            view.put(id, task(id));
+        }
+        view.remove(2);
+
+        List<Integer> ids = new ArrayList<>();
+        map.values().forEach(task -> ids.add(task.getId()));
+        assertEquals(List.of(1, 1025, 3000), ids);
+        assertEquals(List.of(1, 1025, 3000), new ArrayList<>(view.keySet()));
+    }
+
+    private static Task task(int id) {
+        LocalDateTime now = LocalDateTime.now();
+        return Task.restore(id, "Task " + id, Status.TODO, now, now);
+    }
+}
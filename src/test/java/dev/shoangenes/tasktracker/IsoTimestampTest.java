@@ -0,0 +1,51 @@
+package dev.shoangenes.tasktracker;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+public class IsoTimestampTest {
+    private static final List<LocalDateTime> TIMESTAMPS = List.of(
+            LocalDateTime.of(2026, 1, 1, 12, 0),
+            LocalDateTime.of(2026, 12, 31, 23, 59, 59),
+            LocalDateTime.of(2026, 6, 15, 8, 5, 3, 500_000_000),
+            LocalDateTime.of(2026, 6, 15, 8, 5, 3, 120_000),
+            LocalDateTime.of(2026, 6, 15, 8, 5, 3, 123_456_789),
+            LocalDateTime.of(2026, 6, 15, 8, 5, 3, 1),
+            LocalDateTime.of(1, 1, 1, 0, 0),
+            LocalDateTime.of(12345, 1, 1, 0, 0),
+            LocalDateTime.of(-5, 1, 1, 0, 0));
+
+    @Test
+    public void testAppendMatchesTheFormatter() {
+        for (LocalDateTime timestamp : TIMESTAMPS) {
+            StringBuilder sb = new StringBuilder();
+            IsoTimestamp.append(sb, timestamp);
+            assertEquals(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(timestamp), sb.toString());
+        }
+    }
+
+    @Test
+    public void testParseMatchesTheFormatter() {
+        for (LocalDateTime timestamp : TIMESTAMPS) {
+            String text = DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(timestamp);
+            assertEquals(timestamp, IsoTimestamp.parse(text));
+        }
+        assertEquals(LocalDateTime.of(2026, 1, 1, 12, 30), IsoTimestamp.parse("2026-01-01T12:30"));
+        assertEquals(LocalDateTime.of(2026, 1, 1, 12, 30, 5, 100_000_000), IsoTimestamp.parse("2026-01-01T12:30:05.1"));
+    }
+
+    @Test
+    public void testParseRejectsWhatTheFormatterRejects() {
+        for (String text : List.of("2026-02-30T12:00:00", "2026-13-01T12:00:00", "2026-01-01T24:00:00",
+                "2026-01-01T12:00:00.1234567890", "2026-01-01 12:00:00", "2026-01-01",
+                "2026-01-01T12:00:0x")) {
+            assertThrows(DateTimeParseException.class, () -> IsoTimestamp.parse(text), text);
+        }
+    }
+}
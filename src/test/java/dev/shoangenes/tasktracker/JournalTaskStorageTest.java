@@ -0,0 +1,82 @@
+package dev.shoangenes.tasktracker;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class JournalTaskStorageTest {
+    @TempDir
+    Path tempDir;
+
+    private Path filePath;
+
+    @BeforeEach
+    public void resetIds() throws NoSuchFieldException, IllegalAccessException {
+        filePath = tempDir.resolve("tasks.json");
+        Field idField = Task.class.getDeclaredField("lastIdSaved");
+        idField.setAccessible(true);
+        idField.setInt(null, 0);
+    }
+
+    @Test
+    public void testMutationsAreReplayedFromJournal() {
+        try (TaskManager manager = new TaskManager(new JournalTaskStorage(filePath))) {
+            manager.addTask("Study Java");
+            manager.addTask("Go to the University");
+            manager.addTask("Tell Jimmy about that");
+            manager.updateTask(1, "Study Java 21");
+            manager.markDone(2);
+            manager.deleteTask(3);
+        }
+
+        assertFalse(Files.exists(filePath), "Nothing should be compacted below the threshold.");
+
+        try (TaskManager reloaded = new TaskManager(new JournalTaskStorage(filePath))) {
+            assertEquals("Study Java 21", reloaded.getTaskById(1).getDescription());
+            assertEquals(Status.DONE, reloaded.getTaskById(2).getStatus());
+            assertNull(reloaded.getTaskById(3));
+        }
+    }
+
+    @Test
+    public void testJournalIsCompactedIntoSnapshot() {
+        try (TaskManager manager = new TaskManager(new JournalTaskStorage(filePath, 3))) {
+            for (int i = 1; i <= 7; i++) {
+                manager.addTask("Task " + i);
+            }
+            manager.markInProgress(7);
+        }
+
+        assertTrue(Files.exists(filePath));
+        assertFalse(Files.exists(filePath.resolveSibling("tasks.json.journal.compacting")));
+
+        try (TaskManager reloaded = new TaskManager(new JournalTaskStorage(filePath, 3))) {
+            for (int i = 1; i <= 7; i++) {
+                assertEquals("Task " + i, reloaded.getTaskById(i).getDescription());
+            }
+            assertEquals(Status.IN_PROGRESS, reloaded.getTaskById(7).getStatus());
+        }
+    }
+
+    @Test
+    public void testTornLastRecordIsIgnored() throws IOException {
+        JournalTaskStorage storage = new JournalTaskStorage(filePath);
+        try (TaskManager manager = new TaskManager(storage)) {
+            manager.addTask("Survives");
+        }
+        Files.writeString(storage.getJournalPath(), "ADD {\"id\":99,\"descr", StandardOpenOption.APPEND);
+
+        try (TaskManager reloaded = new TaskManager(new JournalTaskStorage(filePath))) {
+            assertEquals("Survives", reloaded.getTaskById(1).getDescription());
+            assertNull(reloaded.getTaskById(99));
+        }
+    }
+}
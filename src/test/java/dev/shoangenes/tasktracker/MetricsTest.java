@@ -0,0 +1,109 @@
+package dev.shoangenes.tasktracker;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+public class MetricsTest {
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        Field idField = Task.class.getDeclaredField("lastIdSaved");
+        idField.setAccessible(true);
+        idField.set(null, 0);
+        Metrics.reset();
+    }
+
+    @Test
+    public void testHistogramPercentilesStayWithinTheirBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1000);
+        }
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(100_000_000, histogram.getMaxNanos());
+        assertEquals(50_000_000, histogram.getPercentileNanos(50), 50_000_000 / 16.0);
+        assertEquals(99_000_000, histogram.getPercentileNanos(99), 99_000_000 / 16.0);
+        assertEquals(100_000_000, histogram.getPercentileNanos(100));
+
+        long previous = -1;
+        for (int bucket = 0; bucket < 960; bucket++) {
+            long upper = LatencyHistogram.upperBoundOf(bucket);
+            assertTrue(upper > previous);
+            assertEquals(bucket, LatencyHistogram.bucketOf(upper));
+            assertEquals(bucket, LatencyHistogram.bucketOf(previous + 1));
+            previous = upper;
+        }
+        assertEquals(Long.MAX_VALUE, previous);
+    }
+
+    @Test
+    public void testCommandsLoadsAndSavesAreTimed() {
+        try (TaskManager manager = new TaskManager(new JsonTaskStorage(tempDir.resolve("tasks.json")))) {
+            run(manager, "add", "First task");
+            run(manager, "add", "Second task");
+            run(manager, "mark-done", "3");
+            run(manager, "list", "done");
+            manager.writeTasksToJson();
+
+            assertEquals(1, Metrics.LOAD.getHistogram().getCount());
+            assertEquals(1, Metrics.SAVE.getHistogram().getCount());
+            assertEquals(2, Metrics.timer("command.add").getHistogram().getCount());
+            assertEquals(1, Metrics.counter("commands.failed").get());
+            assertEquals(2, Metrics.counter("changes.saved").get());
+            assertTrue(Metrics.INDEX_UPDATE.getHistogram().getCount() >= 2);
+
+            List<String> text = run(manager, "stats");
+            assertTrue(text.get(0).startsWith("operation"));
+            assertTrue(text.stream().anyMatch(line -> line.startsWith("command.list ")), String.join("\n", text));
+            String json = run(manager, "stats", "--json").get(0);
+            assertTrue(json.startsWith("{\"timers\":{\"command.add\":{\"count\":2,"), json);
+            assertTrue(json.endsWith("\"counters\":{\"changes.saved\":2,\"commands.failed\":1}}"), json);
+        }
+    }
+
+    @Test
+    public void testOperationsAreRecordedAsJfrEvents() throws IOException {
+        Path dump = tempDir.resolve("tasks.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(OperationEvent.class);
+            recording.start();
+            try (TaskManager manager = new TaskManager(new JsonTaskStorage(tempDir.resolve("tasks.json")))) {
+                run(manager, "add", "Task");
+                manager.writeTasksToJson();
+            }
+            recording.stop();
+            recording.dump(dump);
+        }
+        List<String> operations = RecordingFile.readAllEvents(dump).stream()
+                .filter(event -> event.getEventType().getName().equals("dev.shoangenes.tasktracker.Operation"))
+                .map(event -> event.getString("operation"))
+                .toList();
+        assertTrue(operations.containsAll(List.of("load", "command.add", "save")), operations.toString());
+        RecordedEvent save = RecordingFile.readAllEvents(dump).stream()
+                .filter(event -> "save".equals(event.getString("operation")))
+                .findFirst().orElseThrow();
+        assertTrue(save.getDuration("elapsed").toNanos() > 0);
+    }
+
+    private static List<String> run(TaskManager manager, String... args) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        TaskManagerCLI.execute(manager, args, new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        return bytes.toString(StandardCharsets.UTF_8).lines().toList();
+    }
+}
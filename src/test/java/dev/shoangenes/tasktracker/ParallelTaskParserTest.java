@@ -0,0 +1,130 @@
+package dev.shoangenes.tasktracker;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+public class ParallelTaskParserTest {
+    private static final LocalDateTime TIME = LocalDateTime.of(2026, 1, 1, 12, 0);
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        resetLastId();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        POOL.shutdown();
+    }
+
+    @Test
+    public void testParallelParseMatchesSequentialParse() throws Exception {
+        Path file = tempDir.resolve("tasks.json");
+        JsonTaskStorage.writeTasks(file, tasks(30_000));
+
+        List<List<Task>> chunks = ParallelTaskParser.parse(file, POOL);
+        assertNotNull(chunks);
+        assertTrue(chunks.size() > 1, "Chunks: " + chunks.size());
+        assertEquals(30_000, Task.getLastIdSaved());
+        assertEquals(json(sequential(file)), json(merge(chunks)));
+    }
+
+    @Test
+    public void testLastIdIsAdvancedPastEveryChunk() throws Exception {
+        Path file = tempDir.resolve("tasks.json");
+        List<Task> tasks = tasks(30_000);
+        // The highest ID sits in the first chunk, so threads parsing later chunks must not move the ID back
+        tasks.set(0, Task.restore(1_000_000, "Highest", Status.TODO, TIME, TIME));
+        JsonTaskStorage.writeTasks(file, tasks);
+        resetLastId();
+
+        assertNotNull(ParallelTaskParser.parse(file, POOL));
+        assertEquals(1_000_000, Task.getLastIdSaved());
+    }
+
+    @Test
+    public void testPrettyPrintedFileIsSplitBeforeTasks() throws Exception {
+        Path file = tempDir.resolve("tasks.json");
+        StringBuilder json = new StringBuilder("[\n");
+        for (int id = 1; id <= 20_000; id++) {
+            json.append("  {\n    \"id\": ").append(id).append(",\n    \"description\": \"Task ").append(id)
+                    .append(" {with braces}\",\n    \"status\": \"TODO\",\n    \"createdAt\": \"2026-01-01T12:00:00\",\n")
+                    .append("    \"updatedAt\": \"2026-01-01T12:00:00\"\n  }").append(id < 20_000 ? ",\n" : "\n");
+        }
+        Files.writeString(file, json.append("]\n"));
+
+        List<List<Task>> chunks = ParallelTaskParser.parse(file, POOL);
+        assertNotNull(chunks);
+        assertEquals(json(sequential(file)), json(merge(chunks)));
+    }
+
+    @Test
+    public void testNestedUnknownFieldsFallBackToSequentialParse() throws Exception {
+        Path file = tempDir.resolve("tasks.json");
+        StringBuilder json = new StringBuilder("[\n");
+        for (int id = 1; id <= 20_000; id++) {
+            json.append("{\"id\": ").append(id).append(", \"padding\": \"").append("x".repeat(400))
+                    .append("\", \"extra\": [\n{\"nested\": true}\n],")
+                    .append(" \"description\": \"Task\", \"status\": \"DONE\", \"createdAt\": \"2026-01-01T12:00:00\",")
+                    .append(" \"updatedAt\": \"2026-01-01T12:00:00\"}").append(id < 20_000 ? ",\n" : "\n");
+        }
+        Files.writeString(file, json.append("]"));
+
+        // Most cut offsets fall in the long first line of a task, and the next line opens the nested object
+        assertNull(ParallelTaskParser.parse(file, POOL));
+        assertEquals(20_000, sequential(file).size());
+    }
+
+    private static void resetLastId() throws Exception {
+        Field idField = Task.class.getDeclaredField("lastIdSaved");
+        idField.setAccessible(true);
+        idField.set(null, 0);
+    }
+
+    private static List<Task> tasks(int count) {
+        List<Task> tasks = new ArrayList<>();
+        for (int id = 1; id <= count; id++) {
+            String description = "Task " + id + " {\"quoted\"}\né中 " + "x".repeat(id % 50);
+            tasks.add(Task.restore(id, description, Status.values()[id % 3], TIME.plusMinutes(id), TIME.plusHours(id)));
+        }
+        return tasks;
+    }
+
+    private static Map<Integer, Task> sequential(Path file) throws IOException {
+        Map<Integer, Task> tasks = new HashMap<>();
+        try (TaskJsonReader reader = new TaskJsonReader(Files.newBufferedReader(file))) {
+            reader.readTasks(task -> tasks.put(task.getId(), task));
+        }
+        return tasks;
+    }
+
+    private static Map<Integer, Task> merge(List<List<Task>> chunks) {
+        Map<Integer, Task> tasks = new HashMap<>();
+        chunks.forEach(chunk -> chunk.forEach(task -> tasks.put(task.getId(), task)));
+        return tasks;
+    }
+
+    private static Map<Integer, String> json(Map<Integer, Task> tasks) {
+        Map<Integer, String> json = new HashMap<>();
+        tasks.forEach((id, task) -> json.put(id, task.toJson()));
+        return json;
+    }
+}
@@ -0,0 +1,84 @@
+package dev.shoangenes.tasktracker;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.util.List;
+
+public class SearchIndexTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testAndOrAndPrefixQueries() {
+        SearchIndex index = new SearchIndex();
+        index.ensureBuilt(sink -> {
+            sink.accept(1, "Fix login bug");
+            sink.accept(2, "Release 2.0, fix the changelog");
+            sink.accept(3, "Write e-mail to Bob");
+            sink.accept(4, "Prepare release notes");
+        });
+
+        assertArrayEquals(new int[]{1, 2}, index.search("fix"));
+        assertArrayEquals(new int[]{1}, index.search("FIX bug"));
+        assertArrayEquals(new int[]{1, 2, 4}, index.search("bug OR release"));
+        assertArrayEquals(new int[]{2, 4}, index.search("rel*"));
+        assertArrayEquals(new int[]{3}, index.search("e-mail"));
+        assertArrayEquals(new int[0], index.search("missing"));
+    }
+
+    @Test
+    public void testIndexFollowsMutations() {
+        TaskManager manager = new TaskManager(new JsonTaskStorage(tempDir.resolve("tasks.json")));
+        manager.addTask("Buy groceries");
+        int id = Task.getLastIdSaved();
+        assertEquals(1, manager.searchTasks("groceries").size());
+
+        manager.updateTask(id, "Cook dinner");
+        manager.addTask("Cook lunch");
+        assertTrue(manager.searchTasks("groceries").isEmpty());
+        assertEquals(2, manager.searchTasks("cook").size());
+
+        manager.deleteTask(id);
+        List<Task> found = manager.searchTasks("cook");
+        assertEquals(1, found.size());
+        assertEquals("Cook lunch", found.get(0).getDescription());
+    }
+
+    @Test
+    public void testUpdateDuringTheBuildIsApplied() throws InterruptedException {
+        SearchIndex index = new SearchIndex();
+        Thread[] updater = new Thread[1];
+        index.ensureBuilt(sink -> {
+            sink.accept(1, "Old description");
+            // The task changes after the scan has passed it, before the build is published
+            updater[0] = Thread.ofVirtual().start(() -> index.update(1, "Old description", "New description"));
+            while (updater[0].getState() != Thread.State.WAITING && updater[0].isAlive()) {
+                Thread.onSpinWait();
+            }
+            sink.accept(2, "Other task");
+        });
+        updater[0].join();
+
+        assertArrayEquals(new int[]{1}, index.search("new"));
+        assertArrayEquals(new int[0], index.search("old"));
+        assertArrayEquals(new int[]{1, 2}, index.search("description OR task"));
+    }
+
+    @Test
+    public void testPersistedIndexIsReusedOnlyForTheSameStore() {
+        Path indexPath = tempDir.resolve("tasks.search");
+        SearchIndex index = new SearchIndex();
+        index.ensureBuilt(sink -> sink.accept(1, "Persisted task"));
+        index.save(indexPath, 42L);
+
+        SearchIndex reloaded = new SearchIndex();
+        assertTrue(reloaded.load(indexPath, 42L));
+        assertArrayEquals(new int[]{1}, reloaded.search("persisted"));
+
+        assertFalse(new SearchIndex().load(indexPath, 43L), "A stale index must be rebuilt.");
+    }
+}
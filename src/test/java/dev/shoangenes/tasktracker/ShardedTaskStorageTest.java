@@ -0,0 +1,141 @@
+package dev.shoangenes.tasktracker;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ShardedTaskStorageTest {
+    private static final LocalDateTime TIME = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        Field idField = Task.class.getDeclaredField("lastIdSaved");
+        idField.setAccessible(true);
+        idField.set(null, 0);
+    }
+
+    @Test
+    public void testTasksRoundTripThroughShards() {
+        Path file = tempDir.resolve("tasks.json");
+        ShardedTaskStorage storage = new ShardedTaskStorage(file, 8);
+        storage.save(tasks(100));
+
+        for (int shard = 0; shard < 8; shard++) {
+            assertTrue(Files.exists(storage.shardPath(shard)));
+        }
+        assertFalse(Files.exists(file));
+
+        Map<Integer, Task> loaded = new HashMap<>();
+        new ShardedTaskStorage(file, 8).load(loaded);
+        assertEquals(100, loaded.size());
+        assertEquals("Task 42", loaded.get(42).getDescription());
+    }
+
+    @Test
+    public void testMutationRewritesOnlyItsShard() throws IOException {
+        Path file = tempDir.resolve("tasks.json");
+        new ShardedTaskStorage(file, 4).save(tasks(20));
+
+        ShardedTaskStorage storage = new ShardedTaskStorage(file, 4);
+        try (TaskManager manager = new TaskManager(storage)) {
+            List<byte[]> before = contents(storage);
+            manager.markDone(6);
+            manager.writeTasksToJson();
+            List<byte[]> after = contents(storage);
+
+            for (int shard = 0; shard < 4; shard++) {
+                assertEquals(shard == 2, !Arrays.equals(before.get(shard), after.get(shard)), "Shard " + shard);
+            }
+        }
+
+        Map<Integer, Task> loaded = new HashMap<>();
+        new ShardedTaskStorage(file, 4).load(loaded);
+        assertEquals(Status.DONE, loaded.get(6).getStatus());
+        assertEquals(20, loaded.size());
+    }
+
+    @Test
+    public void testManifestShardCountWinsOverConfiguredCount() {
+        Path file = tempDir.resolve("tasks.json");
+        new ShardedTaskStorage(file, 3).save(tasks(10));
+
+        ShardedTaskStorage storage = new ShardedTaskStorage(file, 16);
+        assertEquals(3, storage.getShardCount());
+        Map<Integer, Task> loaded = new HashMap<>();
+        storage.load(loaded);
+        assertEquals(10, loaded.size());
+    }
+
+    @Test
+    public void testStoreWithoutManifestIsMigratedFromTasksJson() {
+        Path file = tempDir.resolve("tasks.json");
+        JsonTaskStorage.writeTasks(file, tasks(10));
+
+        ShardedTaskStorage storage = new ShardedTaskStorage(file, 4);
+        try (TaskManager manager = new TaskManager(storage)) {
+            assertEquals(10, manager.countTasks(Status.TODO));
+            manager.addTask("Task 11");
+            manager.writeTasksToJson();
+        }
+        for (int shard = 0; shard < 4; shard++) {
+            assertTrue(Files.exists(storage.shardPath(shard)));
+        }
+
+        Map<Integer, Task> loaded = new HashMap<>();
+        new ShardedTaskStorage(file, 4).load(loaded);
+        assertEquals(11, loaded.size());
+    }
+
+    @Test
+    public void testTaskMovedByAMergeIsSaved() throws Exception {
+        Path file = tempDir.resolve("tasks.json");
+        new ShardedTaskStorage(file, 4).save(List.of());
+        try (TaskManager first = new TaskManager(new ShardedTaskStorage(file, 4));
+             TaskManager second = new TaskManager(new ShardedTaskStorage(file, 4))) {
+            // Both processes hand out ID 1
+            first.addTask("from A");
+            setUp();
+            second.addTask("from B");
+            second.writeTasksToJson();
+            first.writeTasksToJson();
+            assertEquals("from A", first.getTaskById(2).getDescription());
+        }
+
+        Map<Integer, Task> loaded = new HashMap<>();
+        new ShardedTaskStorage(file, 4).load(loaded);
+        assertEquals("from B", loaded.get(1).getDescription());
+        assertEquals("from A", loaded.get(2).getDescription());
+    }
+
+    private static List<Task> tasks(int count) {
+        List<Task> tasks = new ArrayList<>();
+        for (int id = 1; id <= count; id++) {
+            tasks.add(Task.restore(id, "Task " + id, Status.TODO, TIME, TIME));
+        }
+        return tasks;
+    }
+
+    private static List<byte[]> contents(ShardedTaskStorage storage) throws IOException {
+        List<byte[]> contents = new ArrayList<>();
+        for (int shard = 0; shard < storage.getShardCount(); shard++) {
+            contents.add(Files.readAllBytes(storage.shardPath(shard)));
+        }
+        return contents;
+    }
+}
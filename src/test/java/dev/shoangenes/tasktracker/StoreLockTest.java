@@ -0,0 +1,134 @@
+package dev.shoangenes.tasktracker;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class StoreLockTest {
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        Field idField = Task.class.getDeclaredField("lastIdSaved");
+        idField.setAccessible(true);
+        idField.set(null, 0);
+    }
+
+    @Test
+    public void testConcurrentSavesKeepBothSidesChanges() {
+        Path file = tempDir.resolve("tasks.json");
+        try (TaskManager setup = new TaskManager(new JsonTaskStorage(file))) {
+            setup.addTask("Shared one");
+            setup.addTask("Shared two");
+            setup.addTask("Shared three");
+            setup.writeTasksToJson();
+        }
+
+        TaskManager first = new TaskManager(new JsonTaskStorage(file));
+        TaskManager second = new TaskManager(new JsonTaskStorage(file));
+        first.addTask("Added by first");
+        first.markDone(1);
+        second.addTask("Added by second");
+        second.updateTask(2, "Updated by second");
+        second.deleteTask(3);
+
+        second.writeTasksToJson();
+        first.writeTasksToJson();
+        first.close();
+        second.close();
+
+        Map<Integer, Task> stored = load(file);
+        assertEquals(Set.of("Shared one", "Updated by second", "Added by first", "Added by second"),
+                stored.values().stream().map(Task::getDescription).collect(Collectors.toSet()));
+        assertEquals(4, stored.size());
+        assertEquals(Status.DONE, stored.get(1).getStatus());
+    }
+
+    @Test
+    public void testMergedManagerKeepsSavingItsOwnChanges() {
+        Path file = tempDir.resolve("tasks.json");
+        TaskManager first = new TaskManager(new JsonTaskStorage(file));
+        TaskManager second = new TaskManager(new JsonTaskStorage(file));
+        first.addTask("First task");
+        second.addTask("Second task");
+        first.writeTasksToJson();
+        second.writeTasksToJson();
+
+        // The second manager moved its task to a new ID and now sees the first manager's task
+        List<Task> merged = second.findTasks(new TaskQuery());
+        assertEquals(2, merged.size());
+        int moved = merged.stream().filter(task -> task.getDescription().equals("Second task"))
+                .findFirst().orElseThrow().getId();
+        second.markInProgress(moved);
+        second.writeTasksToJson();
+        first.close();
+        second.close();
+
+        Map<Integer, Task> stored = load(file);
+        assertEquals(Status.IN_PROGRESS, stored.get(moved).getStatus());
+        assertEquals("First task", stored.get(1).getDescription());
+    }
+
+    @Test
+    public void testJournalAllocatesDistinctIdsAcrossManagers() {
+        Path file = tempDir.resolve("tasks.json");
+        TaskManager first = new TaskManager(new JournalTaskStorage(file));
+        TaskManager second = new TaskManager(new JournalTaskStorage(file));
+        for (int i = 0; i < 5; i++) {
+            first.addTask("First " + i);
+            second.addTask("Second " + i);
+        }
+        first.writeTasksToJson();
+        second.writeTasksToJson();
+        first.close();
+        second.close();
+
+        try (TaskManager reader = new TaskManager(new JournalTaskStorage(file))) {
+            assertEquals(10, reader.findTasks(new TaskQuery()).size());
+        }
+    }
+
+    @Test
+    public void testSimultaneousProcessesLoseNoUpdates() throws Exception {
+        Path configHome = Files.createDirectory(tempDir.resolve("config"));
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        List<Process> processes = new ArrayList<>();
+        for (int process = 0; process < 4; process++) {
+            for (int task = 0; task < 3; task++) {
+                ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                        TaskManagerCLI.class.getName(), "add", "Process " + process + " task " + task)
+                        .redirectErrorStream(true).redirectOutput(File.createTempFile("cli", ".log", tempDir.toFile()));
+                builder.environment().put("XDG_CONFIG_HOME", configHome.toString());
+                builder.environment().remove("APPDATA");
+                processes.add(builder.start());
+            }
+        }
+        for (Process process : processes) {
+            assertEquals(0, process.waitFor());
+        }
+
+        Map<Integer, Task> stored = load(configHome.resolve("task-tracker").resolve("tasks.json"));
+        assertEquals(12, stored.size());
+        assertEquals(12, stored.values().stream().map(Task::getDescription).distinct().count());
+    }
+
+    private static Map<Integer, Task> load(Path file) {
+        Map<Integer, Task> tasks = new HashMap<>();
+        JsonTaskStorage.readTasks(file, tasks);
+        return tasks;
+    }
+}
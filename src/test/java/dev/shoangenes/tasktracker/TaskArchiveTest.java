@@ -0,0 +1,157 @@
+package dev.shoangenes.tasktracker;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class TaskArchiveTest {
+    private static final LocalDateTime OLD = LocalDateTime.of(2025, 1, 1, 12, 0);
+    private static final LocalDateTime RECENT = LocalDateTime.now().minusHours(1);
+
+    @TempDir
+    Path tempDir;
+
+    private Path file;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        file = tempDir.resolve("tasks.json");
+        resetLastId();
+        JsonTaskStorage.writeTasks(file, List.of(
+                Task.restore(1, "Old and done", Status.DONE, OLD, OLD),
+                Task.restore(2, "Old and todo", Status.TODO, OLD, OLD),
+                Task.restore(3, "Recent and done", Status.DONE, RECENT, RECENT),
+                Task.restore(4, "Old and done too", Status.DONE, OLD, OLD)));
+        resetLastId();
+    }
+
+    @Test
+    public void testArchivedTasksLeaveTheStore() {
+        try (TaskManager manager = new TaskManager(new JsonTaskStorage(file))) {
+            assertEquals(2, manager.archiveTasks(LocalDateTime.now().minusDays(30)));
+            assertNull(manager.getTaskById(1));
+            assertEquals(List.of(2, 3), ids(manager.findTasks(new TaskQuery())));
+            manager.writeTasksToJson();
+        }
+        Map<Integer, Task> stored = new HashMap<>();
+        JsonTaskStorage.readTasks(file, stored);
+        assertEquals(List.of(2, 3), stored.keySet().stream().sorted().toList());
+
+        try (TaskManager manager = new TaskManager(new JsonTaskStorage(file))) {
+            assertEquals(List.of(1, 2, 3, 4), ids(manager.findTasks(new TaskQuery().includeArchived(true))));
+            assertEquals(List.of(4), ids(manager.findTasks(new TaskQuery().includeArchived(true)
+                    .withStatus(Status.DONE).orderBy(TaskOrder.ID, true).limit(1))));
+            assertEquals("Old and done", manager.getArchivedTask(1).getDescription());
+            assertNull(manager.getArchivedTask(2));
+            // Nothing is archived twice
+            assertEquals(0, manager.archiveTasks(LocalDateTime.now().minusDays(30)));
+            assertEquals(1, manager.archiveTasks(LocalDateTime.now()));
+            manager.writeTasksToJson();
+        }
+        assertEquals(3, new TaskArchive(TaskArchive.directoryFor(file)).getCount());
+    }
+
+    @Test
+    public void testArchivedIdsAreNotReused() throws Exception {
+        try (TaskManager manager = new TaskManager(new JsonTaskStorage(file))) {
+            manager.deleteTask(2);
+            manager.deleteTask(3);
+            manager.archiveTasks(LocalDateTime.now());
+            assertTrue(manager.isEmpty());
+            manager.writeTasksToJson();
+        }
+        resetLastId();
+        try (TaskManager manager = new TaskManager(new JsonTaskStorage(file))) {
+            manager.addTask("New");
+            assertEquals(List.of(5), ids(manager.findTasks(new TaskQuery())));
+        }
+    }
+
+    @Test
+    public void testArchiveAndListCommands() {
+        try (TaskManager manager = new TaskManager(new JournalTaskStorage(file))) {
+            assertEquals("Archived 2 tasks.", run(manager, "archive", "--before", "30d").trim());
+            assertEquals("Usage: task-tracker archive [--before <time>]", run(manager, "archive", "--after").trim());
+            String hot = run(manager, "list", "done", "--format", "jsonl");
+            assertEquals(1, hot.lines().count());
+            String all = run(manager, "list", "done", "--format", "jsonl", "--archived");
+            assertEquals(3, all.lines().count());
+            assertTrue(all.contains("Old and done too"));
+            manager.writeTasksToJson();
+        }
+        try (TaskManager manager = new TaskManager(new JournalTaskStorage(file))) {
+            assertEquals(List.of(2, 3), ids(manager.findTasks(new TaskQuery())));
+        }
+    }
+
+    @Test
+    public void testAutomaticPolicyRunsOncePerDay() {
+        System.setProperty(TaskArchive.DAYS_PROPERTY, "30");
+        try (TaskManager manager = new TaskManager(new JsonTaskStorage(file))) {
+            assertEquals(2, manager.archiveIfDue());
+            manager.markDone(2);
+            manager.writeTasksToJson();
+        } finally {
+            System.clearProperty(TaskArchive.DAYS_PROPERTY);
+        }
+        try (TaskManager manager = new TaskManager(new JsonTaskStorage(file))) {
+            // Without the setting nothing is archived
+            assertEquals(0, manager.archiveIfDue());
+            System.setProperty(TaskArchive.DAYS_PROPERTY, "0");
+            assertEquals(0, manager.archiveIfDue());
+            assertEquals(2, manager.archiveTasks(LocalDateTime.now()));
+            System.setProperty(TaskArchive.DAYS_PROPERTY, "soon");
+            assertThrows(TaskStorageException.class, manager::archiveIfDue);
+        } finally {
+            System.clearProperty(TaskArchive.DAYS_PROPERTY);
+        }
+    }
+
+    @Test
+    public void testAutomaticPolicyRunsWithEverySave() throws IOException {
+        System.setProperty(TaskArchive.DAYS_PROPERTY, "30");
+        try (TaskManager manager = new TaskManager(new JournalTaskStorage(file))) {
+            // A batch and the daemon persist through writeTasksToJson without going through main
+            BatchRunner runner = new BatchRunner((args, out) -> TaskManagerCLI.execute(manager, args, out),
+                    manager::writeTasksToJson, 0);
+            runner.run(new BufferedReader(new StringReader("add New task\n")), new PrintStream(new ByteArrayOutputStream()));
+        } finally {
+            System.clearProperty(TaskArchive.DAYS_PROPERTY);
+        }
+        try (TaskManager manager = new TaskManager(new JournalTaskStorage(file))) {
+            assertEquals(List.of(2, 3, 5), ids(manager.findTasks(new TaskQuery())));
+            assertEquals(2, new TaskArchive(TaskArchive.directoryFor(file)).getCount());
+        }
+    }
+
+        private static void resetLastId() throws ReflectiveOperationException {
+        Field idField = Task.class.getDeclaredField("lastIdSaved");
+        idField.setAccessible(true);
+        idField.set(null, 0);
+    }
+
+    private static String run(TaskManager manager, String... args) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        TaskManagerCLI.execute(manager, args, new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    private static List<Integer> ids(List<Task> tasks) {
+        return tasks.stream().map(Task::getId).toList();
+    }
+}
@@ -0,0 +1,253 @@
+package dev.shoangenes.tasktracker;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+public class TaskHistoryTest {
+    private static final LocalDateTime TIME = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    @TempDir
+    Path tempDir;
+
+    private Path file;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        file = tempDir.resolve("tasks.json");
+        Field idField = Task.class.getDeclaredField("lastIdSaved");
+        idField.setAccessible(true);
+        idField.set(null, 0);
+    }
+
+    @Test
+    public void testUndoAndRedoAcrossManagers() {
+        try (TaskManager manager = new TaskManager(new JsonTaskStorage(file))) {
+            manager.addTask("First");
+            manager.addTask("Second");
+            manager.writeTasksToJson();
+        }
+        try (TaskManager manager = new TaskManager(new JsonTaskStorage(file))) {
+            manager.markDone(1);
+            manager.updateTask(2, "Second, renamed");
+            manager.deleteTask(1);
+            manager.writeTasksToJson();
+        }
+
+        try (TaskManager manager = new TaskManager(new JsonTaskStorage(file))) {
+            List<TaskHistory.Event> undone = manager.undo();
+            assertEquals(1, undone.size());
+            assertEquals(ChangeType.DELETE, undone.get(0).type());
+            assertEquals(Status.DONE, manager.getTaskById(1).getStatus());
+            assertEquals(ChangeType.UPDATE, manager.undo().get(0).type());
+            assertEquals("Second", manager.getTaskById(2).getDescription());
+            manager.writeTasksToJson();
+        }
+        try (TaskManager manager = new TaskManager(new JsonTaskStorage(file))) {
+            assertEquals("Second", manager.getTaskById(2).getDescription());
+            assertEquals(ChangeType.UPDATE, manager.redo().get(0).type());
+            assertEquals("Second, renamed", manager.getTaskById(2).getDescription());
+            // The change redone is the first one undone again
+            assertEquals(ChangeType.UPDATE, manager.undo().get(0).type());
+            assertEquals(ChangeType.MARK_DONE, manager.undo().get(0).type());
+            assertEquals(ChangeType.ADD, manager.undo().get(0).type());
+            assertEquals(ChangeType.ADD, manager.undo().get(0).type());
+            assertTrue(manager.undo().isEmpty());
+            assertTrue(manager.isEmpty());
+            manager.writeTasksToJson();
+        }
+
+        try (TaskManager manager = new TaskManager(new JsonTaskStorage(file))) {
+            assertTrue(manager.isEmpty());
+            assertEquals(ChangeType.ADD, manager.redo().get(0).type());
+            // A new change drops what could still be redone
+            manager.addTask("Third");
+            assertTrue(manager.redo().isEmpty());
+            manager.writeTasksToJson();
+        }
+        Map<Integer, Task> stored = new HashMap<>();
+        JsonTaskStorage.readTasks(file, stored);
+        assertEquals(List.of("First", "Third"), stored.values().stream().map(Task::getDescription).sorted().toList());
+    }
+
+    @Test
+    public void testBulkChangeIsUndoneAsAWhole() {
+        try (TaskManager manager = new TaskManager(new JsonTaskStorage(file))) {
+            for (int i = 1; i <= 7; i++) {
+                manager.addTask("Task " + i);
+            }
+            manager.writeTasksToJson();
+        }
+        try (TaskManager manager = new TaskManager(new JsonTaskStorage(file))) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            PrintStream out = new PrintStream(output, true, StandardCharsets.UTF_8);
+            TaskManagerCLI.execute(manager, new String[]{"delete", "1-6"}, out);
+            manager.writeTasksToJson();
+            TaskManagerCLI.execute(manager, new String[]{"undo"}, out);
+            assertTrue(output.toString(StandardCharsets.UTF_8).endsWith("Undid delete of 6 tasks." + System.lineSeparator()));
+            for (int id = 1; id <= 7; id++) {
+                assertEquals("Task " + id, manager.getTaskById(id).getDescription());
+            }
+            manager.writeTasksToJson();
+        }
+        try (TaskManager manager = new TaskManager(new JsonTaskStorage(file))) {
+            assertEquals(6, manager.redo().size());
+            assertEquals(List.of(7), manager.findTasks(new TaskQuery()).stream().map(Task::getId).toList());
+            assertEquals(6, manager.undo().size());
+            // The single adds before the bulk change are undone one at a time
+            assertEquals(List.of(ChangeType.ADD), manager.undo().stream().map(TaskHistory.Event::type).toList());
+            assertNull(manager.getTaskById(7));
+            assertEquals(6, manager.countTasks(Status.TODO));
+        }
+    }
+
+    @Test
+    public void testListAsOfRebuildsPastTasks() {
+        TestClock clock = new TestClock();
+        LocalDateTime beforeHistory = clock.advance();
+        LocalDateTime afterAdd;
+        LocalDateTime afterMarkDone;
+        try (TaskManager manager = new TaskManager(new JsonTaskStorage(file), clock)) {
+            clock.advance();
+            manager.addTask("First");
+            manager.addTask("Second");
+            manager.writeTasksToJson();
+            afterAdd = clock.advance();
+            clock.advance();
+            manager.markDone(1);
+            afterMarkDone = clock.advance();
+            clock.advance();
+            manager.deleteTask(2);
+            // Events are stamped when they are recorded, not when the save logs them
+            clock.advance();
+            manager.writeTasksToJson();
+
+            List<Task> past = manager.findTasks(new TaskQuery().asOf(afterAdd));
+            assertEquals(2, past.size());
+            assertEquals(Status.TODO, past.get(0).getStatus());
+            assertEquals("Second", past.get(1).getDescription());
+            assertEquals(1, manager.findTasks(new TaskQuery().asOf(afterAdd).withStatus(Status.TODO)
+                    .orderBy(TaskOrder.ID, true).limit(1)).size());
+            List<Task> between = manager.findTasks(new TaskQuery().asOf(afterMarkDone));
+            assertEquals(List.of(Status.DONE, Status.TODO), between.stream().map(Task::getStatus).toList());
+            assertEquals(List.of(manager.getTaskById(1).toJson()),
+                    manager.findTasks(new TaskQuery().asOf(clock.advance())).stream().map(Task::toJson).toList());
+            assertThrows(NoSuchElementException.class, () -> manager.findTasks(new TaskQuery().asOf(beforeHistory)));
+        }
+    }
+
+    @Test
+    public void testPastStatesStartFromTheNearestSnapshot() throws IOException {
+        Path directory = TaskHistory.directoryFor(file);
+        TestClock clock = new TestClock();
+        TaskHistory history = new TaskHistory(directory, 10, clock);
+        Map<Integer, Task> stored = new HashMap<>();
+        stored.put(1, Task.restore(1, "Stored", Status.TODO, TIME, TIME));
+
+        LocalDateTime afterFirstSegment = null;
+        for (int id = 2; id <= 36; id++) {
+            Task task = Task.restore(id, "Task " + id, Status.TODO, TIME, TIME);
+            clock.advance();
+            history.record(TaskHistory.Kind.CHANGE, 0, ChangeType.ADD, id, null, task.toJson());
+            history.flush(() -> stored, false);
+            if (id == 12) {
+                afterFirstSegment = clock.advance();
+            }
+        }
+        // The snapshot of the start, and one after every 10 events
+        assertEquals(4, countFiles(directory, "snapshot-", ".json"));
+        assertEquals(4, countFiles(directory, "events-", ".log"));
+
+        assertEquals(36, history.stateAsOf(clock.advance()).size());
+        // Events before the nearest snapshot are never read again
+        Files.delete(directory.resolve("events-1.log"));
+        assertEquals(12, history.stateAsOf(afterFirstSegment).size());
+        assertEquals(36, history.stateAsOf(clock.advance()).size());
+    }
+
+    @Test
+    public void testInterruptedFlushIsDropped() throws IOException {
+        Path directory = TaskHistory.directoryFor(file);
+        TaskHistory history = new TaskHistory(directory, Clock.systemDefaultZone());
+        Task task = Task.restore(1, "Task", Status.TODO, TIME, TIME);
+        history.record(TaskHistory.Kind.CHANGE, 0, ChangeType.ADD, 1, null, task.toJson());
+        history.flush(HashMap::new, false);
+        // Events appended by a flush that never wrote its head
+        Files.writeString(directory.resolve("events-1.log"), "2\t0\tC\t0\tDELETE\t1\t-\t-\n",
+                StandardOpenOption.APPEND);
+
+        assertEquals(1, history.stateAsOf(LocalDateTime.now().plusDays(1)).size());
+        history.record(TaskHistory.Kind.CHANGE, 0, ChangeType.UPDATE, 1, task.toJson(), task.toJson());
+        history.flush(HashMap::new, false);
+        assertEquals(2, Files.readAllLines(directory.resolve("events-1.log")).size());
+        assertEquals(ChangeType.UPDATE, history.peekUndo().get(0).type());
+    }
+
+    @Test
+    public void testDisabledHistory() {
+        System.setProperty(TaskHistory.PROPERTY, "false");
+        try (TaskManager manager = new TaskManager(new JsonTaskStorage(file))) {
+            manager.addTask("First");
+            manager.writeTasksToJson();
+            assertFalse(manager.hasHistory());
+            assertThrows(IllegalStateException.class, manager::undo);
+        } finally {
+            System.clearProperty(TaskHistory.PROPERTY);
+        }
+        assertFalse(Files.exists(TaskHistory.directoryFor(file)));
+    }
+
+    private static long countFiles(Path directory, String prefix, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) && name.endsWith(suffix)).count();
+        }
+    }
+
+    /**
+     * A clock that only moves when told to, a second at a time.
+     */
+    private static final class TestClock extends Clock {
+        private Instant instant = TIME.atZone(ZoneId.systemDefault()).toInstant();
+
+        LocalDateTime advance() {
+            instant = instant.plusSeconds(1);
+            return LocalDateTime.now(this);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.systemDefault();
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
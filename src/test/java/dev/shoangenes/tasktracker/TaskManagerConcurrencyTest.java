@@ -0,0 +1,188 @@
+package dev.shoangenes.tasktracker;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class TaskManagerConcurrencyTest {
+    private static final int OPERATIONS_PER_THREAD = 20_000;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testConcurrentAddsAllocateUniqueIds() throws Exception {
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        TaskManager manager = new TaskManager(new JsonTaskStorage(tempDir.resolve("tasks.json")));
+        int firstId = Task.getLastIdSaved() + 1;
+
+        runConcurrently(manager, threads);
+
+        int lastId = Task.getLastIdSaved();
+        assertEquals(threads * OPERATIONS_PER_THREAD, lastId - firstId + 1);
+        for (int id = firstId; id <= lastId; id++) {
+            Task task = manager.getTaskById(id);
+            assertNotNull(task, "Task " + id + " was lost");
+            assertEquals(Status.DONE, task.getStatus());
+        }
+        // The status and time indexes must agree with the tasks
+        assertEquals(threads * OPERATIONS_PER_THREAD, manager.countTasks(Status.DONE));
+        assertEquals(0, manager.countTasks(Status.TODO));
+        List<Task> done = manager.findTasks(new TaskQuery().withStatus(Status.DONE));
+        assertEquals(threads * OPERATIONS_PER_THREAD, done.stream().map(Task::getId).distinct().count());
+        assertEquals(threads * OPERATIONS_PER_THREAD,
+                manager.findTasks(new TaskQuery().createdBefore(LocalDateTime.now().plusDays(1))).size());
+    }
+
+    @Test
+    public void testConcurrentMutationsOfTheSameTask() throws Exception {
+        TaskManager manager = new TaskManager(new JournalTaskStorage(tempDir.resolve("tasks.json")));
+        manager.addTask("Shared");
+        int id = Task.getLastIdSaved();
+        int threads = 8;
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            Thread thread = Thread.ofVirtual().unstarted(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < 1_000; i++) {
+                        if (worker % 2 == 0) {
+                            manager.markDone(id);
+                        } else {
+                            manager.updateTask(id, "Shared " + worker + "-" + i);
+                        }
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+            workers.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : workers) {
+            thread.join();
+        }
+        manager.close();
+
+        assertTrue(failures.isEmpty(), () -> "Unexpected failures: " + failures);
+        TaskManager reloaded = new TaskManager(new JournalTaskStorage(tempDir.resolve("tasks.json")));
+        assertEquals(manager.getTaskById(id).toJson(), reloaded.getTaskById(id).toJson(),
+                "The journal must record the changes of a task in the order they were applied.");
+    }
+
+    @Test
+    public void testArchivePolicyWithConcurrentJournalMutations() throws Exception {
+        Path file = tempDir.resolve("tasks.json");
+        int size = 20_000;
+        LocalDateTime old = LocalDateTime.of(2025, 1, 1, 12, 0);
+        List<Task> stored = new ArrayList<>();
+        for (int id = 1; id <= size; id++) {
+            stored.add(Task.restore(id, "Old task " + id, Status.DONE, old, old));
+        }
+        JsonTaskStorage.writeTasks(file, stored);
+
+        System.setProperty(TaskArchive.DAYS_PROPERTY, "30");
+        try (TaskManager manager = new TaskManager(new JournalTaskStorage(file))) {
+            ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+            AtomicBoolean archiving = new AtomicBoolean(true);
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int worker = t;
+                // Every mutation holds the task's lock while the journal takes the store lock
+                workers.add(Thread.ofPlatform().start(() -> {
+                    for (int id = 1 + worker; archiving.get(); id = id % size + 1) {
+                        try {
+                            manager.updateTask(id, "Updated by " + worker);
+                        } catch (NoSuchElementException e) {
+                            // Archived meanwhile
+                        } catch (Throwable e) {
+                            failures.add(e);
+                            return;
+                        }
+                    }
+                }));
+            }
+            int archived = assertTimeoutPreemptively(Duration.ofSeconds(60), () -> {
+                try {
+                    // The policy runs with the save, then an explicit archive takes what the workers touched
+                    manager.writeTasksToJson();
+                    return Math.toIntExact(new TaskArchive(TaskArchive.directoryFor(file)).getCount())
+                            + manager.archiveTasks(LocalDateTime.now().plusDays(1));
+                } finally {
+                    archiving.set(false);
+                }
+            });
+            for (Thread thread : workers) {
+                thread.join();
+            }
+
+            assertTrue(failures.isEmpty(), () -> "Unexpected failures: " + failures);
+            assertEquals(size, archived);
+            assertTrue(manager.findTasks(new TaskQuery()).isEmpty());
+            assertEquals(size, new TaskArchive(TaskArchive.directoryFor(file)).getCount());
+        } finally {
+            System.clearProperty(TaskArchive.DAYS_PROPERTY);
+        }
+    }
+
+    /**
+     * Adds OPERATIONS_PER_THREAD tasks per thread and marks each of them as done right away.
+     */
+    private static void runConcurrently(TaskManager manager, int threads) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        manager.addTask("Task " + i);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        int lastId = Task.getLastIdSaved();
+        int firstId = lastId - threads * OPERATIONS_PER_THREAD + 1;
+        CountDownLatch markStart = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t;
+                futures.add(executor.submit(() -> {
+                    markStart.await();
+                    for (int id = firstId + offset; id <= lastId; id += threads) {
+                        manager.markDone(id);
+                    }
+                    return null;
+                }));
+            }
+            markStart.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+    }
+}
@@ -1,11 +1,13 @@
 package dev.shoangenes.tasktracker;
 
-import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.lang.reflect.Field;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -13,12 +15,15 @@ import java.util.HashMap;
 import java.util.NoSuchElementException;
 
 public class TaskManagerTest {
-    // Usar la misma ruta que TaskManager para asegurar consistencia
-    private static final Path FILE_PATH = new TaskManager().getAppDataFolder();
+    // The store lives in a temporary directory, so the suite never writes next to the sources
+    @TempDir
+    Path tempDir;
+
+    private Path filePath;
 
     @BeforeEach
-    public void cleanFile() throws IOException {
-        Files.deleteIfExists(FILE_PATH);
+    public void cleanFile() {
+        filePath = tempDir.resolve("tasks.json");
 
         try {
             Field idField = Task.class.getDeclaredField("lastIdSaved");
@@ -29,14 +34,9 @@ public class TaskManagerTest {
         }
     }
 
-    @AfterEach
-    public void cleanUp() throws IOException {
-        Files.deleteIfExists(FILE_PATH);
-    }
-
     @Test
     public void testAdd() {
-        TaskManager taskManager = new TaskManager();
+        TaskManager taskManager = newTaskManager();
         taskManager.addTask("Study Java");
         taskManager.addTask("Go to the University");
         taskManager.addTask("Tell Jimmy about that");
@@ -48,7 +48,7 @@ public class TaskManagerTest {
 
     @Test
     public void testDelete() {
-        TaskManager taskManager = new TaskManager();
+        TaskManager taskManager = newTaskManager();
         taskManager.addTask("Study Java");
         taskManager.addTask("Go to the University");
         taskManager.addTask("Tell Jimmy about that");
@@ -63,7 +63,7 @@ public class TaskManagerTest {
 
     @Test
     public void testUpdate() {
-        TaskManager taskManager = new TaskManager();
+        TaskManager taskManager = newTaskManager();
         taskManager.addTask("Study Java");
         taskManager.addTask("Go to the University");
         taskManager.addTask("Tell Jimmy about that");
@@ -85,7 +85,7 @@ public class TaskManagerTest {
 
     @Test
     public void testMarkAs() {
-        TaskManager taskManager = new TaskManager();
+        TaskManager taskManager = newTaskManager();
         taskManager.addTask("Study Java");
         taskManager.addTask("Go to the University");
         taskManager.addTask("Tell Jimmy about that");
@@ -102,17 +102,17 @@ public class TaskManagerTest {
 
     @Test
     public void testWriteTasksToJsonAndReadTasksFromJson() {
-        TaskManager manager = new TaskManager();
+        TaskManager manager = newTaskManager();
         manager.addTask("Task 1");
         manager.addTask("Task 2");
 
         // Escribir las tareas al JSON
         manager.writeTasksToJson();
 
-        assertTrue(Files.exists(FILE_PATH), "El archivo JSON debe existir después de escribir.");
+        assertTrue(Files.exists(filePath), "El archivo JSON debe existir después de escribir.");
 
         // Crear un nuevo manager que cargará las tareas del JSON
-        TaskManager newManager = new TaskManager();
+        TaskManager newManager = newTaskManager();
 
         // Verificar que las tareas se cargaron correctamente
         assertFalse(newManager.isEmpty());
@@ -124,9 +124,40 @@ public class TaskManagerTest {
 
     @Test
     public void testReadTasksFromJsonWhenFileDoesNotExist() throws IOException {
-        Files.deleteIfExists(FILE_PATH);
-        TaskManager manager = new TaskManager();
+        Files.deleteIfExists(filePath);
+        TaskManager manager = newTaskManager();
         HashMap<Integer, Task> tasks = manager.readTasksFromJson();
         assertTrue(tasks.isEmpty(), "Debe devolver un HashMap vacío si el archivo no existe.");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testStatusIndexFollowsMutations() {
+        TaskManager manager = newTaskManager();
+        manager.addTask("Study Java");
+        manager.addTask("Go to the University");
+        manager.addTask("Tell Jimmy about that");
+
+        assertEquals(3, manager.countTasks(Status.TODO));
+        manager.markInProgress(1);
+        manager.markDone(2);
+        manager.markDone(1);
+        manager.deleteTask(3);
+        manager.addTask("Write documentation");
+
+        assertEquals(1, manager.countTasks(Status.TODO));
+        assertEquals(0, manager.countTasks(Status.IN_PROGRESS));
+        assertEquals(2, manager.countTasks(Status.DONE));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        manager.printTask(PrintMode.DONE, new PrintStream(output, true));
+        String[] lines = output.toString().split(System.lineSeparator());
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("id: 1,"));
+        assertTrue(lines[1].startsWith("id: 2,"));
+    }
+
+    // Opens the store with the engine selected by the environment, like the default constructor
+    private TaskManager newTaskManager() {
+        return new TaskManager(StorageType.fromEnvironment().create(filePath));
+    }
+}
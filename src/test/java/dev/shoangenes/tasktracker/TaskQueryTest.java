@@ -0,0 +1,186 @@
+package dev.shoangenes.tasktracker;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class TaskQueryTest {
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 1, 1, 9, 0);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testTimeRangesUseStoredTimes() {
+        Path file = tempDir.resolve("tasks.json");
+        JsonTaskStorage.writeTasks(file, List.of(
+                Task.restore(1, "Old task", Status.DONE, BASE, BASE.plusDays(1)),
+                Task.restore(2, "Recent task", Status.TODO, BASE.plusDays(5), BASE.plusDays(5)),
+                Task.restore(3, "Newest task", Status.TODO, BASE.plusDays(9), BASE.plusDays(9))));
+        TaskManager manager = new TaskManager(new JsonTaskStorage(file));
+
+        assertEquals(List.of(2, 3), ids(manager.findTasks(new TaskQuery().createdAfter(BASE.plusDays(1)))));
+        assertEquals(List.of(1, 2), ids(manager.findTasks(new TaskQuery().createdBefore(BASE.plusDays(9)))));
+        assertEquals(List.of(2), ids(manager.findTasks(new TaskQuery()
+                .createdAfter(BASE).createdBefore(BASE.plusDays(9)))));
+        assertEquals(List.of(3), ids(manager.findTasks(new TaskQuery()
+                .withStatus(Status.TODO).updatedSince(BASE.plusDays(6)))));
+        assertEquals(List.of(1), ids(manager.findTasks(new TaskQuery().withStatus(Status.DONE))));
+    }
+
+    @Test
+    public void testUpdatedSinceFollowsMutations() {
+        Path file = tempDir.resolve("tasks.json");
+        JsonTaskStorage.writeTasks(file, List.of(
+                Task.restore(1, "Old task", Status.TODO, BASE, BASE),
+                Task.restore(2, "Other task", Status.TODO, BASE, BASE)));
+        TaskManager manager = new TaskManager(new JsonTaskStorage(file));
+        LocalDateTime since = BASE.plusDays(1);
+        assertTrue(manager.findTasks(new TaskQuery().updatedSince(since)).isEmpty());
+
+        manager.markDone(2);
+        assertEquals(List.of(2), ids(manager.findTasks(new TaskQuery().updatedSince(since))));
+
+        manager.deleteTask(2);
+        manager.addTask("New task");
+        assertEquals(List.of(Task.getLastIdSaved()), ids(manager.findTasks(new TaskQuery().updatedSince(since))));
+    }
+
+    @Test
+    public void testParseTimeArguments() {
+        LocalDateTime now = LocalDateTime.of(2026, 3, 10, 12, 0);
+        assertEquals(LocalDateTime.of(2026, 3, 8, 12, 0), TimeArgument.parse("2d", now));
+        assertEquals(LocalDateTime.of(2026, 3, 10, 10, 30), TimeArgument.parse("90m", now));
+        assertEquals(LocalDateTime.of(2026, 2, 1, 0, 0), TimeArgument.parse("2026-02-01", now));
+        assertEquals(LocalDateTime.of(2026, 2, 1, 8, 15), TimeArgument.parse("2026-02-01T08:15", now));
+        assertThrows(IllegalArgumentException.class, () -> TimeArgument.parse("yesterday", now));
+        assertThrows(IllegalArgumentException.class, () -> TimeArgument.parse("3y", now));
+        for (String tooLarge : List.of("999999999999d", "999999999999w", "9223372036854775807s",
+                "99999999999999999999h")) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                    () -> TimeArgument.parse(tooLarge, now));
+            assertEquals("Invalid time '" + tooLarge + "'", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testParseIdRanges() {
+        IdRanges ranges = IdRanges.parse("300,100-250, 240-260,7,8");
+        assertEquals("7-8,100-260,300", ranges.toString());
+        assertTrue(ranges.contains(7));
+        assertTrue(ranges.contains(260));
+        assertFalse(ranges.contains(261));
+        assertFalse(ranges.contains(1));
+        List<Integer> visited = new ArrayList<>();
+        ranges.forEach(101, visited::add);
+        assertEquals(List.of(7, 8, 100, 101), visited);
+        visited.clear();
+        IdRanges.parse("2147483646-2147483647").forEach(Integer.MAX_VALUE, visited::add);
+        assertEquals(List.of(Integer.MAX_VALUE - 1, Integer.MAX_VALUE), visited);
+        for (String invalid : List.of("", "5-3", "0", "1,,2", "a-b", "3-")) {
+            assertThrows(IllegalArgumentException.class, () -> IdRanges.parse(invalid), invalid);
+        }
+    }
+
+    @Test
+    public void testBulkChangesApplyToTheSelection() {
+        Path file = tempDir.resolve("tasks.json");
+        JsonTaskStorage.writeTasks(file, List.of(
+                Task.restore(1, "Release v1 notes", Status.DONE, BASE, BASE),
+                Task.restore(2, "Fix login", Status.TODO, BASE, BASE.plusDays(3)),
+                Task.restore(3, "Release v1 build", Status.TODO, BASE, BASE.plusDays(3)),
+                Task.restore(4, "Old chore", Status.DONE, BASE, BASE.plusDays(1)),
+                Task.restore(5, "New chore", Status.DONE, BASE, BASE.plusDays(9))));
+        TaskManager manager = new TaskManager(new JsonTaskStorage(file));
+
+        // Tasks already done and IDs never handed out are skipped
+        assertEquals(1, manager.markDone(new TaskQuery().withIds(IdRanges.parse("1-2,900-1000"))));
+        assertEquals(2, manager.deleteTasks(new TaskQuery().withStatus(Status.DONE).updatedBefore(BASE.plusDays(2))));
+        assertEquals(List.of(2, 3, 5), ids(manager.findTasks(new TaskQuery())));
+        assertEquals(1, manager.replaceInDescriptions(new TaskQuery().containing("V1"), "v1", "v2"));
+        assertEquals("Release v2 build", manager.getTaskById(3).getDescription());
+        assertEquals(2, manager.markInProgress(new TaskQuery().containing("e")));
+        assertEquals(List.of(1, 2, 3, 4, 5), manager.getUnsavedChanges().keySet().stream().sorted().toList());
+        assertEquals(2, manager.countTasks(Status.IN_PROGRESS));
+
+        manager.writeTasksToJson();
+        Map<Integer, Task> stored = new HashMap<>();
+        JsonTaskStorage.readTasks(file, stored);
+        assertEquals(List.of(2, 3, 5), stored.keySet().stream().sorted().toList());
+    }
+
+    @Test
+    public void testBulkCommands() {
+        Path file = tempDir.resolve("tasks.json");
+        JsonTaskStorage.writeTasks(file, List.of(
+                Task.restore(1, "Sprint task", Status.TODO, BASE, BASE),
+                Task.restore(2, "Sprint review", Status.TODO, BASE, BASE),
+                Task.restore(3, "Backlog item", Status.TODO, BASE, BASE)));
+        TaskManager manager = new TaskManager(new JsonTaskStorage(file));
+
+        assertEquals("2 tasks marked done.", run(manager, "mark-done", "1-2").trim());
+        assertEquals("1 task marked in progress.", run(manager, "mark-in-progress", "--match", "backlog").trim());
+        assertEquals("2 tasks updated.", run(manager, "update", "--status", "done", "--match", "sprint", "Iteration").trim());
+        assertEquals("Iteration review", manager.getTaskById(2).getDescription());
+        assertEquals("1 task updated.", run(manager, "update", "2,3", "--status", "in-progress", "Renamed").trim());
+        assertEquals("Renamed", manager.getTaskById(3).getDescription());
+        assertEquals("2 tasks deleted.", run(manager, "delete", "--status", "DONE", "--updated-before", "2100-01-01").trim());
+        assertEquals(List.of(3), ids(manager.findTasks(new TaskQuery())));
+
+        assertTrue(run(manager, "delete", "1-x").startsWith("Error: "));
+        assertTrue(run(manager, "mark-done", "1,2", "extra").startsWith("Error: Unexpected argument"));
+        assertTrue(run(manager, "mark-done", "--status").startsWith("Error: Missing value"));
+        assertTrue(run(manager, "update", "--match", "item").startsWith("Error: Missing description"));
+        assertEquals("Error: The text to match must not be empty", run(manager, "update", "--match", "", "x").trim());
+        assertEquals("Error: The text to match must not be empty", run(manager, "delete", "--match", "").trim());
+        assertTrue(run(manager, "delete", "--owner", "me").startsWith("Error: Unknown filter"));
+        assertEquals(List.of(3), ids(manager.findTasks(new TaskQuery())));
+    }
+
+    @Test
+    public void testBulkChangesOnLazyStorages() {
+        List<Task> stored = List.of(
+                Task.restore(1, "Task one", Status.TODO, BASE, BASE),
+                Task.restore(2, "Task two", Status.TODO, BASE, BASE),
+                Task.restore(3, "Other two", Status.TODO, BASE, BASE));
+        Path binaryPath = tempDir.resolve("tasks.bin");
+        Path jsonPath = tempDir.resolve("tasks.json");
+        JsonTaskStorage.writeTasks(jsonPath, stored);
+        BinaryTaskStorage.convertJsonToBinary(jsonPath, binaryPath);
+
+        for (TaskStorage storage : List.of(new BinaryTaskStorage(binaryPath), new JsonTaskStorage(jsonPath, false, true))) {
+            try (TaskManager manager = new TaskManager(storage)) {
+                // Neither query has an index, so the candidates are decoded from the lazy source
+                assertEquals(2, manager.markDone(new TaskQuery().containing("two")));
+                assertEquals(1, manager.replaceInDescriptions(new TaskQuery(), "one", "1"));
+                manager.writeTasksToJson();
+            }
+            try (TaskManager reloaded = new TaskManager(storage instanceof BinaryTaskStorage
+                    ? new BinaryTaskStorage(binaryPath) : new JsonTaskStorage(jsonPath, false, true))) {
+                assertEquals("Task 1", reloaded.getTaskById(1).getDescription());
+                assertEquals(2, reloaded.countTasks(Status.DONE));
+            }
+        }
+    }
+
+    private static String run(TaskManager manager, String... args) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        TaskManagerCLI.execute(manager, args, new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    private static List<Integer> ids(List<Task> tasks) {
+        return tasks.stream().map(Task::getId).toList();
+    }
+}
@@ -1,9 +1,14 @@
 package dev.shoangenes.tasktracker;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
 import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import dev.shoangenes.tasktracker.Status;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -70,4 +75,46 @@ public class TaskTest {
         assertEquals(originalJson, newJson);
     }
 
+    @Test
+    public void testToJsonEscapesSpecialCharacters() {
+        String description = "Call \"Bob\", then {fix} a:b\\c\nnext line\ttab";
+        Task originalTask = new Task(description);
+
+        Task parsedTask = Task.fromJson(originalTask.toJson());
+
+        assertEquals(description, parsedTask.getDescription());
+        assertEquals(originalTask.toJson(), parsedTask.toJson());
+        assertFalse(originalTask.toJson().contains("\n"));
+    }
+
+    @Test
+    public void testFromJsonAcceptsAnyFieldOrder() {
+        String json = "{ \"status\": \"in progress\", \"updatedAt\": \"2025-01-02T10:00:00\","
+                + " \"extra\": [1, {\"a\": \"}\"}], \"description\": \"Caf\\u00e9\","
+                + " \"createdAt\": \"2025-01-01T09:30:00\", \"id\": 7 }";
+
+        Task task = Task.fromJson(json);
+
+        assertEquals(7, task.getId());
+        assertEquals("Café", task.getDescription());
+        assertEquals(Status.IN_PROGRESS, task.getStatus());
+    }
+
+    @Test
+    public void testFromJsonRejectsMalformedJson() {
+        assertThrows(TaskStorageException.class, () -> Task.fromJson("{\"id\":1,\"description\":\"open"));
+        assertThrows(TaskStorageException.class, () -> Task.fromJson("{\"id\":1}"));
+    }
+
+    @Test
+    public void testNegativeIdIsAStorageError(@TempDir Path tempDir) throws IOException {
+        String json = "{\"id\":-1,\"description\":\"Study Java\",\"status\":\"TODO\","
+                + "\"createdAt\":\"2026-01-01T10:00\",\"updatedAt\":\"2026-01-01T10:00\"}";
+        TaskStorageException e = assertThrows(TaskStorageException.class, () -> Task.fromJson(json));
+        assertTrue(e.getMessage().contains("Negative task id"));
+
+        Path file = tempDir.resolve("tasks.json");
+        Files.writeString(file, "[" + json + "]");
+        assertThrows(TaskStorageException.class, () -> JsonTaskStorage.readTasks(file, new HashMap<>()));
+    }
 }
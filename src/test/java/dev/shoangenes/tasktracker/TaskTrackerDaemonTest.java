@@ -0,0 +1,55 @@
+package dev.shoangenes.tasktracker;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+public class TaskTrackerDaemonTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testCommandsAreForwardedToDaemon() throws InterruptedException {
+        Path socketPath = tempDir.resolve("task-tracker.sock");
+        TaskManager taskManager = new TaskManager(new JsonTaskStorage(tempDir.resolve("tasks.json")));
+        TaskTrackerDaemon daemon = new TaskTrackerDaemon(taskManager, socketPath);
+        Thread server = new Thread(daemon::run);
+        server.start();
+        waitForSocket(socketPath);
+
+        assertEquals(Optional.of(0), forward(socketPath, "add", "Study", "Java"));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertEquals(Optional.of(0), DaemonClient.forward(socketPath, new String[]{"list", "todo"},
+                new PrintStream(output, true, StandardCharsets.UTF_8)));
+        assertTrue(output.toString(StandardCharsets.UTF_8).contains("description: Study Java"));
+
+        assertTrue(DaemonClient.stop(socketPath));
+        server.join(5000);
+        assertFalse(server.isAlive());
+        assertFalse(Files.exists(socketPath));
+        assertTrue(Files.exists(tempDir.resolve("tasks.json")), "The daemon persists after every command.");
+    }
+
+    @Test
+    public void testForwardFallsBackWithoutDaemon() {
+        assertEquals(Optional.empty(), forward(tempDir.resolve("missing.sock"), "list", "all"));
+    }
+
+    private static Optional<Integer> forward(Path socketPath, String... args) {
+        return DaemonClient.forward(socketPath, args, new PrintStream(new ByteArrayOutputStream()));
+    }
+
+    private static void waitForSocket(Path socketPath) throws InterruptedException {
+        for (int i = 0; i < 100 && !DaemonClient.isRunning(socketPath); i++) {
+            Thread.sleep(50);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package dev.shoangenes.tasktracker;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+public class TaskWriterTest {
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 1, 1, 9, 0);
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        Field idField = Task.class.getDeclaredField("lastIdSaved");
+        idField.setAccessible(true);
+        idField.set(null, 0);
+    }
+
+    @Test
+    public void testFormatsMatchTheTaskRepresentations() {
+        List<Task> tasks = List.of(
+                Task.restore(1, "Plain task", Status.TODO, BASE, BASE.plusHours(1)),
+                Task.restore(2, "Quoted \"task\", with a comma", Status.DONE, BASE, BASE.plusHours(2)));
+
+        List<String> text = lines(tasks, OutputFormat.TEXT);
+        assertEquals(List.of(tasks.get(0).toString(), tasks.get(1).toString()), text);
+
+        List<String> jsonl = lines(tasks, OutputFormat.JSONL);
+        assertEquals(2, jsonl.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(tasks.get(i).toJson(), jsonl.get(i));
+            Task parsed = new TaskJsonReader(new StringReader(jsonl.get(i))).readTask();
+            assertEquals(tasks.get(i).getDescription(), parsed.getDescription());
+        }
+
+        List<String> csv = lines(tasks, OutputFormat.CSV);
+        assertEquals("id,description,status,createdAt,updatedAt", csv.get(0));
+        assertEquals("1,Plain task,TODO,2026-01-01T09:00:00,2026-01-01T10:00:00", csv.get(1));
+        assertEquals("2,\"Quoted \"\"task\"\", with a comma\",DONE,2026-01-01T09:00:00,2026-01-01T11:00:00", csv.get(2));
+    }
+
+    @Test
+    public void testLimitedPageMatchesTheFullSort() {
+        TaskManager manager = managerWith(200);
+        List<Task> sorted = manager.findTasks(new TaskQuery().orderBy(TaskOrder.UPDATED, true));
+        assertEquals(200, sorted.size());
+        for (int i = 1; i < sorted.size(); i++) {
+            Task previous = sorted.get(i - 1);
+            Task current = sorted.get(i);
+            int byTime = current.getUpdatedAt().compareTo(previous.getUpdatedAt());
+            assertTrue(byTime < 0 || byTime == 0 && current.getId() < previous.getId());
+        }
+
+        List<Task> page = manager.findTasks(new TaskQuery().orderBy(TaskOrder.UPDATED, true).offset(30).limit(25));
+        assertEquals(ids(sorted.subList(30, 55)), ids(page));
+
+        List<Task> todo = manager.findTasks(new TaskQuery().withStatus(Status.TODO)
+                .orderBy(TaskOrder.CREATED, false).limit(10));
+        List<Task> expected = manager.findTasks(new TaskQuery().withStatus(Status.TODO));
+        expected.sort(Comparator.comparing(Task::getCreatedAt).thenComparingInt(Task::getId));
+        assertEquals(ids(expected.subList(0, 10)), ids(todo));
+        assertTrue(manager.findTasks(new TaskQuery().limit(0)).isEmpty());
+    }
+
+    @Test
+    public void testCursorPagesCoverEveryTaskOnce() {
+        TaskManager manager = managerWith(95);
+        List<Integer> seen = new ArrayList<>();
+        Integer cursor = null;
+        while (true) {
+            List<Task> page = manager.findTasks(new TaskQuery().orderBy(TaskOrder.CREATED, true).after(cursor).limit(10));
+            if (page.isEmpty()) {
+                break;
+            }
+            seen.addAll(ids(page));
+            cursor = page.get(page.size() - 1).getId();
+        }
+        assertEquals(ids(manager.findTasks(new TaskQuery().orderBy(TaskOrder.CREATED, true))), seen);
+        assertEquals(95, seen.stream().distinct().count());
+
+        assertThrows(NoSuchElementException.class, () -> manager.findTasks(new TaskQuery().after(1000)));
+    }
+
+    @Test
+    public void testListCommandPagesAndFormats() {
+        TaskManager manager = managerWith(20);
+        assertEquals(List.of("id", "20", "19", "18"),
+                run(manager, "list", "all", "--sort", "id", "--desc", "--limit", "3", "--format", "csv").stream()
+                        .map(line -> line.split(",")[0]).toList());
+        assertEquals(List.of(manager.getTaskById(5).toString(), manager.getTaskById(6).toString()),
+                run(manager, "list", "all", "--after", "4", "--limit", "2"));
+        assertEquals(List.of("Error: Missing value for '--limit'"), run(manager, "list", "all", "--limit"));
+        assertEquals(List.of("Error: Unknown format 'xml'"), run(manager, "list", "all", "--format", "xml"));
+        assertEquals(List.of("Error: No such task with id: 99"), run(manager, "list", "all", "--after", "99"));
+        assertEquals(run(manager, "list", "all"), run(manager, "list", "all", "--format", "text"));
+    }
+
+    /**
+     * Creates a store whose creation and update times are spread out of ID order, with ties.
+     */
+    private TaskManager managerWith(int count) {
+        List<Task> tasks = new ArrayList<>();
+        Status[] statuses = Status.values();
+        for (int id = 1; id <= count; id++) {
+            LocalDateTime created = BASE.plusMinutes((id * 37L) % 50);
+            tasks.add(Task.restore(id, "Task " + id, statuses[id % statuses.length], created,
+                    created.plusMinutes((id * 13L) % 7)));
+        }
+        Path file = tempDir.resolve("tasks.json");
+        JsonTaskStorage.writeTasks(file, tasks);
+        return new TaskManager(new JsonTaskStorage(file));
+    }
+
+    private static List<String> lines(List<Task> tasks, OutputFormat format) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, true, StandardCharsets.UTF_8);
+        try (TaskWriter writer = new TaskWriter(out, format)) {
+            tasks.forEach(writer);
+        }
+        return bytes.toString(StandardCharsets.UTF_8).lines().toList();
+    }
+
+    private static List<String> run(TaskManager manager, String... args) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        TaskManagerCLI.execute(manager, args, new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        return bytes.toString(StandardCharsets.UTF_8).lines().toList();
+    }
+
+    private static List<Integer> ids(List<Task> tasks) {
+        return tasks.stream().map(Task::getId).toList();
+    }
+}
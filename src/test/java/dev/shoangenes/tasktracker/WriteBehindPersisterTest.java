@@ -0,0 +1,143 @@
+package dev.shoangenes.tasktracker;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.Field;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class WriteBehindPersisterTest {
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        Field idField = Task.class.getDeclaredField("lastIdSaved");
+        idField.setAccessible(true);
+        idField.set(null, 0);
+    }
+
+    @Test
+    public void testMutationsWithinAWindowShareOneSave() throws InterruptedException {
+        CountingStorage storage = new CountingStorage(tempDir.resolve("tasks.json"));
+        try (TaskManager manager = new TaskManager(storage);
+             WriteBehindPersister persister = new WriteBehindPersister(manager, Duration.ofMillis(500), 10_000)) {
+            for (int i = 0; i < 200; i++) {
+                manager.addTask("Task " + i);
+            }
+            assertEquals(200, persister.getQueueDepth());
+            assertEquals(0, storage.saves.get());
+
+            waitForEmptyQueue(persister);
+            assertTrue(storage.saves.get() <= 2, "Saves: " + storage.saves.get());
+            assertEquals(200, stored().size());
+        }
+    }
+
+    @Test
+    public void testPendingLimitStartsASaveWithoutWaiting() throws InterruptedException {
+        CountingStorage storage = new CountingStorage(tempDir.resolve("tasks.json"));
+        try (TaskManager manager = new TaskManager(storage);
+             WriteBehindPersister persister = new WriteBehindPersister(manager, Duration.ofHours(1), 5)) {
+            for (int i = 0; i < 5; i++) {
+                manager.addTask("Task " + i);
+            }
+            waitForEmptyQueue(persister);
+            assertEquals(5, stored().size());
+            assertEquals(1, persister.getStats().flushes());
+        }
+    }
+
+    @Test
+    public void testFlushIsADurabilityBarrier() {
+        try (TaskManager manager = new TaskManager(new JsonTaskStorage(tempDir.resolve("tasks.json")));
+             WriteBehindPersister persister = new WriteBehindPersister(manager, Duration.ofHours(1), 1000)) {
+            manager.addTask("First task");
+            manager.addTask("Second task");
+            manager.markDone(1);
+            assertTrue(stored().isEmpty());
+
+            persister.flush();
+            Map<Integer, Task> stored = stored();
+            assertEquals(2, stored.size());
+            assertEquals(Status.DONE, stored.get(1).getStatus());
+
+            WriteBehindPersister.Stats stats = persister.getStats();
+            assertEquals(0, stats.queueDepth());
+            assertEquals(1, stats.flushes());
+            assertTrue(stats.lastFlushLatency().toNanos() > 0);
+            assertEquals(stats.lastFlushLatency(), stats.maxFlushLatency());
+        }
+    }
+
+    @Test
+    public void testFailedSaveKeepsMutationsPending() {
+        CountingStorage storage = new CountingStorage(tempDir.resolve("tasks.json"));
+        try (TaskManager manager = new TaskManager(storage);
+             WriteBehindPersister persister = new WriteBehindPersister(manager, Duration.ofHours(1), 1000)) {
+            manager.addTask("Task");
+            storage.failing.set(true);
+            assertThrows(TaskStorageException.class, persister::flush);
+            assertEquals(1, persister.getQueueDepth());
+            assertEquals(1, persister.getStats().failures());
+
+            storage.failing.set(false);
+            persister.flush();
+            assertEquals(0, persister.getQueueDepth());
+            assertEquals(1, stored().size());
+        }
+    }
+
+    @Test
+    public void testCloseSavesPendingMutations() {
+        TaskManager manager = new TaskManager(new JsonTaskStorage(tempDir.resolve("tasks.json")));
+        WriteBehindPersister persister = new WriteBehindPersister(manager, Duration.ofHours(1), 1000);
+        manager.addTask("Task");
+        persister.close();
+        manager.close();
+
+        assertEquals(1, stored().size());
+        assertThrows(IllegalStateException.class, persister::flush);
+    }
+
+    private static void waitForEmptyQueue(WriteBehindPersister persister) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (persister.getQueueDepth() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, persister.getQueueDepth());
+    }
+
+    private Map<Integer, Task> stored() {
+        Map<Integer, Task> tasks = new HashMap<>();
+        JsonTaskStorage.readTasks(tempDir.resolve("tasks.json"), tasks);
+        return tasks;
+    }
+
+    private static class CountingStorage extends JsonTaskStorage {
+        private final AtomicInteger saves = new AtomicInteger();
+        private final AtomicBoolean failing = new AtomicBoolean();
+
+        CountingStorage(Path filePath) {
+            super(filePath);
+        }
+
+        @Override
+        public void save(Collection<Task> tasks) {
+            if (failing.get()) {
+                throw new TaskStorageException("Simulated failure");
+            }
+            saves.incrementAndGet();
+            super.save(tasks);
+        }
+    }
+}